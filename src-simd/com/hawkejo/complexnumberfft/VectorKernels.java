@@ -0,0 +1,288 @@
+package com.hawkejo.complexnumberfft;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * FFT kernels written with the JDK Vector API.
+ *
+ * <p>This class holds the vectorized butterflies, twiddle multiplies and magnitude pass
+ * used by {@link SimdFFT}. It references the jdk.incubator.vector module directly, so it
+ * lives in its own source root, which is only compiled by the SIMD build with
+ * {@code --add-modules jdk.incubator.vector}. {@link SimdFFT} loads it by name, and
+ * falls back to the scalar code when the class or the module is missing.</p>
+ */
+
+final class VectorKernels implements SimdKernels {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+
+    /**
+     * Only created by {@link SimdFFT}, through reflection.
+     */
+    VectorKernels() {
+    }
+
+    /**
+     * Returns the number of doubles held by one vector.
+     *
+     * @return The vector length in doubles
+     */
+    @Override
+    public int lanes() {
+        return LANES;
+    }
+
+    /**
+     * Compute an FFT in place on size elements of the arrays starting at an offset.
+     *
+     * <p>The first two stages need no twiddle multiplies and are done together as one
+     * scalar radix-4 pass. Stages whose halves are shorter than a vector also run
+     * scalar. Every other stage runs radix-2 butterflies a full vector at a time, with
+     * the twiddle factors loaded contiguously from {@link TwiddleTable#byStage()}.</p>
+     *
+     * @param re The real parts of the input, replaced by the real parts of the output
+     * @param im The imaginary parts of the input, replaced by the imaginary parts of the output
+     * @param offset The first element to transform
+     * @param size The number of elements to transform, must be a power of 2
+     * @param table The twiddle table for the size
+     */
+    @Override
+    public void transform(double[] re, double[] im, int offset, int size, TwiddleTable table) {
+        PrimitiveFFT.bitReverse(re, im, offset, size);
+        stages(re, im, offset, size, size, table);
+    }
+
+    /**
+     * Runs the butterfly stages on bit reversed elements, up to transforms of the block size.
+     *
+     * <p>Afterwards each aligned block holds the FFT of the elements whose index is
+     * congruent to the bit reversed block number modulo size / block. With the block
+     * equal to the size this finishes the full transform.</p>
+     *
+     * @param re The bit reversed real parts to transform in place
+     * @param im The bit reversed imaginary parts to transform in place
+     * @param size The number of elements, must be a power of 2
+     * @param block The size of the largest stage to run, a power of 2 no larger than size
+     * @param table The twiddle table for the size
+     */
+    @Override
+    public void stages(double[] re, double[] im, int size, int block, TwiddleTable table) {
+        stages(re, im, 0, size, block, table);
+    }
+
+    /**
+     * Runs the butterfly stages on bit reversed elements starting at an offset.
+     *
+     * @param re The bit reversed real parts to transform in place
+     * @param im The bit reversed imaginary parts to transform in place
+     * @param offset The first element, where the first block starts
+     * @param size The number of elements, must be a power of 2
+     * @param block The size of the largest stage to run, a power of 2 no larger than size
+     * @param table The twiddle table for the size
+     */
+    private static void stages(double[] re, double[] im, int offset, int size, int block, TwiddleTable table) {
+        int end = offset + size;
+        int half = 1;
+        if (block >= 4) {
+            radix4First(re, im, offset, end);
+            half = 4;
+        }
+
+        for (; half < block && half < LANES; half <<= 1) {
+            for (int even = offset; even < end; even += 2 * half) {
+                PrimitiveFFT.combine(re, im, even, 2 * half, 0, half, table);
+            }
+        }
+
+        double[][] stages = table.byStage();
+        double[] cos = stages[0], sin = stages[1];
+
+        for (; half < block; half <<= 1) {
+            for (int even = offset; even < end; even += 2 * half) {
+                for (int k = 0; k < half; k += LANES) {
+                    int top = even + k, bottom = top + half;
+
+                    DoubleVector wr = DoubleVector.fromArray(SPECIES, cos, half + k);
+                    DoubleVector wi = DoubleVector.fromArray(SPECIES, sin, half + k);
+                    DoubleVector topR = DoubleVector.fromArray(SPECIES, re, top);
+                    DoubleVector topI = DoubleVector.fromArray(SPECIES, im, top);
+                    DoubleVector botR = DoubleVector.fromArray(SPECIES, re, bottom);
+                    DoubleVector botI = DoubleVector.fromArray(SPECIES, im, bottom);
+
+                    DoubleVector oddR = wr.mul(botR).sub(wi.mul(botI));
+                    DoubleVector oddI = wr.mul(botI).add(wi.mul(botR));
+
+                    topR.sub(oddR).intoArray(re, bottom);
+                    topI.sub(oddI).intoArray(im, bottom);
+                    topR.add(oddR).intoArray(re, top);
+                    topI.add(oddI).intoArray(im, top);
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the first two stages as one radix-4 pass.
+     *
+     * <p>The only twiddle factors in these stages are 1 and -j, so the four point
+     * transforms are done with additions alone.</p>
+     */
+    private static void radix4First(double[] re, double[] im, int from, int to) {
+        for (int i = from; i < to; i += 4) {
+            double aR = re[i] + re[i + 1], aI = im[i] + im[i + 1];
+            double bR = re[i] - re[i + 1], bI = im[i] - im[i + 1];
+            double cR = re[i + 2] + re[i + 3], cI = im[i + 2] + im[i + 3];
+            double dR = re[i + 2] - re[i + 3], dI = im[i + 2] - im[i + 3];
+
+            re[i] = aR + cR;
+            im[i] = aI + cI;
+            re[i + 2] = aR - cR;
+            im[i + 2] = aI - cI;
+            // Multiplying d by -j swaps its parts and negates the new imaginary part
+            re[i + 1] = bR + dI;
+            im[i + 1] = bI - dR;
+            re[i + 3] = bR - dI;
+            im[i + 3] = bI + dR;
+        }
+    }
+
+    /**
+     * Computes the magnitude of each element.
+     *
+     * @param re The real parts
+     * @param im The imaginary parts
+     * @param out Receives the magnitudes
+     * @param count The number of elements
+     */
+    @Override
+    public void magnitudes(double[] re, double[] im, double[] out, int count) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(count); i < bound; i += LANES) {
+            DoubleVector r = DoubleVector.fromArray(SPECIES, re, i);
+            DoubleVector m = DoubleVector.fromArray(SPECIES, im, i);
+            r.mul(r).add(m.mul(m)).sqrt().intoArray(out, i);
+        }
+        for (; i < count; i++) {
+            out[i] = Math.sqrt(re[i] * re[i] + im[i] * im[i]);
+        }
+    }
+
+    /**
+     * Multiplies each element by every factor-th value.
+     *
+     * <p>The strided values are loaded a vector at a time with a gather.</p>
+     *
+     * @param product The elements to multiply in place
+     * @param values The values, read at indices 0, factor, 2*factor and so on
+     * @param factor The distance between the values that are read
+     * @param count The number of elements to multiply
+     */
+    @Override
+    public void multiplyDecimated(double[] product, double[] values, int factor, int count) {
+        int[] indexMap = new int[LANES];
+        for (int lane = 0; lane < LANES; lane++) {
+            indexMap[lane] = lane * factor;
+        }
+
+        int i = 0;
+        for (int bound = SPECIES.loopBound(count); i < bound; i += LANES) {
+            DoubleVector decimated = DoubleVector.fromArray(SPECIES, values, i * factor, indexMap, 0);
+            DoubleVector.fromArray(SPECIES, product, i).mul(decimated).intoArray(product, i);
+        }
+        for (; i < count; i++) {
+            product[i] *= values[i * factor];
+        }
+    }
+
+    /**
+     * Computes the dot product of two ranges of values.
+     *
+     * <p>Two vector accumulators are used so that consecutive fused multiply-adds don't
+     * wait on each other.</p>
+     *
+     * @param a The first values
+     * @param aOffset The first element of a to use
+     * @param b The second values
+     * @param bOffset The first element of b to use
+     * @param length The number of elements to multiply
+     * @return The sum of the products
+     */
+    @Override
+    public double dot(double[] a, int aOffset, double[] b, int bOffset, int length) {
+        DoubleVector even = DoubleVector.zero(SPECIES);
+        DoubleVector odd = DoubleVector.zero(SPECIES);
+
+        int i = 0;
+        for (int bound = length - 2 * LANES; i <= bound; i += 2 * LANES) {
+            even = DoubleVector.fromArray(SPECIES, a, aOffset + i)
+                    .fma(DoubleVector.fromArray(SPECIES, b, bOffset + i), even);
+            odd = DoubleVector.fromArray(SPECIES, a, aOffset + i + LANES)
+                    .fma(DoubleVector.fromArray(SPECIES, b, bOffset + i + LANES), odd);
+        }
+
+        double sum = even.add(odd).reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+
+        return sum;
+    }
+
+    /**
+     * Finds the element with the largest squared magnitude in a range.
+     *
+     * <p>The largest power of each chunk is found a vector at a time, and only the
+     * chunk holding the overall largest power is searched again for its index.</p>
+     *
+     * @param re The real parts
+     * @param im The imaginary parts
+     * @param from The first element to search
+     * @param to One past the last element to search
+     * @return The index of the first element with the largest power, or -1 if the range is empty
+     */
+    @Override
+    public int maxPowerBin(double[] re, double[] im, int from, int to) {
+        final int chunk = 64 * LANES;
+        double maxPower = -1.0;
+        int maxChunk = -1;
+
+        for (int start = from; start < to; start += chunk) {
+            int end = Math.min(start + chunk, to);
+            int i = start;
+            double chunkMax = -1.0;
+
+            if (end - start == chunk) {
+                DoubleVector best = DoubleVector.broadcast(SPECIES, -1.0);
+                for (; i < end; i += LANES) {
+                    DoubleVector r = DoubleVector.fromArray(SPECIES, re, i);
+                    DoubleVector m = DoubleVector.fromArray(SPECIES, im, i);
+                    best = best.max(r.mul(r).add(m.mul(m)));
+                }
+                chunkMax = best.reduceLanes(VectorOperators.MAX);
+            }
+            for (; i < end; i++) {
+                chunkMax = Math.max(chunkMax, re[i] * re[i] + im[i] * im[i]);
+            }
+
+            if (maxPower < chunkMax) {
+                maxPower = chunkMax;
+                maxChunk = start;
+            }
+        }
+
+        if (maxChunk < 0) {
+            return -1;
+        }
+
+        int end = Math.min(maxChunk + chunk, to);
+        for (int i = maxChunk; i < end; i++) {
+            if (re[i] * re[i] + im[i] * im[i] == maxPower) {
+                return i;
+            }
+        }
+
+        return maxChunk;
+    }
+}
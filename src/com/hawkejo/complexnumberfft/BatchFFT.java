@@ -0,0 +1,393 @@
+package com.hawkejo.complexnumberfft;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Computes the FFTs of many frames of the same size in one call.
+ *
+ * <p>The frames are laid out one after another in a single pair of arrays, so frame f
+ * starts at element f * frameSize. The setup for the frame size is done once by an
+ * {@link FFTPlan} when the batch is created. Each call splits the frames into contiguous
+ * blocks that are run as {@link RecursiveAction} tasks on a fork/join pool, so the frames
+ * are streamed through memory in order. Frames of a power of 2 size are transformed where
+ * they are. The other algorithms only work on elements starting at index 0, so for other
+ * sizes every frame is copied into a per thread scratch buffer, transformed there while
+ * it is hot in the cache and copied back. A batch is immutable and can be used from any
+ * number of threads at the same time.</p>
+ */
+
+public final class BatchFFT {
+    private static final String CLASS_TAG = "BatchFFT";
+
+    // Blocks smaller than this many elements are never split, since the task overhead
+    // would outweigh the work.
+    private static final int MIN_BLOCK = 1 << 13;
+    // The number of tasks per worker, so the pool can balance uneven workers
+    private static final int TASKS_PER_WORKER = 4;
+
+    private final int frameSize;
+    private final FFTPlan plan;
+    private final ThreadLocal<double[][]> work;
+
+    /**
+     * Creates a batch for forward transforms of frames of the specified size.
+     *
+     * @param newFrameSize The number of elements in each frame
+     * @throws RuntimeException Thrown when the frame size is less than 1
+     */
+    public BatchFFT(int newFrameSize) throws RuntimeException {
+        this(new FFTPlan(newFrameSize));
+    }
+
+    /**
+     * Creates a batch that runs the specified plan on every frame.
+     *
+     * <p>The frame size and the direction of the transforms are taken from the plan.</p>
+     *
+     * @param newPlan The plan to execute on each frame
+     * @throws RuntimeException Thrown when the plan is null
+     */
+    public BatchFFT(FFTPlan newPlan) throws RuntimeException {
+        if (newPlan == null) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - The plan is null\n");
+        }
+
+        plan = newPlan;
+        frameSize = newPlan.getSize();
+        final int length = Math.max(frameSize, 2);
+        work = new ThreadLocal<double[][]>() {
+            @Override
+            protected double[][] initialValue() {
+                return new double[][] {new double[length], new double[length]};
+            }
+        };
+    }
+
+    /**
+     * Returns the number of elements in each frame.
+     *
+     * @return The frame size
+     */
+    public int getFrameSize() {
+        return frameSize;
+    }
+
+    /**
+     * Transforms every frame in place using the common fork/join pool
+     *
+     * @param re The real parts of the frames, replaced by the real parts of the output
+     * @param im The imaginary parts of the frames, replaced by the imaginary parts of the output
+     * @param frames The number of frames to transform
+     * @throws RuntimeException Thrown when the arrays can't hold all of the frames
+     */
+    public void transform(double[] re, double[] im, int frames) throws RuntimeException {
+        transform(re, im, frames, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Transforms every frame in place using the specified fork/join pool
+     *
+     * @param re The real parts of the frames, replaced by the real parts of the output
+     * @param im The imaginary parts of the frames, replaced by the imaginary parts of the output
+     * @param frames The number of frames to transform
+     * @param pool The pool to run the tasks in
+     * @throws RuntimeException Thrown when the arrays can't hold all of the frames
+     */
+    public void transform(double[] re, double[] im, int frames, ForkJoinPool pool)
+            throws RuntimeException {
+        checkFrames(frames, re.length, "transform");
+        checkFrames(frames, im.length, "transform");
+
+        pool.invoke(new TransformTask(re, im, 0, frames, framesPerBlock(frames, pool)));
+    }
+
+    /**
+     * Finds the strongest bin of every frame of real samples using the common pool
+     *
+     * @param samples The real samples of the frames, left unchanged
+     * @param frames The number of frames to search
+     * @param bins Receives the strongest bin of each frame, needs one element per frame
+     * @throws RuntimeException Thrown when the arrays are too small for the frames
+     */
+    public void maxBins(double[] samples, int frames, int[] bins) throws RuntimeException {
+        maxBins(samples, frames, bins, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Finds the strongest bin of every frame of real samples using the specified pool
+     *
+     * <p>Each frame is transformed with the real input FFT when its size is a power of 2,
+     * and otherwise with the plan using an imaginary part of 0. The same bins as
+     * {@link FFTFreqGen} searches are searched, the ones below half of the sample rate,
+     * and the spectra are only kept in the scratch buffers, so the samples are never
+     * modified.</p>
+     *
+     * @param samples The real samples of the frames, left unchanged
+     * @param frames The number of frames to search
+     * @param bins Receives the strongest bin of each frame, needs one element per frame
+     * @param pool The pool to run the tasks in
+     * @throws RuntimeException Thrown when the arrays are too small for the frames
+     */
+    public void maxBins(double[] samples, int frames, int[] bins, ForkJoinPool pool)
+            throws RuntimeException {
+        checkFrames(frames, samples.length, "maxBins");
+        if (bins.length < frames) {
+            throw new RuntimeException(CLASS_TAG + ".maxBins: ERROR - The bins array is smaller than the frames\n");
+        }
+        if (plan.isInverse()) {
+            throw new RuntimeException(CLASS_TAG + ".maxBins: ERROR - The plan must be a forward plan\n");
+        }
+
+        pool.invoke(new PeakTask(samples, bins, null, null, PeakInterpolation.NONE, WindowFunction.NONE,
+                0, frames, framesPerBlock(frames, pool)));
+    }
+
+    /**
+     * Finds the refined peak of every frame of real samples using the common pool
+     *
+     * @param samples The real samples of the frames, left unchanged
+     * @param frames The number of frames to search
+     * @param window The window to weight every frame with
+     * @param interpolation The estimator that refines the strongest bin of each frame
+     * @param peaks Receives the peak of each frame in bins, needs one element per frame
+     * @throws RuntimeException Thrown when the arrays are too small for the frames
+     */
+    public void peaks(double[] samples, int frames, WindowFunction window, PeakInterpolation interpolation,
+                      double[] peaks) throws RuntimeException {
+        peaks(samples, frames, window, interpolation, peaks, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Finds the refined peak of every frame of real samples using the specified pool
+     *
+     * <p>Works like {@link #maxBins(double[], int, int[], ForkJoinPool)}, but each frame
+     * is weighted with the window in the pass that loads it into the scratch buffers, and
+     * its strongest bin is refined with the interpolation while the spectrum is still
+     * there, the same way as {@link FFTFreqGen} refines it.</p>
+     *
+     * @param samples The real samples of the frames, left unchanged
+     * @param frames The number of frames to search
+     * @param window The window to weight every frame with
+     * @param interpolation The estimator that refines the strongest bin of each frame
+     * @param peaks Receives the peak of each frame in bins, needs one element per frame
+     * @param pool The pool to run the tasks in
+     * @throws RuntimeException Thrown when the arrays are too small for the frames, or the
+     * window or interpolation is null
+     */
+    public void peaks(double[] samples, int frames, WindowFunction window, PeakInterpolation interpolation,
+                      double[] peaks, ForkJoinPool pool) throws RuntimeException {
+        checkFrames(frames, samples.length, "peaks");
+        if (peaks.length < frames) {
+            throw new RuntimeException(CLASS_TAG + ".peaks: ERROR - The peaks array is smaller than the frames\n");
+        }
+        if (window == null || interpolation == null) {
+            throw new RuntimeException(CLASS_TAG + ".peaks: ERROR - The window and interpolation can't be null\n");
+        }
+        if (plan.isInverse()) {
+            throw new RuntimeException(CLASS_TAG + ".peaks: ERROR - The plan must be a forward plan\n");
+        }
+
+        double[] weights = window == WindowFunction.NONE ? null : window.table(frameSize);
+        pool.invoke(new PeakTask(samples, null, peaks, weights, interpolation, window,
+                0, frames, framesPerBlock(frames, pool)));
+    }
+
+    /**
+     * Makes sure an array can hold the specified number of frames.
+     *
+     * @param frames The number of frames
+     * @param length The length of the array
+     * @param method The name of the calling method for the error message
+     * @throws RuntimeException Thrown when the frames don't fit into the array
+     */
+    private void checkFrames(int frames, int length, String method) throws RuntimeException {
+        if (frames < 0 || (long) frames * frameSize > length) {
+            throw new RuntimeException(CLASS_TAG + "." + method + ": ERROR - The array can't hold "
+                    + frames + " frames\n");
+        }
+    }
+
+    /**
+     * Picks the number of frames each task works on without splitting
+     *
+     * @param frames The number of frames in the batch
+     * @param pool The pool running the tasks
+     * @return The number of frames per block, at least 1
+     */
+    private int framesPerBlock(int frames, ForkJoinPool pool) {
+        int tasks = Math.max(pool.getParallelism(), 1) * TASKS_PER_WORKER;
+        int perTask = Math.max(frames / tasks, 1);
+        int minimum = Math.max(MIN_BLOCK / frameSize, 1);
+
+        return Math.max(perTask, minimum);
+    }
+
+    /**
+     * Transforms one frame in place, or through the scratch buffer of the current thread
+     *
+     * @param re The real parts of the frames
+     * @param im The imaginary parts of the frames
+     * @param offset The first element of the frame
+     */
+    private void transformFrame(double[] re, double[] im, int offset) {
+        if (plan.isInPlace()) {
+            plan.execute(re, im, offset);
+            return;
+        }
+
+        double[][] scratch = work.get();
+        System.arraycopy(re, offset, scratch[0], 0, frameSize);
+        System.arraycopy(im, offset, scratch[1], 0, frameSize);
+        plan.execute(scratch[0], scratch[1]);
+        System.arraycopy(scratch[0], 0, re, offset, frameSize);
+        System.arraycopy(scratch[1], 0, im, offset, frameSize);
+    }
+
+    /**
+     * Computes the spectrum of one frame of real samples into the scratch buffers
+     *
+     * @param samples The real samples of the frames
+     * @param offset The first sample of the frame
+     * @param weights The weight of each sample of the frame, or null for none
+     * @return The scratch buffers of the current thread, holding the spectrum
+     */
+    private double[][] spectrum(double[] samples, int offset, double[] weights) {
+        double[][] scratch = work.get();
+
+        if (frameSize >= 2 && (frameSize & (frameSize - 1)) == 0) {
+            PrimitiveFFT.realTransform(samples, offset, frameSize, weights, scratch[0], scratch[1]);
+        }
+        else {
+            if (weights == null) {
+                System.arraycopy(samples, offset, scratch[0], 0, frameSize);
+            }
+            else {
+                for (int i = 0; i < frameSize; i++) {
+                    scratch[0][i] = samples[offset + i] * weights[i];
+                }
+            }
+            Arrays.fill(scratch[1], 0, frameSize, 0.0);
+            plan.execute(scratch[0], scratch[1]);
+        }
+
+        return scratch;
+    }
+
+    /**
+     * Finds the strongest bin of one frame of real samples
+     *
+     * @param samples The real samples of the frames
+     * @param offset The first sample of the frame
+     * @return The bin with the largest magnitude
+     */
+    private int maxBin(double[] samples, int offset) {
+        double[][] scratch = spectrum(samples, offset, null);
+
+        return SimdFFT.maxPowerBin(scratch[0], scratch[1], 0, FFTFreqGen.searchedBins(frameSize));
+    }
+
+    /**
+     * Finds the refined peak of one frame of real samples
+     *
+     * <p>The strongest bin is only refined when both of its neighbours were computed.</p>
+     *
+     * @param samples The real samples of the frames
+     * @param offset The first sample of the frame
+     * @param weights The weight of each sample of the frame, or null for none
+     * @param interpolation The estimator that refines the strongest bin
+     * @param window The window the weights belong to
+     * @return The peak in bins
+     */
+    private double peak(double[] samples, int offset, double[] weights, PeakInterpolation interpolation,
+                        WindowFunction window) {
+        double[][] scratch = spectrum(samples, offset, weights);
+        int bins = FFTFreqGen.searchedBins(frameSize);
+        int length = Math.min(bins + 1, frameSize);
+        int bin = SimdFFT.maxPowerBin(scratch[0], scratch[1], 0, bins);
+        if (bin < 1 || bin + 1 >= length) {
+            return bin;
+        }
+
+        return bin + interpolation.offset(scratch[0], scratch[1], bin, frameSize, window);
+    }
+
+    /**
+     * Transforms a contiguous range of frames.
+     */
+    private class TransformTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] re, im;
+        private final int from, to, block;
+
+        TransformTask(double[] re, double[] im, int from, int to, int block) {
+            this.re = re;
+            this.im = im;
+            this.from = from;
+            this.to = to;
+            this.block = block;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > block) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new TransformTask(re, im, from, middle, block),
+                        new TransformTask(re, im, middle, to, block));
+                return;
+            }
+
+            for (int f = from; f < to; f++) {
+                transformFrame(re, im, f * frameSize);
+            }
+        }
+    }
+
+    /**
+     * Finds the strongest bins, or the refined peaks, of a contiguous range of frames.
+     */
+    private class PeakTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] samples;
+        private final int[] bins;
+        private final double[] peaks, weights;
+        private final PeakInterpolation interpolation;
+        private final WindowFunction window;
+        private final int from, to, block;
+
+        PeakTask(double[] samples, int[] bins, double[] peaks, double[] weights,
+                 PeakInterpolation interpolation, WindowFunction window, int from, int to, int block) {
+            this.samples = samples;
+            this.bins = bins;
+            this.peaks = peaks;
+            this.weights = weights;
+            this.interpolation = interpolation;
+            this.window = window;
+            this.from = from;
+            this.to = to;
+            this.block = block;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > block) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new PeakTask(samples, bins, peaks, weights, interpolation, window, from, middle, block),
+                        new PeakTask(samples, bins, peaks, weights, interpolation, window, middle, to, block));
+                return;
+            }
+
+            for (int f = from; f < to; f++) {
+                if (bins != null) {
+                    bins[f] = maxBin(samples, f * frameSize);
+                }
+                else {
+                    peaks[f] = peak(samples, f * frameSize, weights, interpolation, window);
+                }
+            }
+        }
+    }
+}
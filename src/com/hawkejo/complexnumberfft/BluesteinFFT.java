@@ -0,0 +1,125 @@
+package com.hawkejo.complexnumberfft;
+
+/**
+ * Computes FFTs of any size using Bluestein's algorithm.
+ *
+ * <p>A class that computes the Fourier series of an input of any length by rewriting
+ * the DFT as a convolution with a chirp, e^(-j*pi*k^2/size), and computing that
+ * convolution with power of 2 FFTs from {@link PrimitiveFFT}. This is also known as the
+ * chirp-z transform and runs in O(N log N) for every N. The chirp and the spectrum of
+ * the convolution filter only depend on the size, so they are computed once when the
+ * object is created. Objects are never modified afterwards and can be shared between
+ * threads as long as each thread uses its own work arrays.</p>
+ */
+
+class BluesteinFFT {
+    private static final String CLASS_TAG = "BluesteinFFT";
+
+    private final int size, convSize;
+    private final double[] chirpRe, chirpIm;
+    private final double[] filterRe, filterIm;
+    private final TwiddleTable table;
+
+    /**
+     * Precomputes the chirp and filter spectrum for the specified size.
+     *
+     * @param newSize The number of elements that will be transformed
+     * @throws RuntimeException Thrown when the size is less than 1 or too large
+     */
+    BluesteinFFT(int newSize) throws RuntimeException {
+        if (newSize < 1 || newSize > (1 << 29)) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - Unsupported size " + newSize + "\n");
+        }
+
+        size = newSize;
+
+        // The circular convolution needs room for 2*size - 1 elements without wrapping
+        int newConvSize = 1;
+        while (newConvSize < 2 * size - 1) {
+            newConvSize <<= 1;
+        }
+        convSize = newConvSize;
+        table = TwiddleCache.get(convSize);
+
+        // w[k] = e^(-j*pi*k^2/size). k^2 is reduced modulo 2*size first so the angle stays
+        // small and accurate for large k.
+        chirpRe = new double[size];
+        chirpIm = new double[size];
+        for (int k = 0; k < size; k++) {
+            long kSquared = ((long) k * k) % (2L * size);
+            double kth = -Math.PI * kSquared / size;
+            chirpRe[k] = Math.cos(kth);
+            chirpIm[k] = Math.sin(kth);
+        }
+
+        // The filter is the conjugate chirp, wrapped around so the convolution is circular
+        filterRe = new double[convSize];
+        filterIm = new double[convSize];
+        filterRe[0] = chirpRe[0];
+        filterIm[0] = -chirpIm[0];
+        for (int k = 1; k < size; k++) {
+            filterRe[k] = filterRe[convSize - k] = chirpRe[k];
+            filterIm[k] = filterIm[convSize - k] = -chirpIm[k];
+        }
+        PrimitiveFFT.transform(filterRe, filterIm, convSize, table);
+    }
+
+    /**
+     * Returns the size this object transforms.
+     *
+     * @return The transform size
+     */
+    int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the number of elements each work array needs.
+     *
+     * @return The length of the power of 2 convolution
+     */
+    int getWorkSize() {
+        return convSize;
+    }
+
+    /**
+     * Compute the FFT of the first size elements of the arrays in place.
+     *
+     * @param re The real parts of the input, replaced by the real parts of the output
+     * @param im The imaginary parts of the input, replaced by the imaginary parts of the output
+     * @param workRe Scratch space of at least {@link #getWorkSize()} elements
+     * @param workIm Scratch space of at least {@link #getWorkSize()} elements
+     */
+    void transform(double[] re, double[] im, double[] workRe, double[] workIm) {
+        // a[k] = x[k] * w[k], padded with zeros to the convolution size
+        for (int k = 0; k < size; k++) {
+            workRe[k] = re[k] * chirpRe[k] - im[k] * chirpIm[k];
+            workIm[k] = re[k] * chirpIm[k] + im[k] * chirpRe[k];
+        }
+        for (int k = size; k < convSize; k++) {
+            workRe[k] = 0.0;
+            workIm[k] = 0.0;
+        }
+
+        PrimitiveFFT.transform(workRe, workIm, convSize, table);
+
+        // Multiply by the filter spectrum and conjugate, so the forward transform that
+        // follows computes the inverse transform of the product.
+        for (int k = 0; k < convSize; k++) {
+            double tempRe = workRe[k] * filterRe[k] - workIm[k] * filterIm[k];
+            double tempIm = workRe[k] * filterIm[k] + workIm[k] * filterRe[k];
+            workRe[k] = tempRe;
+            workIm[k] = -tempIm;
+        }
+
+        PrimitiveFFT.transform(workRe, workIm, convSize, table);
+
+        // X[k] = w[k] * conj(work[k]) / convSize
+        double scale = 1.0 / convSize;
+        for (int k = 0; k < size; k++) {
+            double convRe = workRe[k] * scale, convIm = -workIm[k] * scale;
+            re[k] = convRe * chirpRe[k] - convIm * chirpIm[k];
+            im[k] = convRe * chirpIm[k] + convIm * chirpRe[k];
+        }
+    }
+}
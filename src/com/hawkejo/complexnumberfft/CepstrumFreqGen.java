@@ -0,0 +1,264 @@
+package com.hawkejo.complexnumberfft;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+
+/**
+ * Computes the fundamental frequency of voice and instrument audio from its cepstrum
+ *
+ * <p>A {@link FrequencyGenerator} for sources with many harmonics. The harmonics of a
+ * fundamental are evenly spaced in the spectrum, so the logarithm of the magnitude
+ * spectrum ripples with a period of the fundamental. A second transform of the log
+ * spectrum turns that ripple into a peak at the quefrency sampleRate / fundamental,
+ * which is there even when the fundamental itself is missing or weak. The input is
+ * weighted by a {@link WindowFunction#HANN} window so that leakage doesn't fill the
+ * gaps between the harmonics. Multiples of the period peak as well, so a fraction of
+ * the highest peak that is nearly as high is preferred, and the peak is refined between
+ * samples with a parabola. Powers of 2 run both transforms on
+ * {@link PrimitiveFFT#realFFT}, since the log spectrum is real and even, and other
+ * sizes use an {@link FFTPlan}. The window, the plan and all of the scratch arrays
+ * are kept until the size changes. Only the real parts of the input are used.</p>
+ */
+
+public class CepstrumFreqGen implements Runnable, FreqObservable, FrequencyGenerator {
+    private double[] samples, realScratch;
+    private double[] window, windowed, fftReal, fftImag, logSpectrum;
+    private FFTPlan plan;
+    private double minFrequency, maxFrequency;
+    private double frequency;
+    private int sampleRate;
+    private final String CLASS_TAG = "CepstrumFreqGen";
+    private static final double SUBMULTIPLE_RATIO = 0.5;
+    private List<FreqObserver> observers;
+
+    /**
+     * Defaults the sampleRate variable to 8000 Hz
+     */
+    public CepstrumFreqGen() {
+        this(8000);
+    }
+
+    /**
+     * Allows for specifying the sample rate.
+     *
+     * <p>Fundamentals from 40 Hz to 1000 Hz are searched.</p>
+     *
+     * @param newRate The specified sample rate.
+     */
+    public CepstrumFreqGen(int newRate) {
+        sampleRate = newRate;
+        minFrequency = 40.0;
+        maxFrequency = 1000.0;
+        frequency = 0.0;
+        observers = new LinkedList<>();
+    }
+
+    /**
+     * Allows for limiting the fundamentals that are searched.
+     *
+     * <p>The lowest quefrencies hold the overall shape of the spectrum rather than its
+     * harmonics, so the highest fundamental should be no higher than needed. The period of
+     * the lowest fundamental has to fit into half of the input.</p>
+     *
+     * @param minHz The lowest fundamental to look for
+     * @param maxHz The highest fundamental to look for
+     * @throws RuntimeException Thrown when the range is empty or not positive and finite
+     */
+    public void setFrequencyRange(double minHz, double maxHz) throws RuntimeException {
+        if (!(minHz > 0.0) || !(maxHz >= minHz) || Double.isInfinite(maxHz)) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - The range must be positive, finite and not empty\n");
+        }
+
+        minFrequency = minHz;
+        maxFrequency = maxHz;
+    }
+
+    @Override
+    public void setArray(ComplexNumber array[]) {
+        setList(Arrays.asList(array));
+    }
+
+    @Override
+    public void setList(List<ComplexNumber> audList) {
+        if (realScratch == null || realScratch.length != audList.size()) {
+            realScratch = new double[audList.size()];
+        }
+
+        int i = 0;
+        for (ComplexNumber num : audList) {
+            realScratch[i++] = num.getReal();
+        }
+
+        samples = realScratch;
+    }
+
+    /**
+     * Allows for specifying real audio samples directly.
+     *
+     * <p>The array is used as it is, without copying it.</p>
+     *
+     * @param newSamples The new audio samples to compute the frequency from
+     */
+    public void setSamples(double[] newSamples) {
+        samples = newSamples;
+    }
+
+    /**
+     * Allows for changing the internal sampleRate variable
+     *
+     * @param newRate The new sample rate to use in computations.
+     */
+    public void setSampleRate(int newRate) {
+        sampleRate = newRate;
+    }
+
+    @Override
+    public double computeFrequency() throws RuntimeException {
+        if (samples == null) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - No input has been set");
+        }
+
+        int size = samples.length;
+        int minQuefrency = Math.max(2, (int) Math.floor(sampleRate / maxFrequency));
+        int maxQuefrency = Math.min(size/2 - 1, (int) Math.ceil(sampleRate / minFrequency));
+        if (maxQuefrency <= minQuefrency) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - The input is too short for the frequency range");
+        }
+
+        prepare(size);
+        for (int i = 0; i < size; i++) {
+            windowed[i] = samples[i] * window[i];
+        }
+        transform(windowed, size);
+
+        // Bins far below the strongest one only add noise to the log, so the power is
+        // floored at 60 dB below it, which also keeps empty bins away from log(0)
+        int half = size/2;
+        double strongest = 0.0;
+        for (int k = 0; k <= half; k++) {
+            double power = fftReal[k] * fftReal[k] + fftImag[k] * fftImag[k];
+            logSpectrum[k] = power;
+            strongest = Math.max(strongest, power);
+        }
+        double floor = Math.max(strongest * 1e-6, Double.MIN_NORMAL);
+        for (int k = 0; k <= half; k++) {
+            logSpectrum[k] = Math.log(Math.max(logSpectrum[k], floor));
+        }
+        for (int k = half + 1; k < size; k++) {
+            logSpectrum[k] = logSpectrum[size - k];
+        }
+
+        // The log spectrum is real and even, so its forward transform is the cepstrum
+        // scaled by the size, in the real parts
+        transform(logSpectrum, size);
+
+        int peak = minQuefrency;
+        for (int q = minQuefrency + 1; q <= maxQuefrency; q++) {
+            if (fftReal[q] > fftReal[peak]) {
+                peak = q;
+            }
+        }
+
+        // Every multiple of the period also peaks, and in a large window with quiet gaps
+        // between the harmonics a multiple can come out on top, so the shortest fraction
+        // of the peak that still reaches most of its height is taken instead
+        for (int m = peak / minQuefrency; m >= 2; m--) {
+            int q = (int) Math.round((double) peak / m);
+            int best = q;
+            for (int near = Math.max(minQuefrency, q - 1); near <= q + 1; near++) {
+                if (fftReal[near] > fftReal[best]) {
+                    best = near;
+                }
+            }
+            if (fftReal[best] >= SUBMULTIPLE_RATIO * fftReal[peak]) {
+                peak = best;
+                break;
+            }
+        }
+
+        frequency = sampleRate / (peak + refine(peak));
+
+        return frequency;
+    }
+
+    /**
+     * Fits a parabola through the cepstrum around the peak
+     *
+     * @param peak The quefrency of the peak, which has a quefrency on either side
+     * @return The offset of the top of the parabola from the peak, in samples
+     */
+    private double refine(int peak) {
+        double before = fftReal[peak - 1], at = fftReal[peak], after = fftReal[peak + 1];
+        double curve = before - 2 * at + after;
+        if (!(curve < 0.0)) {
+            return 0.0;
+        }
+
+        return Math.max(-0.5, Math.min(0.5, 0.5 * (before - after) / curve));
+    }
+
+    /**
+     * Makes sure the window, plan and scratch arrays fit the size
+     *
+     * @param size The number of samples to transform
+     */
+    private void prepare(int size) {
+        if (window != null && window.length == size) {
+            return;
+        }
+
+        boolean powerOfTwo = (size & (size - 1)) == 0;
+        int length = powerOfTwo ? size/2 + 1 : size;
+
+        window = WindowFunction.HANN.table(size);
+        windowed = new double[size];
+        logSpectrum = new double[size];
+        fftReal = new double[length];
+        fftImag = new double[length];
+        plan = powerOfTwo ? null : new FFTPlan(size);
+    }
+
+    /**
+     * Computes bins 0 through size/2 of real values into the internal FFT arrays
+     *
+     * @param values The real values to transform
+     * @param size The number of values
+     */
+    private void transform(double[] values, int size) {
+        if (plan == null) {
+            PrimitiveFFT.realFFT(values, size, fftReal, fftImag);
+        }
+        else {
+            System.arraycopy(values, 0, fftReal, 0, size);
+            Arrays.fill(fftImag, 0, size, 0.0);
+            plan.execute(fftReal, fftImag);
+        }
+    }
+
+    @Override
+    public void run() {
+        this.computeFrequency();
+    }
+
+    @Override
+    public void addObserver(FreqObserver newObs) {
+        if (newObs != null)
+            observers.add(newObs);
+    }
+
+    @Override
+    public void updateObservers() {
+        ListIterator<FreqObserver> it = observers.listIterator();
+
+        while(it.hasNext()) {
+            it.next().update(frequency);
+        }
+    }
+
+    @Override
+    public double getFrequency() {
+        return frequency;
+    }
+}
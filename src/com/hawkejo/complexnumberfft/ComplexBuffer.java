@@ -0,0 +1,194 @@
+package com.hawkejo.complexnumberfft;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.util.List;
+
+/**
+ * A buffer of complex numbers stored outside of the Java heap
+ *
+ * <p>The real and imaginary parts are kept in two separate regions of a single direct
+ * buffer, the same split layout used by {@link PrimitiveFFT}, so millions of values
+ * take up no heap space and are never scanned or moved by the garbage collector. A
+ * buffer can be closed with {@link #close()}, which makes it usable in a try-with-resources
+ * block, and any use after closing throws an exception. A buffer is not safe to use from
+ * several threads while it is being modified.</p>
+ *
+ * <p>Closing a buffer does not free its native memory. The memory belongs to a direct
+ * {@link ByteBuffer}, which Java 8 to 17 can only free once the garbage collector finds
+ * it unreachable, so the lifetime of the memory is bound to the garbage collector like
+ * any other direct buffer. Closing only drops the buffer's own references to it, and a
+ * region returned by {@link #real()} or {@link #imag()} keeps the memory alive for as
+ * long as the caller holds on to it. Allocating many large buffers in a row can run out
+ * of direct memory before a collection frees the old ones, in which case the JVM runs a
+ * full collection and tries again.</p>
+ */
+
+public final class ComplexBuffer implements AutoCloseable {
+    private static final String CLASS_TAG = "ComplexBuffer";
+
+    // The largest size whose two regions fit into a single direct buffer
+    private static final int MAX_SIZE = Integer.MAX_VALUE / (2 * Double.BYTES);
+
+    private final int size;
+    private DoubleBuffer real, imag;
+
+    /**
+     * Allocates a buffer of the specified size with every element set to 0.
+     *
+     * @param newSize The number of complex numbers the buffer holds
+     * @throws RuntimeException Thrown when the size is negative or too large
+     */
+    public ComplexBuffer(int newSize) throws RuntimeException {
+        if (newSize < 0 || newSize > MAX_SIZE) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - The size must be between 0 and "
+                    + MAX_SIZE + "\n");
+        }
+
+        size = newSize;
+        ByteBuffer bytes = ByteBuffer.allocateDirect(2 * size * Double.BYTES)
+                .order(ByteOrder.nativeOrder());
+
+        bytes.limit(size * Double.BYTES);
+        real = bytes.slice().order(ByteOrder.nativeOrder()).asDoubleBuffer();
+        bytes.limit(2 * size * Double.BYTES).position(size * Double.BYTES);
+        imag = bytes.slice().order(ByteOrder.nativeOrder()).asDoubleBuffer();
+    }
+
+    /**
+     * Returns the number of complex numbers in the buffer.
+     *
+     * @return The size of the buffer
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the region holding the real parts.
+     *
+     * <p>The region holds exactly size values. Absolute gets and puts should be used, so
+     * the position of the region doesn't matter.</p>
+     *
+     * @return The real parts
+     * @throws RuntimeException Thrown when the buffer is closed
+     */
+    public DoubleBuffer real() throws RuntimeException {
+        checkOpen();
+        return real;
+    }
+
+    /**
+     * Returns the region holding the imaginary parts.
+     *
+     * @return The imaginary parts
+     * @throws RuntimeException Thrown when the buffer is closed
+     */
+    public DoubleBuffer imag() throws RuntimeException {
+        checkOpen();
+        return imag;
+    }
+
+    /**
+     * Copies a List of ComplexNumbers into the start of the buffer.
+     *
+     * @param src The List to copy from
+     * @throws RuntimeException Thrown when the buffer is closed or the List is too large
+     */
+    public void copyIn(List<ComplexNumber> src) throws RuntimeException {
+        checkOpen();
+        if (src.size() > size) {
+            throw new RuntimeException(CLASS_TAG + ".copyIn: ERROR - The List is larger than the buffer\n");
+        }
+
+        int i = 0;
+        for (ComplexNumber num : src) {
+            real.put(i, num.getReal());
+            imag.put(i, num.getImaginary());
+            i++;
+        }
+    }
+
+    /**
+     * Copies the start of another buffer into the start of this buffer.
+     *
+     * <p>Both regions are copied with bulk transfers, without going through the heap.</p>
+     *
+     * @param src The buffer to copy from
+     * @param length The number of complex numbers to copy
+     * @throws RuntimeException Thrown when either buffer is closed or too small
+     */
+    public void copyIn(ComplexBuffer src, int length) throws RuntimeException {
+        checkOpen();
+        src.checkOpen();
+        if (length < 0 || length > size || length > src.size) {
+            throw new RuntimeException(CLASS_TAG + ".copyIn: ERROR - The length is larger than a buffer\n");
+        }
+
+        copy(src.real, real, length);
+        copy(src.imag, imag, length);
+    }
+
+    /**
+     * Copies the first length values of one region into another
+     *
+     * @param src The region to copy from
+     * @param dst The region to copy into
+     * @param length The number of values to copy
+     */
+    private static void copy(DoubleBuffer src, DoubleBuffer dst, int length) {
+        DoubleBuffer from = src.duplicate();
+        DoubleBuffer to = dst.duplicate();
+        from.clear().limit(length);
+        to.clear();
+        to.put(from);
+    }
+
+    /**
+     * Sets every element of the buffer to 0.
+     *
+     * @throws RuntimeException Thrown when the buffer is closed
+     */
+    public void clear() throws RuntimeException {
+        checkOpen();
+        for (int i = 0; i < size; i++) {
+            real.put(i, 0.0);
+            imag.put(i, 0.0);
+        }
+    }
+
+    /**
+     * Returns whether {@link #close()} has been called.
+     *
+     * @return Whether the buffer is closed
+     */
+    public boolean isClosed() {
+        return real == null;
+    }
+
+    /**
+     * Closes the buffer.
+     *
+     * <p>Makes every later use of the buffer throw an exception and drops its references
+     * to the native memory. The memory itself is freed by the garbage collector once
+     * nothing references it any more, not by this method. Closing a buffer more than once
+     * has no effect.</p>
+     */
+    @Override
+    public void close() {
+        real = null;
+        imag = null;
+    }
+
+    /**
+     * Makes sure the buffer hasn't been closed.
+     *
+     * @throws RuntimeException Thrown when the buffer is closed
+     */
+    private void checkOpen() throws RuntimeException {
+        if (real == null) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - The buffer is closed\n");
+        }
+    }
+}
@@ -2,10 +2,10 @@ package com.hawkejo.complexnumberfft;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Defines a complex number and allows for math operations on it
@@ -698,16 +698,29 @@ public class ComplexNumber {
     public static ComplexNumber[] fft(ComplexNumber[] arg) throws RuntimeException{
         int size = arg.length;
 
-        // Base case
-        if (size == 1) {
-            return new ComplexNumber[] {arg[0]};
-        }
-
         // Check if the array size is a power of 2
         if ((size & (size - 1)) != 0) {
             throw new RuntimeException("ComplexNumber.fft: ERROR - The array must be a power of 2\n");
         }
 
+        return fft(arg, TwiddleCache.get(size));
+    }
+
+    /**
+     * Recursive step of the array FFT using a shared twiddle table
+     *
+     * @param arg The input array of ComplexNumbers
+     * @param table The twiddle table for the size of the top level array
+     * @return The Fourier series of the input array
+     */
+    private static ComplexNumber[] fft(ComplexNumber[] arg, TwiddleTable table) {
+        int size = arg.length;
+
+        // Base case
+        if (size == 1) {
+            return new ComplexNumber[] {arg[0]};
+        }
+
         // Separate the array into separate arrays of even and odd elements
         ComplexNumber[] evens = new ComplexNumber[size/2];
         ComplexNumber[] odds = new ComplexNumber[size/2];
@@ -717,15 +730,16 @@ public class ComplexNumber {
         }
 
         // Perform an FFT on the even number variable
-        ComplexNumber[] evensFFT = fft(evens);
+        ComplexNumber[] evensFFT = fft(evens, table);
         // Perform an FFT on the odd number variable
-        ComplexNumber[] oddsFFT = fft(odds);
+        ComplexNumber[] oddsFFT = fft(odds, table);
 
-        // Combine the arrays containing the FFT data
+        // Combine the arrays containing the FFT data. The table is built for the top level
+        // size, so step through it with a stride to get the factors for this size.
         ComplexNumber[] out = new ComplexNumber[size];
+        int stride = table.size / size;
         for (int k = 0; k < size/2; k++) {
-            double kth = -2 * k * Math.PI / size;
-            ComplexNumber wk = new ComplexNumber(Math.cos(kth), Math.sin(kth));
+            ComplexNumber wk = new ComplexNumber(table.cos[k * stride], table.sin[k * stride]);
             out[k]       = add(evensFFT[k], multiply(wk, oddsFFT[k]));
             out[k + size/2] = subtract(evensFFT[k], multiply(wk, oddsFFT[k]));
         }
@@ -747,14 +761,27 @@ public class ComplexNumber {
      */
     public static List<ComplexNumber> fft(List<ComplexNumber> arg) throws RuntimeException {
         int size = arg.size();
-        if (size == 1) {
-            return arg;
-        }
 
         if ((size & (size - 1)) != 0) {
             throw new RuntimeException("ComplexNumber.fft: ERROR - The List<> size must be a power of 2\n");
         }
 
+        return fft(arg, TwiddleCache.get(size));
+    }
+
+    /**
+     * Recursive step of the List FFT using a shared twiddle table
+     *
+     * @param arg The input List of ComplexNumbers
+     * @param table The twiddle table for the size of the top level List
+     * @return The Fourier series List of the input
+     */
+    private static List<ComplexNumber> fft(List<ComplexNumber> arg, TwiddleTable table) {
+        int size = arg.size();
+        if (size == 1) {
+            return arg;
+        }
+
         // Separate the list into chunks based on either the even or odd address
         List<ComplexNumber> evens = new ArrayList<ComplexNumber>(size/2);
         List<ComplexNumber> odds = new ArrayList<ComplexNumber>(size/2);
@@ -767,18 +794,17 @@ public class ComplexNumber {
         it = null;
 
         // Compute the FFT of the separate lists
-        List<ComplexNumber> evensFFT = fft(evens);
-        List<ComplexNumber> oddsFFT = fft(odds);
+        List<ComplexNumber> evensFFT = fft(evens, table);
+        List<ComplexNumber> oddsFFT = fft(odds, table);
 
         // Combine the lists into the final list
         List<ComplexNumber> out = new ArrayList<ComplexNumber>(size);
         ListIterator<ComplexNumber> itEven = evensFFT.listIterator();
         ListIterator<ComplexNumber> itOdd = oddsFFT.listIterator();
-        int i = 0, k = 0;
+        int i = 0, k = 0, stride = table.size / size;
 
         while(itEven.hasNext() && itOdd.hasNext()) {
-            double kth = -2 * k * Math.PI / size;
-            ComplexNumber wk = new ComplexNumber(Math.cos(kth), Math.sin(kth));
+            ComplexNumber wk = new ComplexNumber(table.cos[k * stride], table.sin[k * stride]);
             ComplexNumber evenArg = itEven.next();
             ComplexNumber oddArg = itOdd.next();
 
@@ -791,386 +817,105 @@ public class ComplexNumber {
         return out;
     }
 
+    /**
+     * Compute an FFT on an array of ComplexNumbers of any size
+     *
+     * <p>This method computes the Fourier series of an input array of any length using
+     * Bluestein's chirp-z algorithm, which turns the transform into a convolution that
+     * is computed with power of 2 FFTs. It runs in O(N log N) for every N, so inputs do
+     * not need to be padded or truncated to a power of 2. This method is single
+     * threaded.</p>
+     *
+     * @param arg The input array of ComplexNumbers
+     * @return The Fourier series of the input array
+     * @throws RuntimeException Thrown when the array is empty
+     */
+    public static ComplexNumber[] fftBluestein(ComplexNumber[] arg) throws RuntimeException {
+        return fftBluestein(Arrays.asList(arg)).toArray(new ComplexNumber[0]);
+    }
+
+    /**
+     * Compute the Fourier series of a List of any size
+     *
+     * <p>This method computes the Fourier series of an input List of any length using
+     * Bluestein's chirp-z algorithm, which turns the transform into a convolution that
+     * is computed with power of 2 FFTs. It runs in O(N log N) for every N, so inputs do
+     * not need to be padded or truncated to a power of 2. This method is single
+     * threaded.</p>
+     *
+     * @param arg The input List of ComplexNumbers
+     * @return The Fourier series List of the input
+     * @throws RuntimeException Thrown when the List is empty
+     */
+    public static List<ComplexNumber> fftBluestein(List<ComplexNumber> arg) throws RuntimeException {
+        int size = arg.size();
+        if (size == 0) {
+            throw new RuntimeException("ComplexNumber.fftBluestein: ERROR - The List<> cannot be empty\n");
+        }
+
+        BluesteinFFT bluestein = new BluesteinFFT(size);
+        double[] re = new double[size], im = new double[size];
+        double[] workRe = new double[bluestein.getWorkSize()];
+        double[] workIm = new double[bluestein.getWorkSize()];
+
+        PrimitiveFFT.copyIn(arg, re, im);
+        bluestein.transform(re, im, workRe, workIm);
+
+        return PrimitiveFFT.copyOut(re, im, size);
+    }
+
     /**
      * Compute the Fourier series of a List
      *
      * <p>This method computes the Fourier series of an input List by performing the
      * Cooley-Tukey FFT algorithm. This specific method is multi-threaded for extremely
-     * large arrays. This method also uses the ArrayList class for the internal Lists.
-     * The array size must also be a power of 2.</p>
+     * large arrays, using {@link ParallelFFT} on the common fork/join pool. The array
+     * size must also be a power of 2.</p>
      *
      * @param toFFT The input List of ComplexNumbers
      * @return The Fourier series of the input List
      * @throws RuntimeException Thrown when the input List size isn't a power of 2
      */
     public static List<ComplexNumber> fftMT(List<ComplexNumber> toFFT) throws RuntimeException {
-        int size = toFFT.size();
-        if ((size & (size - 1)) != 0) {
-            throw new RuntimeException("FFTFreqGen: ERROR - The List<> size must be a power of 2\n");
-        }
-
-        // Start by performing the first separation of the fft components
-        FFTSeparator a = new FFTSeparator(toFFT);
-        a.run();
-
-        // Perform the second separation of the fft components
-        FFTSeparator b0 = new FFTSeparator(a.getEvens()), b1 = new FFTSeparator(a.getOdds());
-
-        Thread tb0 = new Thread(b0), tb1 = new Thread(b1);
-
-        tb0.start();
-        tb1.start();
-
-        // Perform the third separation of the fft components
-        try {
-            tb0.join();
-        } catch(Exception e) {
-            e.printStackTrace();
-            System.exit(120);
-        }
-
-        FFTSeparator c0 = new FFTSeparator(b0.getEvens()), c1 = new FFTSeparator(b0.getOdds());
-        Thread tc0 = new Thread(c0), tc1 = new Thread(c1);
-        tc0.start();
-        tc1.start();
-
-        try {
-            tb1.join();
-        } catch(Exception e) {
-            e.printStackTrace();
-            System.exit(121);
-        }
-
-        FFTSeparator c2 = new FFTSeparator(b1.getEvens()), c3 = new FFTSeparator(b1.getOdds());
-        Thread tc2 = new Thread(c2), tc3 = new Thread(c3);
-        tc2.start();
-        tc3.start();
-
-        // Perform a fourth separation of the fft components. This will give us 16 items
-        // to compute in their own threads.
-        try {
-            tc0.join();
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.exit(130);
-        }
-
-        FFTSeparator d0 = new FFTSeparator(c0.getEvens()), d1 = new FFTSeparator(c0.getOdds());
-        Thread td0 = new Thread(d0), td1 = new Thread(d1);
-        td0.start();
-        td1.start();
-
-        try {
-            tc1.join();
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.exit(131);
-        }
-
-        FFTSeparator d2 = new FFTSeparator(c1.getEvens()), d3 = new FFTSeparator(c1.getOdds());
-        Thread td2 = new Thread(d2), td3 = new Thread(d3);
-        td2.start();
-        td3.start();
-
-        try {
-            tc2.join();
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.exit(132);
-        }
-
-        FFTSeparator d4 = new FFTSeparator(c2.getEvens()), d5 = new FFTSeparator(c2.getOdds());
-        Thread td4 = new Thread(d4), td5 = new Thread(d5);
-        td4.start();
-        td5.start();
-
-        try {
-            tc3.join();
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.exit(133);
-        }
-
-        FFTSeparator d6 = new FFTSeparator(c3.getEvens()), d7 = new FFTSeparator(c3.getOdds());
-        Thread td6 = new Thread(d6), td7 = new Thread(d7);
-        td6.start();
-        td7.start();
-
-        // Now perform FFTs on the separated components created by the separator
-        try {
-            td0.join();
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.exit(140);
-        }
-
-        FFTThread e0 = new FFTThread(d0.getEvens()), e1 = new FFTThread(d0.getOdds());
-        Thread te0 = new Thread(e0), te1 = new Thread(e1);
-        te0.start();
-        te1.start();
-
-        try {
-            td1.join();
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.exit(141);
-        }
-
-        FFTThread e2 = new FFTThread(d1.getEvens()), e3 = new FFTThread(d1.getOdds());
-        Thread te2 = new Thread(e2), te3 = new Thread(e3);
-        te2.start();
-        te3.start();
-
-        try {
-            td2.join();
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.exit(142);
-        }
-
-        FFTThread e4 = new FFTThread(d2.getEvens()), e5 = new FFTThread(d2.getOdds());
-        Thread te4 = new Thread(e4), te5 = new Thread(e5);
-        te4.start();
-        te5.start();
-
-        try {
-            td3.join();
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.exit(143);
-        }
-
-        FFTThread e6 = new FFTThread(d3.getEvens()), e7 = new FFTThread(d3.getOdds());
-        Thread te6 = new Thread(e6), te7 = new Thread(e7);
-        te6.start();
-        te7.start();
-
-        try {
-            td4.join();
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.exit(144);
-        }
-
-        FFTThread e8 = new FFTThread(d4.getEvens()), e9 = new FFTThread(d4.getOdds());
-        Thread te8 = new Thread(e8), te9 = new Thread(e9);
-        te8.start();
-        te9.start();
-
-        try {
-            td5.join();
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.exit(145);
-        }
-
-        FFTThread e10 = new FFTThread(d5.getEvens()), e11 = new FFTThread(d5.getOdds());
-        Thread te10 = new Thread(e10), te11 = new Thread(e11);
-        te10.start();
-        te11.start();
+        return fftMT(toFFT, ForkJoinPool.commonPool());
+    }
 
-        try {
-            td6.join();
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.exit(146);
+    /**
+     * Compute the Fourier series of a List using the specified pool
+     *
+     * <p>This method computes the Fourier series of an input List by performing the
+     * Cooley-Tukey FFT algorithm. The transform is split into tasks run by the specified
+     * fork/join pool, and the number of tasks follows the parallelism of the pool. The
+     * array size must also be a power of 2.</p>
+     *
+     * @param toFFT The input List of ComplexNumbers
+     * @param pool The pool to run the transform in
+     * @return The Fourier series of the input List
+     * @throws RuntimeException Thrown when the input List size isn't a power of 2
+     */
+    public static List<ComplexNumber> fftMT(List<ComplexNumber> toFFT, ForkJoinPool pool)
+            throws RuntimeException {
+        int size = toFFT.size();
+        if (size == 0 || (size & (size - 1)) != 0) {
+            throw new RuntimeException("ComplexNumber.fftMT: ERROR - The List<> size must be a power of 2\n");
         }
 
-        FFTThread e12 = new FFTThread(d6.getEvens()), e13 = new FFTThread(d6.getOdds());
-        Thread te12 = new Thread(e12), te13 = new Thread(e13);
-        te12.start();
-        te13.start();
-
-        try {
-            td7.join();
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.exit(147);
-        }
+        double[] re = new double[size], im = new double[size];
+        PrimitiveFFT.copyIn(toFFT, re, im);
+        ParallelFFT.fft(re, im, size, pool);
 
-        FFTThread e14 = new FFTThread(d7.getEvens()), e15 = new FFTThread(d7.getOdds());
-        Thread te14 = new Thread(e14), te15 = new Thread(e15);
-        te14.start();
-        te15.start();
-
-        // Now start merging everything back into the final FFT array
-        // Do the first merge operations
-        try {
-            te0.join();
-            te1.join();
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.exit(200);
-        }
-        FFTMerge f0 = new FFTMerge(e0.getFFT(), e1.getFFT());
-        Thread tf0 = new Thread(f0);
-        tf0.start();
-
-        try {
-            te2.join();
-            te3.join();
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.exit(202);
-        }
-        FFTMerge f1 = new FFTMerge(e2.getFFT(), e3.getFFT());
-        Thread tf1 = new Thread(f1);
-        tf1.start();
-
-        try {
-            te4.join();
-            te5.join();
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.exit(204);
-        }
-        FFTMerge f2 = new FFTMerge(e4.getFFT(), e5.getFFT());
-        Thread tf2 = new Thread(f2);
-        tf2.start();
-
-        try {
-            te6.join();
-            te7.join();
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.exit(206);
-        }
-        FFTMerge f3 = new FFTMerge(e6.getFFT(), e7.getFFT());
-        Thread tf3 = new Thread(f3);
-        tf3.start();
-
-        try {
-            te8.join();
-            te9.join();
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.exit(208);
-        }
-        FFTMerge f4 = new FFTMerge(e8.getFFT(), e9.getFFT());
-        Thread tf4 = new Thread(f4);
-        tf4.start();
-
-        try {
-            te10.join();
-            te11.join();
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.exit(210);
-        }
-        FFTMerge f5 = new FFTMerge(e10.getFFT(), e11.getFFT());
-        Thread tf5 = new Thread(f5);
-        tf5.start();
-
-        try {
-            te12.join();
-            te13.join();
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.exit(212);
-        }
-        FFTMerge f6 = new FFTMerge(e12.getFFT(), e13.getFFT());
-        Thread tf6 = new Thread(f6);
-        tf6.start();
-
-        try {
-            te14.join();
-            te15.join();
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.exit(214);
-        }
-        FFTMerge f7 = new FFTMerge(e14.getFFT(), e15.getFFT());
-        Thread tf7 = new Thread(f7);
-        tf7.start();
-
-        // Do the second stage merge operation
-        try {
-            tf0.join();
-            tf1.join();
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.exit(300);
-        }
-        FFTMerge g0 = new FFTMerge(f0.getMerge(), f1.getMerge());
-        Thread tg0 = new Thread(g0);
-        tg0.start();
-
-        try {
-            tf2.join();
-            tf3.join();
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.exit(302);
-        }
-        FFTMerge g1 = new FFTMerge(f2.getMerge(), f3.getMerge());
-        Thread tg1 = new Thread(g1);
-        tg1.start();
-
-        try {
-            tf4.join();
-            tf5.join();
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.exit(304);
-        }
-        FFTMerge g2 = new FFTMerge(f4.getMerge(), f5.getMerge());
-        Thread tg2 = new Thread(g2);
-        tg2.start();
-
-        try {
-            tf6.join();
-            tf7.join();
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.exit(306);
-        }
-        FFTMerge g3 = new FFTMerge(f6.getMerge(), f7.getMerge());
-        Thread tg3 = new Thread(g3);
-        tg3.start();
-
-        // Perform the third merge operations
-        try {
-            tg0.join();
-            tg1.join();
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.exit(310);
-        }
-        FFTMerge h0 = new FFTMerge(g0.getMerge(), g1.getMerge());
-        Thread th0 = new Thread(h0);
-        th0.start();
-
-        try {
-            tg2.join();
-            tg3.join();
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.exit(312);
-        }
-        FFTMerge h1 = new FFTMerge(g2.getMerge(), g3.getMerge());
-        Thread th1 = new Thread(h1);
-        th1.start();
-
-        // Finally, do the final merge and return
-        try {
-            th0.join();
-            th1.join();
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.exit(320);
-        }
-        FFTMerge out = new FFTMerge(h0.getMerge(), h1.getMerge());
-        out.run();
-
-        return out.getMerge();
+        return PrimitiveFFT.copyOut(re, im, size);
     }
 
     /**
      * Compute the inverse Fourier series of an array
      *
      * <p>Compute the inverse Fourier series of an input array using the Cooley-Tukey
-     * FFT algorithm. This method is single threaded. The input array must have the size
-     * of a power of 2</p>
+     * FFT algorithm. The numbers are copied into primitive arrays, where they are
+     * conjugated, transformed and scaled in place with
+     * {@link PrimitiveFFT#ifft(double[], double[], int)}, so only the returned
+     * ComplexNumbers are created. This method is single threaded. The input array must
+     * have the size of a power of 2</p>
      *
      * @param arg The input array of ComplexNumbers
      * @return The inverse FFT of the input array
@@ -1185,23 +930,20 @@ public class ComplexNumber {
         }
 
         ComplexNumber[] out = new ComplexNumber[size];
-
-        // Take conjugate of each element
-        for (int i = 0; i < size; i++) {
-            out[i] = conjugate(arg[i]);
+        if (size == 0) {
+            return out;
         }
 
-        // Compute FFT of conjugate array
-        out = fft(out);
-
-        // Take another conjugate
+        double[] re = new double[size], im = new double[size];
         for (int i = 0; i < size; i++) {
-            out[i] = conjugate(out[i]);
+            re[i] = arg[i].getReal();
+            im[i] = arg[i].getImaginary();
         }
 
-        // Divide the array elements by the array size
+        PrimitiveFFT.ifft(re, im, size);
+
         for (int i = 0; i < size; i++) {
-            out[i] = multiply(out[i], 1.0 / size);
+            out[i] = new ComplexNumber(re[i], im[i]);
         }
 
         return out;
@@ -1211,8 +953,10 @@ public class ComplexNumber {
      * Compute the inverse Fourier series of a List
      *
      * <p>Compute the inverse Fourier series of an input list using the Cooley-Tukey
-     * FFT algorithm. This method is single threaded. The input list must have the size
-     * of a power of 2</p>
+     * FFT algorithm. The numbers are conjugated, transformed and scaled in place on
+     * primitive arrays, and the result is returned as an {@link ArrayList}, so any element
+     * can be read in constant time. This method is single threaded. The input list must
+     * have the size of a power of 2</p>
      *
      * @param arg The input List of ComplexNumbers
      * @return The inverse Fourier series of the numbers
@@ -1224,48 +968,25 @@ public class ComplexNumber {
         if ((size & (size - 1)) != 0) {
             throw new RuntimeException("ComplexNumber.ifft: ERROR - The List<> size must be a power of 2\n");
         }
-
-        List<ComplexNumber> a = new LinkedList<ComplexNumber>();
-        List<ComplexNumber> b = new LinkedList<ComplexNumber>();
-        List<ComplexNumber> out = new LinkedList<ComplexNumber>();
-
-        // Take conjugate of List elements
-        ListIterator<ComplexNumber> it = arg.listIterator();
-
-        while (it.hasNext()) {
-            a.add(conjugate(it.next()));
-        }
-
-        it = null;
-
-        // Compute FFT of List
-        a = fft(a);
-
-        // Take conjugate after FFT
-        it = a.listIterator();
-
-        while (it.hasNext()) {
-            b.add(conjugate(it.next()));
+        if (size == 0) {
+            return new ArrayList<>();
         }
 
-        it = null;
-
-        // Divide the elements by the size of the List
-        it = b.listIterator();
+        double[] re = new double[size], im = new double[size];
+        PrimitiveFFT.copyIn(arg, re, im);
+        PrimitiveFFT.ifft(re, im, size);
 
-        while(it.hasNext()) {
-            out.add(multiply(it.next(), 1.0 / size));
-        }
-
-        return out;
+        return PrimitiveFFT.copyOut(re, im, size);
     }
 
     /**
      * Compute the inverse Fourier series of a List
      *
      * <p>Compute the inverse Fourier series of an input list using the Cooley-Tukey
-     * FFT algorithm. This method is multi-threaded. The input list must have the size
-     * of a power of 2</p>
+     * FFT algorithm. This method is multi-threaded, using the common fork/join pool
+     * through {@link ParallelFFT#ifft(double[], double[], int)}. The work is done in place
+     * on primitive arrays and the result is returned as an {@link ArrayList}. The input
+     * list must have the size of a power of 2</p>
      *
      * @param arg The input List of ComplexNumbers
      * @return The inverse Fourier series of the input
@@ -1277,39 +998,14 @@ public class ComplexNumber {
         if ((size & (size - 1)) != 0) {
             throw new RuntimeException("ComplexNumber.ifft: ERROR - The List<> size must be a power of 2\n");
         }
-
-        List<ComplexNumber> a = new LinkedList<ComplexNumber>();
-        List<ComplexNumber> b = new LinkedList<ComplexNumber>();
-        List<ComplexNumber> out = new LinkedList<ComplexNumber>();
-
-        // Take conjugate of List elements
-        ListIterator<ComplexNumber> it = arg.listIterator();
-
-        while (it.hasNext()) {
-            a.add(conjugate(it.next()));
-        }
-
-        it = null;
-
-        // Compute FFT of List
-        a = fftMT(a);
-
-        // Take conjugate after FFT
-        it = a.listIterator();
-
-        while (it.hasNext()) {
-            b.add(conjugate(it.next()));
+        if (size == 0) {
+            return new ArrayList<>();
         }
 
-        it = null;
-
-        // Divide the elements by the size of the List
-        it = b.listIterator();
+        double[] re = new double[size], im = new double[size];
+        PrimitiveFFT.copyIn(arg, re, im);
+        ParallelFFT.ifft(re, im, size);
 
-        while(it.hasNext()) {
-            out.add(multiply(it.next(), 1.0 / size));
-        }
-
-        return out;
+        return PrimitiveFFT.copyOut(re, im, size);
     }
 }
@@ -0,0 +1,497 @@
+package com.hawkejo.complexnumberfft;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Computes FFTs that are larger than the Java heap using memory-mapped scratch files
+ *
+ * <p>The input is written into a temporary file holding N complex numbers, which is
+ * mapped into memory and treated as a matrix with N2 rows of N1 columns. The transform is
+ * the four-step algorithm done as two streaming passes over the file. The first pass reads
+ * strips of neighbouring columns, transforms every column with a size N2 FFT, applies the
+ * twiddle factors and writes the strip back. The second pass reads groups of rows and
+ * transforms every row with a size N1 FFT. Only one strip or group of rows is ever held
+ * on the heap, and its size follows the memory budget; everything else stays in the
+ * file, which the operating system pages in and out as needed. The in-memory transforms
+ * run on a {@link BatchFFT}, so they use every core.</p>
+ *
+ * <p>The second pass leaves the spectrum in transposed order, which is fine for finding
+ * the strongest bin: it is tracked while the rows are written, so the dominant frequency
+ * costs no extra pass. {@link #writeSpectrum(File)} does a third, tiled pass that writes
+ * the spectrum in natural order. The scratch file is deleted by {@link #close()}.</p>
+ */
+
+public class ExternalFFT implements AutoCloseable {
+    private static final String CLASS_TAG = "ExternalFFT";
+
+    // The default number of bytes of heap used for a strip or a group of rows
+    private static final long DEFAULT_MEMORY = 64L << 20;
+    // Each complex number is stored as two little endian doubles
+    private static final int ELEMENT_BYTES = 2 * Double.BYTES;
+
+    private final long size;
+    private final int rows, cols;
+    private final long memory;
+    private final File scratchFile;
+    private MappedFile scratch;
+    private long maxBin;
+    private boolean transformed;
+
+    /**
+     * Creates a transform of the specified size with a scratch file in the default
+     * temporary directory and a 64 MB memory budget.
+     *
+     * @param newSize The number of elements to transform, must be a power of 2
+     * @throws IOException Thrown when the scratch file can't be created
+     * @throws RuntimeException Thrown when the size isn't a power of 2
+     */
+    public ExternalFFT(long newSize) throws IOException, RuntimeException {
+        this(newSize, null, DEFAULT_MEMORY);
+    }
+
+    /**
+     * Creates a transform of the specified size.
+     *
+     * <p>The scratch file takes 16 bytes per element and starts out filled with 0, so any
+     * element that isn't written acts as zero padding.</p>
+     *
+     * @param newSize The number of elements to transform, must be a power of 2
+     * @param directory The directory for the scratch file, or null for the default temporary directory
+     * @param newMemory The number of bytes of heap to use for each block of the passes
+     * @throws IOException Thrown when the scratch file can't be created
+     * @throws RuntimeException Thrown when the size isn't a power of 2 or the budget is less than 1
+     */
+    public ExternalFFT(long newSize, File directory, long newMemory) throws IOException, RuntimeException {
+        if (newSize < 2 || (newSize & (newSize - 1)) != 0) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - The size must be a power of 2\n");
+        }
+        if (newMemory < 1) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - The memory budget must be at least 1 byte\n");
+        }
+
+        size = newSize;
+        memory = newMemory;
+
+        // The rows are the longer side when log2(N) is odd
+        int bits = Long.numberOfTrailingZeros(size);
+        rows = 1 << (bits / 2);
+        cols = 1 << (bits - bits / 2);
+
+        scratchFile = File.createTempFile("fft", ".tmp", directory);
+        scratchFile.deleteOnExit();
+        scratch = new MappedFile(scratchFile, size);
+    }
+
+    /**
+     * Returns the smallest size that can hold the specified number of samples.
+     *
+     * @param samples The number of samples
+     * @return The smallest power of 2 that is at least the number of samples, and at least 2
+     */
+    public static long paddedSize(long samples) {
+        if (samples <= 2) {
+            return 2;
+        }
+
+        return Long.highestOneBit(samples - 1) << 1;
+    }
+
+    /**
+     * Returns the number of elements the transform works on.
+     *
+     * @return The size of the transform
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Writes real samples into the input, setting their imaginary parts to 0.
+     *
+     * @param index The element the first sample is written to
+     * @param samples The array holding the samples
+     * @param offset The first sample in the array to write
+     * @param count The number of samples to write
+     * @throws RuntimeException Thrown when the transform is closed or already computed, or
+     * the samples don't fit
+     */
+    public void write(long index, double[] samples, int offset, int count) throws RuntimeException {
+        checkWrite(index, count);
+
+        for (int i = 0; i < count; i++) {
+            scratch.put(index + i, samples[offset + i], 0.0);
+        }
+    }
+
+    /**
+     * Writes complex numbers into the input.
+     *
+     * @param index The element the first number is written to
+     * @param re The array holding the real parts
+     * @param im The array holding the imaginary parts
+     * @param offset The first number in the arrays to write
+     * @param count The number of numbers to write
+     * @throws RuntimeException Thrown when the transform is closed or already computed, or
+     * the numbers don't fit
+     */
+    public void write(long index, double[] re, double[] im, int offset, int count) throws RuntimeException {
+        checkWrite(index, count);
+
+        for (int i = 0; i < count; i++) {
+            scratch.put(index + i, re[offset + i], im[offset + i]);
+        }
+    }
+
+    /**
+     * Makes sure input can be written at the specified position.
+     *
+     * @param index The first element to write
+     * @param count The number of elements to write
+     * @throws RuntimeException Thrown when the input can't be written
+     */
+    private void checkWrite(long index, int count) throws RuntimeException {
+        checkOpen();
+        if (transformed) {
+            throw new RuntimeException(CLASS_TAG + ".write: ERROR - The transform has already been computed\n");
+        }
+        if (index < 0 || count < 0 || index + count > size) {
+            throw new RuntimeException(CLASS_TAG + ".write: ERROR - The input doesn't fit into the transform\n");
+        }
+    }
+
+    /**
+     * Computes the transform of the input in the scratch file.
+     *
+     * <p>Does nothing if the transform has already been computed.</p>
+     *
+     * @throws RuntimeException Thrown when the transform is closed
+     */
+    public void transform() throws RuntimeException {
+        checkOpen();
+        if (transformed) {
+            return;
+        }
+
+        columnPass();
+        rowPass();
+        transformed = true;
+    }
+
+    /**
+     * Returns the bin with the largest magnitude in the first half of the spectrum.
+     *
+     * <p>Computes the transform first if that hasn't been done yet.</p>
+     *
+     * @return The strongest bin, between 0 and size/2 - 1
+     * @throws RuntimeException Thrown when the transform is closed
+     */
+    public long getMaxBin() throws RuntimeException {
+        transform();
+        return maxBin;
+    }
+
+    /**
+     * Computes the dominant frequency of the input.
+     *
+     * @param sampleRate The sample rate of the input
+     * @return The frequency of the strongest bin
+     * @throws RuntimeException Thrown when the transform is closed
+     */
+    public double computeFrequency(int sampleRate) throws RuntimeException {
+        return getMaxBin() * ((double) sampleRate/size);
+    }
+
+    /**
+     * Writes the full spectrum to a file in natural order.
+     *
+     * <p>The file holds bins 0 through size - 1, each as the real and then the imaginary
+     * part in little endian doubles. The spectrum is transposed a strip at a time, so the
+     * heap use follows the memory budget. Computes the transform first if that hasn't been
+     * done yet.</p>
+     *
+     * @param output The file to write, replaced if it exists
+     * @throws IOException Thrown when the file can't be written
+     * @throws RuntimeException Thrown when the transform is closed
+     */
+    public void writeSpectrum(File output) throws IOException, RuntimeException {
+        transform();
+
+        MappedFile out = new MappedFile(output, size);
+        try {
+            int strip = stripWidth();
+            double[] re = new double[rows * strip], im = new double[rows * strip];
+
+            // Bin k2 + rows * k1 is stored at row k2 and column k1 of the scratch file
+            for (int col = 0; col < cols; col += strip) {
+                readStrip(col, strip, re, im);
+                for (int c = 0; c < strip; c++) {
+                    long bin = (long) (col + c) * rows;
+                    for (int r = 0; r < rows; r++) {
+                        out.put(bin + r, re[c * rows + r], im[c * rows + r]);
+                    }
+                }
+            }
+        }
+        finally {
+            out.close(true);
+        }
+    }
+
+    /**
+     * Transforms every column and applies the twiddle factors.
+     */
+    private void columnPass() {
+        int strip = stripWidth();
+        double[] re = new double[rows * strip], im = new double[rows * strip];
+        BatchFFT batch = new BatchFFT(rows);
+        Twiddles twiddles = new Twiddles(size);
+
+        for (int col = 0; col < cols; col += strip) {
+            readStrip(col, strip, re, im);
+            batch.transform(re, im, strip);
+
+            // Element k2 of column n1 is multiplied by e^(-j*2*pi*n1*k2/N)
+            for (int c = 0; c < strip; c++) {
+                long n1 = col + c;
+                for (int k2 = 1; k2 < rows; k2++) {
+                    int i = c * rows + k2;
+                    long w = n1 * k2;
+                    double wr = twiddles.cos(w), wi = twiddles.sin(w);
+                    double r = re[i];
+                    re[i] = r * wr - im[i] * wi;
+                    im[i] = r * wi + im[i] * wr;
+                }
+            }
+
+            for (int r = 0; r < rows; r++) {
+                long row = (long) r * cols + col;
+                for (int c = 0; c < strip; c++) {
+                    scratch.put(row + c, re[c * rows + r], im[c * rows + r]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Transforms every row and finds the strongest bin of the first half of the spectrum.
+     */
+    private void rowPass() {
+        long fit = Math.max(1, Math.min(rows, memory / ((long) cols * ELEMENT_BYTES)));
+        int group = (int) Long.highestOneBit(fit);
+        double[] re = new double[cols * group], im = new double[cols * group];
+        BatchFFT batch = new BatchFFT(cols);
+
+        long bestBin = -1;
+        double bestPower = -1.0;
+
+        for (int row = 0; row < rows; row += group) {
+            long start = (long) row * cols;
+            for (int i = 0; i < cols * group; i++) {
+                re[i] = scratch.getReal(start + i);
+                im[i] = scratch.getImaginary(start + i);
+            }
+
+            batch.transform(re, im, group);
+
+            for (int r = 0; r < group; r++) {
+                for (int k1 = 0; k1 < cols; k1++) {
+                    int i = r * cols + k1;
+                    scratch.put(start + i, re[i], im[i]);
+
+                    long bin = (row + r) + (long) rows * k1;
+                    double power = re[i] * re[i] + im[i] * im[i];
+                    if (bin < size / 2 && (bestPower < power || (bestPower == power && bin < bestBin))) {
+                        bestBin = bin;
+                        bestPower = power;
+                    }
+                }
+            }
+        }
+
+        maxBin = bestBin;
+    }
+
+    /**
+     * Returns the number of columns that fit into the memory budget.
+     *
+     * @return The number of columns in each strip, a power of 2
+     */
+    private int stripWidth() {
+        long width = Math.max(1, Math.min(cols, memory / ((long) rows * ELEMENT_BYTES)));
+        return (int) Long.highestOneBit(width);
+    }
+
+    /**
+     * Reads a strip of neighbouring columns, storing each column contiguously.
+     *
+     * @param col The first column of the strip
+     * @param strip The number of columns in the strip
+     * @param re Receives the real parts, column by column
+     * @param im Receives the imaginary parts, column by column
+     */
+    private void readStrip(int col, int strip, double[] re, double[] im) {
+        for (int r = 0; r < rows; r++) {
+            long row = (long) r * cols + col;
+            for (int c = 0; c < strip; c++) {
+                re[c * rows + r] = scratch.getReal(row + c);
+                im[c * rows + r] = scratch.getImaginary(row + c);
+            }
+        }
+    }
+
+    /**
+     * Returns whether {@link #close()} has been called.
+     *
+     * @return Whether the transform is closed
+     */
+    public boolean isClosed() {
+        return scratch == null;
+    }
+
+    /**
+     * Releases the mapping and deletes the scratch file.
+     *
+     * <p>Closing more than once has no effect.</p>
+     */
+    @Override
+    public void close() {
+        if (scratch != null) {
+            scratch.close(false);
+            scratch = null;
+            scratchFile.delete();
+        }
+    }
+
+    /**
+     * Makes sure the transform hasn't been closed.
+     *
+     * @throws RuntimeException Thrown when the transform is closed
+     */
+    private void checkOpen() throws RuntimeException {
+        if (scratch == null) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - The transform is closed\n");
+        }
+    }
+
+    /**
+     * Twiddle factors for any exponent below the size of a transform.
+     *
+     * <p>Each factor is the product of one entry of a coarse and one entry of a fine table,
+     * both with about the square root of the size in entries.</p>
+     */
+    private static class Twiddles {
+        private final int fineBits;
+        private final long fineMask;
+        private final double[] fineCos, fineSin, coarseCos, coarseSin;
+
+        Twiddles(long size) {
+            int bits = Long.numberOfTrailingZeros(size);
+            fineBits = (bits + 1) / 2;
+            fineMask = (1L << fineBits) - 1;
+
+            int fine = 1 << fineBits, coarse = 1 << (bits - fineBits);
+            fineCos = new double[fine];
+            fineSin = new double[fine];
+            coarseCos = new double[coarse];
+            coarseSin = new double[coarse];
+
+            for (int k = 0; k < fine; k++) {
+                double angle = -2 * Math.PI * k / size;
+                fineCos[k] = Math.cos(angle);
+                fineSin[k] = Math.sin(angle);
+            }
+            for (int k = 0; k < coarse; k++) {
+                double angle = -2 * Math.PI * ((double) k * fine) / size;
+                coarseCos[k] = Math.cos(angle);
+                coarseSin[k] = Math.sin(angle);
+            }
+        }
+
+        double cos(long w) {
+            int c = (int) (w >>> fineBits), f = (int) (w & fineMask);
+            return coarseCos[c] * fineCos[f] - coarseSin[c] * fineSin[f];
+        }
+
+        double sin(long w) {
+            int c = (int) (w >>> fineBits), f = (int) (w & fineMask);
+            return coarseCos[c] * fineSin[f] + coarseSin[c] * fineCos[f];
+        }
+    }
+
+    /**
+     * A file of complex numbers mapped into memory in fixed size segments.
+     *
+     * <p>A single mapping is limited to 2 GB, so the file is mapped as a number of 1 GB
+     * segments. The segment size is a multiple of the element size, so no element is
+     * split between two segments.</p>
+     */
+    private static class MappedFile {
+        private static final int SEGMENT_SHIFT = 26;
+        private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+        private final RandomAccessFile file;
+        private final MappedByteBuffer[] segments;
+
+        MappedFile(File path, long elements) throws IOException {
+            file = new RandomAccessFile(path, "rw");
+            try {
+                file.setLength(0);
+                file.setLength(elements * ELEMENT_BYTES);
+
+                FileChannel channel = file.getChannel();
+                int count = (int) ((elements + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+                segments = new MappedByteBuffer[count];
+                for (int s = 0; s < count; s++) {
+                    long first = (long) s << SEGMENT_SHIFT;
+                    long length = Math.min(elements - first, 1L << SEGMENT_SHIFT) * ELEMENT_BYTES;
+                    segments[s] = channel.map(FileChannel.MapMode.READ_WRITE, first * ELEMENT_BYTES, length);
+                    segments[s].order(ByteOrder.LITTLE_ENDIAN);
+                }
+            }
+            catch (IOException e) {
+                file.close();
+                throw e;
+            }
+        }
+
+        double getReal(long index) {
+            return segments[(int) (index >>> SEGMENT_SHIFT)].getDouble((int) (index & SEGMENT_MASK) * ELEMENT_BYTES);
+        }
+
+        double getImaginary(long index) {
+            return segments[(int) (index >>> SEGMENT_SHIFT)].getDouble((int) (index & SEGMENT_MASK) * ELEMENT_BYTES
+                    + Double.BYTES);
+        }
+
+        void put(long index, double re, double im) {
+            MappedByteBuffer segment = segments[(int) (index >>> SEGMENT_SHIFT)];
+            int position = (int) (index & SEGMENT_MASK) * ELEMENT_BYTES;
+            segment.putDouble(position, re);
+            segment.putDouble(position + Double.BYTES, im);
+        }
+
+        /**
+         * Closes the file, optionally making sure every change has reached the disk.
+         *
+         * @param flush Whether to write the changed pages to the file first
+         */
+        void close(boolean flush) {
+            if (flush) {
+                for (MappedByteBuffer segment : segments) {
+                    segment.force();
+                }
+            }
+            try {
+                file.close();
+            }
+            catch (IOException e) {
+                // The mappings stay valid after the file is closed, so nothing is lost
+            }
+        }
+    }
+}
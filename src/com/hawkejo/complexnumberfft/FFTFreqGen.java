@@ -16,11 +16,31 @@ import java.util.ListIterator;
  */
 
 public class FFTFreqGen implements Runnable, FreqObservable, FrequencyGenerator {
+    // The bins computed past either edge of a band, enough to interpolate around the first
+    // bin outside of it
+    private static final int BAND_GUARD = 2;
+
     private List<ComplexNumber> toFFT;
     private double frequency;
     private int sampleRate;
     private final String CLASS_TAG = "FFTFreqGen";
     private List<FreqObserver> observers;
+    private double[] fftReal, fftImag;
+    private double[] samples, realScratch;
+    private boolean realInput;
+    private FFTPlan plan;
+    private BatchFFT batch;
+    private boolean banded;
+    private double bandLow, bandHigh;
+    private PrunedFFT pruned;
+    private double[] bandReal, bandImag;
+    private PeakInterpolation interpolation;
+    private WindowFunction window;
+    private double[] windowTable;
+    private PolyphaseDecimator decimator;
+    private double[] rawReal, rawImag;
+    private double[] spectrumReal, spectrumImag;
+    private int spectrumFirst, spectrumFrom, spectrumTo, spectrumLength, spectrumSize;
 
     /**
      * Defaults the sampleRate variable to 8000 Hz
@@ -29,6 +49,8 @@ public class FFTFreqGen implements Runnable, FreqObservable, FrequencyGenerator
         toFFT = null;
         sampleRate = 8000;
         frequency = 0.0;
+        interpolation = PeakInterpolation.NONE;
+        window = WindowFunction.NONE;
         observers = new LinkedList<>();
     }
 
@@ -37,7 +59,7 @@ public class FFTFreqGen implements Runnable, FreqObservable, FrequencyGenerator
      *
      * <p>This value allows for specifying the internal List for computing the FFT and
      * defaults the other parameters to the specified values. The sampleRate variable
-     * defaults to 8000 Hz. An exception is thrown if the List size is not a power of 2.</p>
+     * defaults to 8000 Hz. The List may be of any size.</p>
      *
      * @param newList The new list to be specified
      */
@@ -45,11 +67,9 @@ public class FFTFreqGen implements Runnable, FreqObservable, FrequencyGenerator
         toFFT = newList;
         sampleRate = 8000;
         frequency = 0.0;
+        interpolation = PeakInterpolation.NONE;
+        window = WindowFunction.NONE;
         observers = new LinkedList<>();
-
-        if (toFFT != null && (toFFT.size() & (toFFT.size() - 1)) != 0) {
-            throw new RuntimeException(CLASS_TAG + ": ERROR - The List<> size must be a power of 2\n");
-        }
     }
 
     /**
@@ -64,6 +84,8 @@ public class FFTFreqGen implements Runnable, FreqObservable, FrequencyGenerator
         toFFT = null;
         sampleRate = newRate;
         frequency = 0.0;
+        interpolation = PeakInterpolation.NONE;
+        window = WindowFunction.NONE;
         observers = new LinkedList<>();
     }
 
@@ -71,8 +93,7 @@ public class FFTFreqGen implements Runnable, FreqObservable, FrequencyGenerator
      * Allows for specifying the internal List and the sample rate.
      *
      * <p>Allows for specifying the internal sample rate variable as well as the List
-     * object to have the frequency computed from. An exception is thrown if the List
-     * size is not a power of 2.</p>
+     * object to have the frequency computed from. The List may be of any size.</p>
      *
      * @param newList The new List to compute the frequency from.
      * @param newRate The specified sample rate.
@@ -81,29 +102,48 @@ public class FFTFreqGen implements Runnable, FreqObservable, FrequencyGenerator
         toFFT = newList;
         sampleRate = newRate;
         frequency = 0.0;
+        interpolation = PeakInterpolation.NONE;
+        window = WindowFunction.NONE;
         observers = new LinkedList<>();
-
-        if (toFFT != null && (toFFT.size() & (toFFT.size() - 1)) != 0) {
-            throw new RuntimeException(CLASS_TAG + ": ERROR - The List<> size must be a power of 2\n");
-        }
     }
 
     @Override
     public void setArray(ComplexNumber array[]) {
         toFFT = new ArrayList<>(Arrays.asList(array));
-
-        if ((toFFT.size() & (toFFT.size() - 1)) != 0) {
-            throw new RuntimeException(CLASS_TAG + ": ERROR - The List<> size must be a power of 2\n");
-        }
+        samples = null;
     }
 
     @Override
     public void setList(List<ComplexNumber> audList) {
         toFFT = audList;
+        samples = null;
+    }
 
-        if (toFFT != null && (toFFT.size() & (toFFT.size() - 1)) != 0) {
-            throw new RuntimeException(CLASS_TAG + ": ERROR - The List<> size must be a power of 2\n");
-        }
+    /**
+     * Allows for specifying real audio samples directly.
+     *
+     * <p>Replaces any List or array set before. Samples set this way are always computed
+     * with the real input FFT, so they never need to be wrapped in ComplexNumbers. Any
+     * number of samples may be used.</p>
+     *
+     * @param newSamples The new audio samples to compute the frequency from
+     */
+    public void setSamples(double[] newSamples) {
+        samples = newSamples;
+        toFFT = null;
+    }
+
+    /**
+     * Allows for treating the internal List as real audio data.
+     *
+     * <p>When enabled, only the real parts of the List are used and the frequency is
+     * computed with {@link #computeFrequencyReal()}, which is roughly twice as fast as
+     * the complex transforms and uses half of the memory.</p>
+     *
+     * @param newReal Whether or not the imaginary parts of the input can be ignored
+     */
+    public void setRealInput(boolean newReal) {
+        realInput = newReal;
     }
 
     /**
@@ -115,68 +155,727 @@ public class FFTFreqGen implements Runnable, FreqObservable, FrequencyGenerator
         sampleRate = newRate;
     }
 
+    /**
+     * Allows for refining the frequency between the centres of two bins.
+     *
+     * <p>With an interpolation other than {@link PeakInterpolation#NONE}, the frequency is
+     * estimated from the strongest bin and its two neighbours instead of being rounded to
+     * the centre of the strongest bin, so a smaller FFT gives the same accuracy. This
+     * applies to every method that keeps the spectrum, and to
+     * {@link #computeFrequencies(double[], int)}, but not to
+     * {@link #computeFrequencyST()}.</p>
+     *
+     * @param newInterpolation The estimator to use
+     * @throws RuntimeException Thrown when the interpolation is null
+     */
+    public void setInterpolation(PeakInterpolation newInterpolation) throws RuntimeException {
+        if (newInterpolation == null) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - The interpolation can't be null");
+        }
+
+        interpolation = newInterpolation;
+    }
+
+    /**
+     * Returns the estimator used to refine the frequency between bins.
+     *
+     * @return The current interpolation
+     */
+    public PeakInterpolation getInterpolation() {
+        return interpolation;
+    }
+
+    /**
+     * Allows for weighting the input with an analysis window before it is transformed.
+     *
+     * <p>A window lowers the leakage of strong tones into the rest of the spectrum, so
+     * nearby or weak tones can be told apart without a larger FFT. The weights are
+     * applied in the same pass that copies or packs the input into the FFT arrays, so
+     * the window costs no extra pass over memory. This applies to every method that keeps
+     * the spectrum, and to {@link #computeFrequencies(double[], int)}, but not to
+     * {@link #computeFrequencyST()}. The interpolation that is set takes the window into
+     * account, see {@link PeakInterpolation}.</p>
+     *
+     * @param newWindow The window to apply
+     * @throws RuntimeException Thrown when the window is null
+     */
+    public void setWindow(WindowFunction newWindow) throws RuntimeException {
+        if (newWindow == null) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - The window can't be null");
+        }
+
+        window = newWindow;
+        windowTable = null;
+    }
+
+    /**
+     * Returns the window applied to the input.
+     *
+     * @return The current window
+     */
+    public WindowFunction getWindow() {
+        return window;
+    }
+
+    /**
+     * Allows for lowering the sample rate of the input before it is transformed.
+     *
+     * <p>When only low frequencies matter, the input is filtered and decimated by a
+     * {@link PolyphaseDecimator}, so an FFT of 1/factor of the size is computed at a
+     * sample rate of sampleRate/factor. The bins stay sampleRate/size Hz apart, so the
+     * resolution is the same, and the frequencies are reported in Hz at the original
+     * rate. Frequencies above sampleRate/(2 * factor) are filtered out by about
+     * 80 dB, so they never show up as aliases, and frequencies from about
+     * 0.3 * sampleRate/factor up to that are weakened more and more. Any window
+     * is applied to the decimated samples in the same pass. This applies to every method
+     * that keeps the spectrum, and to {@link #computeFrequencies(double[], int)}, which
+     * decimates every frame on its own, but not to {@link #computeFrequencyST()}.</p>
+     *
+     * @param factor The factor to lower the sample rate by, 1 to not decimate
+     * @throws RuntimeException Thrown when the factor is less than 1
+     */
+    public void setDecimation(int factor) throws RuntimeException {
+        if (factor < 1) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - The decimation factor must be at least 1");
+        }
+
+        if (factor == 1) {
+            decimator = null;
+        }
+        else if (decimator == null || decimator.getFactor() != factor) {
+            decimator = new PolyphaseDecimator(factor);
+        }
+    }
+
+    /**
+     * Returns the factor that the sample rate of the input is lowered by.
+     *
+     * @return The decimation factor, 1 when the input isn't decimated
+     */
+    public int getDecimation() {
+        return decimator == null ? 1 : decimator.getFactor();
+    }
+
+    /**
+     * Returns the sample rate of the samples that are transformed.
+     *
+     * @return The sample rate divided by the decimation factor
+     */
+    public double getEffectiveSampleRate() {
+        return (double) sampleRate / getDecimation();
+    }
+
+    /**
+     * Limits the frequency search to a band.
+     *
+     * <p>Once a band is set, {@link #computeFrequency()} uses
+     * {@link #computeFrequencyBand()}, which only computes the bins from minHz to maxHz
+     * and ignores every other frequency.</p>
+     *
+     * @param minHz The lowest frequency of interest
+     * @param maxHz The highest frequency of interest
+     * @throws RuntimeException Thrown when the band is negative, empty or not finite
+     */
+    public void setBand(double minHz, double maxHz) throws RuntimeException {
+        if (!(minHz >= 0.0) || !(maxHz >= minHz) || Double.isInfinite(maxHz)) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - The band must be finite, not negative and not empty");
+        }
+
+        banded = true;
+        bandLow = minHz;
+        bandHigh = maxHz;
+        pruned = null;
+    }
+
+    /**
+     * Goes back to searching every frequency up to half of the sample rate.
+     */
+    public void clearBand() {
+        banded = false;
+        pruned = null;
+    }
+
     @Override
     public double computeFrequency() throws RuntimeException {
+        if (banded) {
+            return computeFrequencyBand();
+        }
+
+        if (samples != null || (realInput && toFFT != null)) {
+            return computeFrequencyReal();
+        }
+
         if (toFFT == null) {
             throw new RuntimeException(CLASS_TAG + ": ERROR - toFFT array is null");
         }
 
-        if (toFFT.size() >= 524288) {
+        if (inputSize() >= 524288) {
             return computeFrequencyMT();
         }
         else
-            return computeFrequencyST();
+            return computeFrequencyPrimitive();
     }
 
     /**
-     * A multi threaded method for computing a frequency from an FFT
+     * A single threaded method for computing a frequency from an FFT on primitive arrays
      *
-     * <p>This method computes the FFT of the specified array and then uses that
-     * FFT to find and compute the frequency of the array. This method is single threaded
-     * and works best on arrays that are larger than 2^19.</p>
+     * <p>This method copies the specified array into internal arrays of doubles and then
+     * uses an {@link FFTPlan} for the size to compute the FFT in place. Sizes that aren't
+     * a power of 2 are transformed with the mixed-radix or Bluestein's algorithm. The
+     * plan and the internal arrays are kept between calls, so repeated computations on the
+     * same size allocate nothing.</p>
      * @return The computed frequency
-     * @throws RuntimeException Thrown when the array is null, or not sized as a power of 2.
+     * @throws RuntimeException Thrown when the array is null or empty.
      */
-    public double computeFrequencyMT() throws RuntimeException {
+    public double computeFrequencyPrimitive() throws RuntimeException {
         if (toFFT == null) {
             throw new RuntimeException(CLASS_TAG + ": ERROR - toFFT array is null");
         }
 
-        if ((toFFT.size() & (toFFT.size() - 1)) != 0) {
-            throw new RuntimeException(CLASS_TAG + ": ERROR - The List<> size must be a power of 2\n");
+        int size = inputSize();
+        if (size == 0) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - toFFT array is empty");
         }
 
-        // Create the FFT of the array of numbers
-        List<ComplexNumber> fromFFT = ComplexNumber.fftMT(toFFT);
+        if (fftReal == null || fftReal.length < size) {
+            fftReal = new double[size];
+            fftImag = new double[size];
+        }
 
-        // Finally, compute the frequency from the newly created array. Unfortunately, this has
-        // to be a linear search as the location in the list determines what the frequency
-        // actually is.
-        int size = fromFFT.size();
-        int maxBin = -1, argX = 0, argY = size/2 - 1;
-        double maxMagnitude = -1.0;
+        loadList(size);
+        transform(size);
 
-        while(argX < argY) {
-            ComplexNumber tempX = fromFFT.get(argX);
-            ComplexNumber tempY = fromFFT.get(argY);
+        frequency = peakFrequency(size);
 
-            double tempMagnitudeX = tempX.magnitude();
-            double tempMagnitudeY = tempY.magnitude();
+        return frequency;
+    }
 
-            if (maxMagnitude < tempMagnitudeX) {
-                maxBin = argX;
-                maxMagnitude = tempMagnitudeX;
+    /**
+     * A single threaded method for computing a frequency from a real input FFT
+     *
+     * <p>This method computes the frequency of real audio data, either the samples set
+     * with {@link #setSamples(double[])} or the real parts of the internal List. The
+     * samples are transformed with {@link PrimitiveFFT#realFFT}, which only needs a
+     * complex FFT of half the size. Sample counts that aren't a power of 2 are
+     * transformed with the mixed-radix or Bluestein's algorithm instead. The internal
+     * arrays are kept between calls.</p>
+     * @return The computed frequency
+     * @throws RuntimeException Thrown when there is no input.
+     */
+    public double computeFrequencyReal() throws RuntimeException {
+        double[] input = realSamples();
+        int size = inputSize();
+
+        if (size == 0) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - toFFT array is empty");
+        }
+
+        if (size >= 2 && (size & (size - 1)) == 0) {
+            if (fftReal == null || fftReal.length < size/2 + 1) {
+                fftReal = new double[size/2 + 1];
+                fftImag = new double[size/2 + 1];
             }
-            if (maxMagnitude < tempMagnitudeY) {
-                maxBin = argY;
-                maxMagnitude = tempMagnitudeY;
+
+            PrimitiveFFT.realFFT(input, size, sampleWeights(size), fftReal, fftImag);
+        }
+        else {
+            if (fftReal == null || fftReal.length < size) {
+                fftReal = new double[size];
+                fftImag = new double[size];
             }
 
-            argX++;
-            argY--;
+            loadReal(input, size);
+            transform(size);
         }
 
-        frequency = maxBin * ((double) sampleRate/fromFFT.size());
+        frequency = peakFrequency(size);
+
+        return frequency;
+    }
+
+    /**
+     * A single threaded method for computing the strongest frequency inside of the band
+     *
+     * <p>Only the bins from the band set with {@link #setBand(double, double)} are
+     * computed, with a {@link PrunedFFT} that skips the butterflies feeding the other
+     * bins, and only those bins are searched. Two more guard bins on either side of the
+     * band are computed when the spectrum has them, so a peak on the edge of the band is
+     * still interpolated. When the strongest bin is on the edge and the guard bin next to
+     * it is stronger still, the tone lies between the two and is interpolated around the
+     * guard bin, and the result is kept inside of the band. Real input, either samples or a List with
+     * {@link #setRealInput(boolean)} enabled, is transformed as half as many complex
+     * numbers like {@link #computeFrequencyReal()}. The plan is kept until the size or
+     * the band changes. Inputs of any size are accepted.</p>
+     * @return The computed frequency
+     * @throws RuntimeException Thrown when there is no input or band, or the band holds
+     * no bins at this size and sample rate.
+     */
+    public double computeFrequencyBand() throws RuntimeException {
+        if (!banded) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - No band has been set");
+        }
+
+        if (toFFT == null && samples == null) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - toFFT array is null");
+        }
+
+        boolean real = samples != null || realInput;
+        int size = inputSize();
+        if (size == 0) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - toFFT array is empty");
+        }
+
+        // The same bins as the other methods search, cut to the band
+        double binWidth = getEffectiveSampleRate()/size;
+        int first = (int) Math.max(0.0, Math.ceil(bandLow / binWidth));
+        int last = (int) Math.min(searchedBins(size) - 1, Math.floor(bandHigh / binWidth));
+        if (first > last) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - The band holds no bins at this size");
+        }
+
+        // Odd sizes can't be packed into half as many complex numbers
+        boolean packed = real && size % 2 == 0;
+
+        // Guard bins on either side of the band give the interpolation the neighbours of a
+        // peak on its edge, but aren't searched themselves
+        int low = Math.max(0, first - BAND_GUARD);
+        int high = Math.min(packed ? size / 2 : size - 1, last + BAND_GUARD);
+        int count = high - low + 1;
+        if (pruned == null || pruned.getSize() != size || pruned.getFirstBin() != low
+                || pruned.getBinCount() != count || pruned.isRealInput() != packed) {
+            pruned = new PrunedFFT(size, low, count, packed);
+        }
+        if (bandReal == null || bandReal.length < count) {
+            bandReal = new double[count];
+            bandImag = new double[count];
+        }
+
+        if (packed) {
+            pruned.executeWeighted(realSamples(), sampleWeights(size), bandReal, bandImag);
+        }
+        else {
+            if (fftReal == null || fftReal.length < size) {
+                fftReal = new double[size];
+                fftImag = new double[size];
+            }
+
+            if (real) {
+                loadReal(realSamples(), size);
+            }
+            else {
+                loadList(size);
+            }
+            pruned.execute(fftReal, fftImag, bandReal, bandImag);
+        }
+
+        int from = first - low, to = last - low + 1;
+        keepSpectrum(bandReal, bandImag, low, from, to, count, size);
+        int peak = SimdFFT.maxPowerBin(bandReal, bandImag, from, to);
+        if (peak == from && peak > 0 && power(bandReal, bandImag, peak - 1) > power(bandReal, bandImag, peak)) {
+            peak--;
+        }
+        else if (peak == to - 1 && peak + 1 < count
+                && power(bandReal, bandImag, peak + 1) > power(bandReal, bandImag, peak)) {
+            peak++;
+        }
+        frequency = (low + peak + binOffset(bandReal, bandImag, peak, count, size)) * binWidth;
+        frequency = Math.max(bandLow, Math.min(bandHigh, frequency));
+
+        return frequency;
+    }
+
+    /**
+     * Returns the power of a bin
+     *
+     * @param re The real parts of the bins
+     * @param im The imaginary parts of the bins
+     * @param bin The index of the bin
+     * @return The squared magnitude of the bin
+     */
+    private static double power(double[] re, double[] im, int bin) {
+        return re[bin] * re[bin] + im[bin] * im[bin];
+    }
+
+    /**
+     * Returns the real input samples, copying them out of the List when needed
+     *
+     * <p>Samples set directly are returned as they are unless they are decimated, and
+     * any window is left to the pass that packs them into the FFT arrays, which takes it
+     * from {@link #sampleWeights(int)}. The real parts of a List and decimated samples
+     * are copied, and weighted in the same pass.</p>
+     *
+     * @return The samples set directly, or the internal scratch array holding the
+     * weighted real parts of the List or the decimated and weighted samples
+     * @throws RuntimeException Thrown when there is no input
+     */
+    private double[] realSamples() throws RuntimeException {
+        if (samples != null && decimator == null) {
+            return samples;
+        }
+        if (samples == null && toFFT == null) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - toFFT array is null");
+        }
+
+        int size = inputSize();
+        if (realScratch == null || realScratch.length < size) {
+            realScratch = new double[size];
+        }
+
+        double[] weights = weights(size);
+        if (decimator != null) {
+            double[] source = samples;
+            if (source == null) {
+                source = rawBuffers(toFFT.size());
+                int i = 0;
+                for (ComplexNumber num : toFFT) {
+                    source[i++] = num.getReal();
+                }
+            }
+            decimator.decimate(source, samples != null ? samples.length : toFFT.size(), realScratch, weights);
+        }
+        else if (weights == null) {
+            int i = 0;
+            for (ComplexNumber num : toFFT) {
+                realScratch[i++] = num.getReal();
+            }
+        }
+        else {
+            int i = 0;
+            for (ComplexNumber num : toFFT) {
+                realScratch[i] = num.getReal() * weights[i];
+                i++;
+            }
+        }
+
+        return realScratch;
+    }
+
+    /**
+     * Returns the weights that still have to be applied to the real samples
+     *
+     * @param size The number of samples that are transformed
+     * @return The weights of the window for samples set directly and not decimated, or
+     * null when {@link #realSamples()} already applied them or no window is set
+     */
+    private double[] sampleWeights(int size) {
+        return samples != null && decimator == null ? weights(size) : null;
+    }
+
+    /**
+     * Copies real samples into the internal FFT arrays with an imaginary part of 0
+     *
+     * @param input The real samples, from {@link #realSamples()}
+     * @param size The number of samples that are transformed
+     */
+    private void loadReal(double[] input, int size) {
+        double[] weights = sampleWeights(size);
+        if (weights == null) {
+            System.arraycopy(input, 0, fftReal, 0, size);
+        }
+        else {
+            for (int i = 0; i < size; i++) {
+                fftReal[i] = input[i] * weights[i];
+            }
+        }
+        Arrays.fill(fftImag, 0, size, 0.0);
+    }
+
+    /**
+     * Copies the List into the internal FFT arrays, decimating and weighting it
+     *
+     * @param size The number of elements that are transformed, after any decimation
+     */
+    private void loadList(int size) {
+        if (decimator == null) {
+            PrimitiveFFT.copyIn(toFFT, fftReal, fftImag, weights(size));
+            return;
+        }
+
+        int length = toFFT.size();
+        rawBuffers(length);
+        PrimitiveFFT.copyIn(toFFT, rawReal, rawImag);
+        decimator.decimate(rawReal, length, fftReal, weights(size));
+        decimator.decimate(rawImag, length, fftImag, weights(size));
+    }
+
+    /**
+     * Makes sure the arrays holding the input before decimation fit the length
+     *
+     * @param length The number of input elements
+     * @return The array for the real parts
+     */
+    private double[] rawBuffers(int length) {
+        if (rawReal == null || rawReal.length < length) {
+            rawReal = new double[length];
+            rawImag = new double[length];
+        }
+
+        return rawReal;
+    }
+
+    /**
+     * Returns the number of elements that are transformed
+     *
+     * @return The size of the input, divided by the decimation factor
+     */
+    private int inputSize() {
+        int length = samples != null ? samples.length : toFFT.size();
+
+        return decimator == null ? length : decimator.outputLength(length);
+    }
+
+    /**
+     * Returns the weights of the window for a size
+     *
+     * @param size The number of samples that are transformed
+     * @return The cached weights, or null when no window is set
+     */
+    private double[] weights(int size) {
+        if (window == WindowFunction.NONE) {
+            return null;
+        }
+
+        // Keeping the table saves a lookup in the shared cache for every computation
+        if (windowTable == null || windowTable.length != size) {
+            windowTable = window.table(size);
+        }
+
+        return windowTable;
+    }
+
+    /**
+     * Computes one frequency for every frame of a block of real audio samples
+     *
+     * <p>The samples are split into consecutive frames of frameSize samples, and any
+     * samples after the last full frame are ignored. With a decimation factor set, every
+     * frame is first filtered and decimated on its own. All of the frames are then
+     * weighted with the window and transformed in one call to a {@link BatchFFT}, which
+     * spreads them across the common fork/join pool, and the strongest bin of each frame
+     * is refined with the interpolation that is set while its spectrum is still in the
+     * cache. The batch is kept between calls with the same frame size. The frequency of
+     * the last frame is also stored as the current frequency.</p>
+     *
+     * @param newSamples The real audio samples holding the frames
+     * @param frameSize The number of samples in each frame
+     * @return The frequency of each frame, in order
+     * @throws RuntimeException Thrown when the samples are null or the frame size is less than 1,
+     * or less than the decimation factor
+     */
+    public double[] computeFrequencies(double[] newSamples, int frameSize) throws RuntimeException {
+        if (newSamples == null) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - samples array is null");
+        }
+        if (frameSize < 1) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - frame size must be at least 1");
+        }
+
+        int frames = newSamples.length / frameSize;
+        double[] input = newSamples;
+        int size = frameSize;
+        if (decimator != null) {
+            size = decimator.outputLength(frameSize);
+            if (size < 1) {
+                throw new RuntimeException(CLASS_TAG + ": ERROR - frame size must be at least the decimation factor");
+            }
+
+            input = new double[frames * size];
+            for (int f = 0; f < frames; f++) {
+                decimator.decimate(newSamples, f * frameSize, frameSize, input, f * size, null);
+            }
+        }
+
+        if (batch == null || batch.getFrameSize() != size) {
+            batch = new BatchFFT(size);
+        }
+
+        double[] peaks = new double[frames];
+        batch.peaks(input, frames, window, interpolation, peaks);
+
+        double[] frequencies = new double[frames];
+        for (int f = 0; f < frames; f++) {
+            frequencies[f] = peaks[f] * (getEffectiveSampleRate()/size);
+        }
+        if (frames > 0) {
+            frequency = frequencies[frames - 1];
+        }
+
+        return frequencies;
+    }
+
+    /**
+     * Transforms the first size elements of the internal FFT arrays in place
+     *
+     * <p>Uses the {@link FFTPlan} for the current size, which is only created again when
+     * the size changes, so repeated computations skip the validation and setup.</p>
+     *
+     * @param size The number of elements to transform
+     */
+    private void transform(int size) {
+        if (plan == null || plan.getSize() != size) {
+            plan = new FFTPlan(size);
+        }
+
+        plan.execute(fftReal, fftImag);
+    }
+
+    /**
+     * Finds the bin with the largest magnitude in the internal FFT arrays
+     *
+     * <p>Comparing the squared magnitudes gives the same bin while avoiding a square
+     * root for every bin. The search is vectorized by {@link SimdFFT} when possible.</p>
+     *
+     * @param bins The number of bins to search, starting at bin 0
+     * @return The bin with the largest magnitude
+     */
+    private int findMaxBin(int bins) {
+        return SimdFFT.maxPowerBin(fftReal, fftImag, 0, bins);
+    }
+
+    /**
+     * Finds the frequency of the strongest bin in the internal FFT arrays
+     *
+     * <p>The bins below half of the sample rate are searched, which is bins 0 through
+     * (size - 1)/2. Every transform leaves the bin above those in the arrays as well, so
+     * the peak always has a neighbour above it for the interpolation. An input of one
+     * sample only has bin 0, at 0 Hz.</p>
+     *
+     * @param size The number of samples that were transformed
+     * @return The refined frequency of the strongest bin
+     */
+    private double peakFrequency(int size) {
+        int bins = searchedBins(size);
+        int length = Math.min(bins + 1, size);
+        keepSpectrum(fftReal, fftImag, 0, 0, bins, length, size);
+        int bin = findMaxBin(bins);
+
+        return (bin + binOffset(fftReal, fftImag, bin, length, size)) * (getEffectiveSampleRate()/size);
+    }
+
+    /**
+     * Returns the number of bins below half of the sample rate
+     *
+     * <p>Even sizes stop before the bin at half of the sample rate, but odd sizes have no
+     * such bin, and bin (size - 1)/2 is still a positive frequency.</p>
+     *
+     * @param size The number of samples that were transformed
+     * @return size/2 for even sizes and (size + 1)/2 for odd ones
+     */
+    static int searchedBins(int size) {
+        return (size + 1)/2;
+    }
+
+    /**
+     * Remembers where the last computation left the bins it searched
+     *
+     * @param re The real parts of the bins
+     * @param im The imaginary parts of the bins
+     * @param first The bin of the spectrum at index 0 of the arrays
+     * @param from The first index that is searched
+     * @param to One past the last index that is searched
+     * @param length The number of bins in the arrays, at least to
+     * @param size The number of samples that were transformed
+     */
+    private void keepSpectrum(double[] re, double[] im, int first, int from, int to, int length, int size) {
+        spectrumReal = re;
+        spectrumImag = im;
+        spectrumFirst = first;
+        spectrumFrom = from;
+        spectrumTo = to;
+        spectrumLength = length;
+        spectrumSize = size;
+    }
+
+    /**
+     * Computes the strongest peaks of the spectrum instead of only the strongest bin
+     *
+     * <p>The spectrum is computed the same way as by {@link #computeFrequency()}, including
+     * its band when one is set, and the current frequency is updated as well. Every bin
+     * that is stronger than its neighbours is then offered to a heap that keeps the
+     * strongest count of them, in a single pass that doesn't sort the spectrum. Spectra of
+     * many bins are searched in chunks in parallel on the common fork/join pool. The
+     * frequency of each peak is refined with the interpolation that is set.</p>
+     *
+     * @param count The largest number of peaks to return, at least 1
+     * @return The peaks, from the strongest to the weakest, which can be fewer than count
+     * @throws RuntimeException Thrown when count is less than 1, or the spectrum can't be
+     * computed
+     */
+    public List<SpectralPeak> computePeaks(int count) throws RuntimeException {
+        if (count < 1) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - At least one peak must be requested");
+        }
+
+        computeFrequency();
+
+        int[] bins = PeakHeap.search(spectrumReal, spectrumImag, spectrumFrom, spectrumTo, spectrumLength, count).drain();
+        double binWidth = getEffectiveSampleRate()/spectrumSize;
+        List<SpectralPeak> peaks = new ArrayList<>(bins.length);
+        for (int bin : bins) {
+            double re = spectrumReal[bin], im = spectrumImag[bin];
+            double offset = binOffset(spectrumReal, spectrumImag, bin, spectrumLength, spectrumSize);
+            peaks.add(new SpectralPeak(spectrumFirst + bin, (spectrumFirst + bin + offset) * binWidth,
+                    Math.sqrt(re * re + im * im), Math.atan2(im, re)));
+        }
+
+        return peaks;
+    }
+
+    /**
+     * Estimates how far the peak lies from the centre of the strongest bin
+     *
+     * @param re The real parts of the bins
+     * @param im The imaginary parts of the bins
+     * @param peak The index of the strongest bin in the arrays
+     * @param count The number of bins in the arrays
+     * @param size The number of samples that were transformed
+     * @return The offset in bins, or 0 when the peak is missing a neighbour
+     */
+    private double binOffset(double[] re, double[] im, int peak, int count, int size) {
+        if (peak < 1 || peak + 1 >= count) {
+            return 0.0;
+        }
+
+        return interpolation.offset(re, im, peak, size, window);
+    }
+
+    /**
+     * A multi threaded method for computing a frequency from an FFT
+     *
+     * <p>This method computes the FFT of the specified array with {@link ParallelFFT},
+     * or {@link SixStepFFT} for arrays of 2^20 or more, and then uses that FFT to find and
+     * compute the frequency of the array. This method is multi threaded and works best on
+     * arrays that are larger than 2^19. Arrays that aren't a power of 2
+     * are computed with {@link #computeFrequencyPrimitive()} instead.</p>
+     * @return The computed frequency
+     * @throws RuntimeException Thrown when the array is null.
+     */
+    public double computeFrequencyMT() throws RuntimeException {
+        if (toFFT == null) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - toFFT array is null");
+        }
+
+        // The threaded FFT only handles powers of 2, so other sizes use the primitive path
+        int size = inputSize();
+        if ((size & (size - 1)) != 0) {
+            return computeFrequencyPrimitive();
+        }
+
+        if (fftReal == null || fftReal.length < size) {
+            fftReal = new double[size];
+            fftImag = new double[size];
+        }
+
+        // Create the FFT of the array of numbers using the shared fork/join pool. Once the
+        // arrays outgrow the cache, the six-step FFT is faster than the radix-2 stages.
+        loadList(size);
+        if (size >= 1048576) {
+            SixStepFFT.fft(fftReal, fftImag, size);
+        }
+        else {
+            ParallelFFT.fft(fftReal, fftImag, size);
+        }
+
+        frequency = peakFrequency(size);
 
         return frequency;
     }
@@ -186,18 +885,19 @@ public class FFTFreqGen implements Runnable, FreqObservable, FrequencyGenerator
      *
      * <p>This method computes the FFT of the specified array and then uses that
      * FFT to find and compute the frequency of the array. This method is single threaded
-     * and works best on arrays that are smaller than 2^19.</p>
+     * and works best on arrays that are smaller than 2^19. Arrays that aren't a power of 2
+     * are computed with {@link #computeFrequencyPrimitive()} instead.</p>
      * @return The computed frequency
-     * @throws RuntimeException Thrown when the array is null, or not sized as a power of 2.
+     * @throws RuntimeException Thrown when the array is null.
      */
     public double computeFrequencyST() throws RuntimeException {
         if (toFFT == null) {
             throw new RuntimeException(CLASS_TAG + ": ERROR - toFFT array is null");
         }
 
-        // We should never go here as we already do this check when setting the array.
+        // The recursive FFT only handles powers of 2, so other sizes use the primitive path
         if ((toFFT.size() & (toFFT.size() - 1)) != 0) {
-            throw new RuntimeException(CLASS_TAG + ": ERROR - The List<> size must be a power of 2\n");
+            return computeFrequencyPrimitive();
         }
 
         // Create the FFT of the array of numbers
@@ -206,7 +906,7 @@ public class FFTFreqGen implements Runnable, FreqObservable, FrequencyGenerator
         // Finally, compute the frequency from the newly created array. Unfortunately, this has
         // to be a linear search as the location in the list determines what the frequency
         // actually is.
-        int maxBin = -1, argX = 0, argY = fromFFT.size()/2 - 1;
+        int maxBin = 0, argX = 0, argY = fromFFT.size()/2 - 1;
         double maxMagnitude = -1.0;
         while(argX < argY) {
             ComplexNumber tempX = fromFFT.get(argX);
@@ -0,0 +1,232 @@
+package com.hawkejo.complexnumberfft;
+
+/**
+ * A reusable plan for transforms of one size and direction.
+ *
+ * <p>Creating a plan does all of the work that only depends on the size: it validates
+ * the size, picks the algorithm and precomputes its twiddle factors. Powers of 2 use the
+ * radix-2 transform, which runs on {@link SimdFFT} so it is vectorized when the Vector
+ * API is available. Sizes with only the factors 2, 3, 5 and 7 use {@link MixedRadixFFT}
+ * and every other size uses {@link BluesteinFFT}. A plan is immutable once created, and
+ * any scratch space it needs is kept per thread, so a single plan can be executed from
+ * any number of threads at the same time. Plans work on double precision values.</p>
+ */
+
+public final class FFTPlan {
+    private static final String CLASS_TAG = "FFTPlan";
+
+    private final int size;
+    private final boolean inverse;
+    private final TwiddleTable table;
+    private final MixedRadixFFT mixedRadix;
+    private final BluesteinFFT bluestein;
+    private final ThreadLocal<double[][]> work;
+
+    /**
+     * Creates a plan for forward transforms of the specified size.
+     *
+     * @param newSize The number of elements each transform works on
+     * @throws RuntimeException Thrown when the size is less than 1
+     */
+    public FFTPlan(int newSize) throws RuntimeException {
+        this(newSize, false);
+    }
+
+    /**
+     * Creates a plan for transforms of the specified size and direction.
+     *
+     * <p>Inverse transforms are scaled by 1 / size, the same as
+     * {@link ComplexNumber#ifft(ComplexNumber[])}.</p>
+     *
+     * @param newSize The number of elements each transform works on
+     * @param newInverse Whether the plan computes inverse transforms
+     * @throws RuntimeException Thrown when the size is less than 1
+     */
+    public FFTPlan(int newSize, boolean newInverse) throws RuntimeException {
+        if (newSize < 1) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - The size must be at least 1\n");
+        }
+
+        size = newSize;
+        inverse = newInverse;
+
+        if ((size & (size - 1)) == 0) {
+            table = TwiddleCache.get(size);
+            mixedRadix = null;
+            bluestein = null;
+            work = null;
+        }
+        else if (MixedRadixFFT.isSupported(size)) {
+            table = null;
+            mixedRadix = new MixedRadixFFT(size);
+            bluestein = null;
+            work = newWork(size);
+        }
+        else {
+            table = null;
+            mixedRadix = null;
+            bluestein = new BluesteinFFT(size);
+            work = newWork(bluestein.getWorkSize());
+        }
+    }
+
+    /**
+     * Creates the per thread scratch space for the plan
+     *
+     * @param length The number of elements in each work array
+     * @return The ThreadLocal holding the real and imaginary work arrays
+     */
+    private static ThreadLocal<double[][]> newWork(final int length) {
+        return new ThreadLocal<double[][]>() {
+            @Override
+            protected double[][] initialValue() {
+                return new double[][] {new double[length], new double[length]};
+            }
+        };
+    }
+
+    /**
+     * Returns the number of elements each transform works on.
+     *
+     * @return The size of the plan
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the direction of the plan.
+     *
+     * @return Whether the plan computes inverse transforms
+     */
+    public boolean isInverse() {
+        return inverse;
+    }
+
+    /**
+     * Transforms the input into the output, leaving the input unchanged.
+     *
+     * <p>The output arrays may be the same as the input arrays, in which case the
+     * transform is done in place. Only the first size elements of each array are used.</p>
+     *
+     * @param inRe The real parts of the input
+     * @param inIm The imaginary parts of the input
+     * @param outRe Receives the real parts of the output
+     * @param outIm Receives the imaginary parts of the output
+     * @throws RuntimeException Thrown when any of the arrays is smaller than the plan
+     */
+    public void execute(double[] inRe, double[] inIm, double[] outRe, double[] outIm)
+            throws RuntimeException {
+        if (inRe.length < size || inIm.length < size) {
+            throw new RuntimeException(CLASS_TAG + ".execute: ERROR - The input is smaller than the plan\n");
+        }
+        if (outRe != inRe) {
+            checkLength(outRe);
+            System.arraycopy(inRe, 0, outRe, 0, size);
+        }
+        if (outIm != inIm) {
+            checkLength(outIm);
+            System.arraycopy(inIm, 0, outIm, 0, size);
+        }
+
+        execute(outRe, outIm);
+    }
+
+    /**
+     * Transforms the first size elements of the arrays in place.
+     *
+     * @param re The real parts of the input, replaced by the real parts of the output
+     * @param im The imaginary parts of the input, replaced by the imaginary parts of the output
+     * @throws RuntimeException Thrown when either array is smaller than the plan
+     */
+    public void execute(double[] re, double[] im) throws RuntimeException {
+        checkLength(re);
+        checkLength(im);
+
+        if (table != null) {
+            execute(re, im, 0);
+            return;
+        }
+
+        // The inverse transform is the conjugate of the forward transform of the conjugate
+        if (inverse) {
+            for (int i = 0; i < size; i++) {
+                im[i] = -im[i];
+            }
+        }
+
+        double[][] scratch = work.get();
+        if (mixedRadix != null) {
+            mixedRadix.transform(re, im, scratch[0], scratch[1]);
+        }
+        else {
+            bluestein.transform(re, im, scratch[0], scratch[1]);
+        }
+
+        if (inverse) {
+            scale(re, im, 0);
+        }
+    }
+
+    /**
+     * Returns whether the plan can transform elements at any offset of the arrays.
+     *
+     * <p>Only the radix-2 transform of a power of 2 works where the elements are. The
+     * other algorithms work on elements starting at index 0.</p>
+     *
+     * @return True when the size is a power of 2
+     */
+    boolean isInPlace() {
+        return table != null;
+    }
+
+    /**
+     * Transforms size elements starting at an offset in place, without checking the arguments
+     *
+     * <p>Only plans where {@link #isInPlace()} is true can do this.</p>
+     *
+     * @param re The real parts of the input, replaced by the real parts of the output
+     * @param im The imaginary parts of the input, replaced by the imaginary parts of the output
+     * @param offset The first element to transform
+     */
+    void execute(double[] re, double[] im, int offset) {
+        if (inverse) {
+            for (int i = offset; i < offset + size; i++) {
+                im[i] = -im[i];
+            }
+        }
+
+        SimdFFT.transform(re, im, offset, size, table);
+
+        if (inverse) {
+            scale(re, im, offset);
+        }
+    }
+
+    /**
+     * Scales the conjugated output of an inverse transform by 1 / size and conjugates it back
+     *
+     * @param re The real parts of the output
+     * @param im The imaginary parts of the output
+     * @param offset The first element of the output
+     */
+    private void scale(double[] re, double[] im, int offset) {
+        double scale = 1.0 / size;
+        for (int i = offset; i < offset + size; i++) {
+            re[i] *= scale;
+            im[i] *= -scale;
+        }
+    }
+
+    /**
+     * Makes sure an array can hold a full transform.
+     *
+     * @param array The array to check
+     * @throws RuntimeException Thrown when the array is smaller than the plan
+     */
+    private void checkLength(double[] array) throws RuntimeException {
+        if (array.length < size) {
+            throw new RuntimeException(CLASS_TAG + ".execute: ERROR - The array is smaller than the plan\n");
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.hawkejo.complexnumberfft;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+
+/**
+ * Computes frequencies using single precision FFTs
+ *
+ * <p>A version of {@link FFTFreqGen} that converts its input to floats and computes the
+ * frequency with {@link FloatFFT}. It uses half of the memory of the double precision
+ * path, which is plenty for picking the peak frequency out of 16-bit audio. Input set as
+ * real samples uses the real input transform. The number of samples must be a power of
+ * 2.</p>
+ */
+
+public class FloatFFTFreqGen implements Runnable, FreqObservable, FrequencyGenerator {
+    private float[] inReal, inImag, fftReal, fftImag;
+    private int size;
+    private boolean realInput;
+    private double frequency;
+    private int sampleRate;
+    private final String CLASS_TAG = "FloatFFTFreqGen";
+    private List<FreqObserver> observers;
+
+    /**
+     * Defaults the sampleRate variable to 8000 Hz
+     */
+    public FloatFFTFreqGen() {
+        this(8000);
+    }
+
+    /**
+     * Allows for specifying the sample rate.
+     *
+     * @param newRate The specified sample rate.
+     */
+    public FloatFFTFreqGen(int newRate) {
+        sampleRate = newRate;
+        frequency = 0.0;
+        size = 0;
+        observers = new LinkedList<>();
+    }
+
+    @Override
+    public void setArray(ComplexNumber array[]) {
+        checkSize(array.length);
+        ensureInput(array.length, true);
+
+        for (int i = 0; i < array.length; i++) {
+            inReal[i] = (float) array[i].getReal();
+            inImag[i] = (float) array[i].getImaginary();
+        }
+
+        size = array.length;
+        realInput = false;
+    }
+
+    @Override
+    public void setList(List<ComplexNumber> audList) {
+        checkSize(audList.size());
+        ensureInput(audList.size(), true);
+
+        int i = 0;
+        for (ComplexNumber num : audList) {
+            inReal[i] = (float) num.getReal();
+            inImag[i] = (float) num.getImaginary();
+            i++;
+        }
+
+        size = audList.size();
+        realInput = false;
+    }
+
+    /**
+     * Allows for specifying real audio samples directly.
+     *
+     * <p>The samples are rounded to floats and computed with the real input FFT.</p>
+     *
+     * @param newSamples The new audio samples to compute the frequency from
+     */
+    public void setSamples(double[] newSamples) {
+        checkSize(newSamples.length);
+        ensureInput(newSamples.length, false);
+
+        for (int i = 0; i < newSamples.length; i++) {
+            inReal[i] = (float) newSamples[i];
+        }
+
+        size = newSamples.length;
+        realInput = true;
+    }
+
+    /**
+     * Allows for changing the internal sampleRate variable
+     *
+     * @param newRate The new sample rate to use in computations.
+     */
+    public void setSampleRate(int newRate) {
+        sampleRate = newRate;
+    }
+
+    /**
+     * Makes sure a new input size is usable by the float FFT
+     *
+     * @param newSize The size of the new input
+     * @throws RuntimeException Thrown when the size isn't a power of 2
+     */
+    private void checkSize(int newSize) throws RuntimeException {
+        if (newSize < 2 || (newSize & (newSize - 1)) != 0) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - The input size must be a power of 2\n");
+        }
+    }
+
+    /**
+     * Makes sure the internal input and FFT arrays can hold the specified size
+     *
+     * @param newSize The number of input elements
+     * @param complex Whether or not the input has imaginary parts
+     */
+    private void ensureInput(int newSize, boolean complex) {
+        if (inReal == null || inReal.length < newSize) {
+            inReal = new float[newSize];
+        }
+        if (complex && (inImag == null || inImag.length < newSize)) {
+            inImag = new float[newSize];
+        }
+        if (fftReal == null || fftReal.length < newSize) {
+            fftReal = new float[newSize];
+            fftImag = new float[newSize];
+        }
+    }
+
+    @Override
+    public double computeFrequency() throws RuntimeException {
+        if (size == 0) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - No input has been set");
+        }
+
+        // The input arrays are left unchanged so repeated computations give the same result
+        if (realInput) {
+            FloatFFT.realFFT(inReal, size, fftReal, fftImag);
+        }
+        else {
+            System.arraycopy(inReal, 0, fftReal, 0, size);
+            System.arraycopy(inImag, 0, fftImag, 0, size);
+            FloatFFT.fft(fftReal, fftImag, size);
+        }
+
+        int maxBin = -1;
+        float maxPower = -1.0f;
+        for (int k = 0; k < size/2; k++) {
+            float power = fftReal[k] * fftReal[k] + fftImag[k] * fftImag[k];
+            if (maxPower < power) {
+                maxBin = k;
+                maxPower = power;
+            }
+        }
+
+        frequency = maxBin * ((double) sampleRate/size);
+
+        return frequency;
+    }
+
+    @Override
+    public void run() {
+        this.computeFrequency();
+    }
+
+    @Override
+    public void addObserver(FreqObserver newObs) {
+        if (newObs != null)
+            observers.add(newObs);
+    }
+
+    @Override
+    public void updateObservers() {
+        ListIterator<FreqObserver> it = observers.listIterator();
+
+        while(it.hasNext()) {
+            it.next().update(frequency);
+        }
+    }
+
+    @Override
+    public double getFrequency() {
+        return frequency;
+    }
+}
@@ -0,0 +1,276 @@
+package com.hawkejo.complexnumberfft;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Detects a set of known frequencies with the Goertzel algorithm
+ *
+ * <p>A {@link FrequencyGenerator} for jobs that only need to know which of a few target
+ * frequencies is present, such as the 440 Hz, 1 kHz and 10 kHz test tones. Instead of a
+ * full FFT, each target is evaluated on its own with the Goertzel algorithm, a second
+ * order filter that costs O(N) per target and needs no twiddle tables or scratch arrays.
+ * The targets don't have to line up with FFT bins. Many targets are spread over the common
+ * fork/join pool, one range of targets per task. The computed frequency is the target with
+ * the largest amplitude, and the amplitudes of every target are available from
+ * {@link #computeAmplitudes()}. Inputs of any size are accepted.</p>
+ */
+
+public class GoertzelFreqGen implements Runnable, FreqObservable, FrequencyGenerator {
+    // Below this many targets, or this much work, the targets are evaluated in the calling thread
+    private static final int PARALLEL_TARGETS = 8;
+    private static final long PARALLEL_WORK = 1L << 18;
+
+    private double[] inReal, inImag;
+    private int size;
+    private double[] targets, amplitudes;
+    private double frequency;
+    private int sampleRate;
+    private final String CLASS_TAG = "GoertzelFreqGen";
+    private List<FreqObserver> observers;
+
+    /**
+     * Defaults the sampleRate variable to 8000 Hz with no targets
+     */
+    public GoertzelFreqGen() {
+        this(8000);
+    }
+
+    /**
+     * Allows for specifying the sample rate and the target frequencies.
+     *
+     * @param newRate The specified sample rate.
+     * @param newTargets The frequencies to look for, in Hz
+     */
+    public GoertzelFreqGen(int newRate, double... newTargets) {
+        sampleRate = newRate;
+        frequency = 0.0;
+        size = 0;
+        observers = new LinkedList<>();
+        setTargets(newTargets);
+    }
+
+    /**
+     * Allows for changing the frequencies that are evaluated.
+     *
+     * @param newTargets The frequencies to look for, in Hz
+     * @throws RuntimeException Thrown when a frequency is negative or not finite
+     */
+    public void setTargets(double... newTargets) throws RuntimeException {
+        for (double target : newTargets) {
+            if (!(target >= 0.0) || Double.isInfinite(target)) {
+                throw new RuntimeException(CLASS_TAG + ": ERROR - Target frequencies must be finite and not negative\n");
+            }
+        }
+
+        targets = newTargets.clone();
+        amplitudes = new double[targets.length];
+    }
+
+    /**
+     * Returns the frequencies that are evaluated.
+     *
+     * @return A copy of the target frequencies
+     */
+    public double[] getTargets() {
+        return targets.clone();
+    }
+
+    @Override
+    public void setArray(ComplexNumber array[]) {
+        setList(Arrays.asList(array));
+    }
+
+    @Override
+    public void setList(List<ComplexNumber> audList) {
+        ensureInput(audList.size(), true);
+
+        int i = 0;
+        for (ComplexNumber num : audList) {
+            inReal[i] = num.getReal();
+            inImag[i] = num.getImaginary();
+            i++;
+        }
+
+        size = audList.size();
+    }
+
+    /**
+     * Allows for specifying real audio samples directly.
+     *
+     * <p>The samples are copied, and real input skips the imaginary half of the filter.</p>
+     *
+     * @param newSamples The new audio samples to compute the frequency from
+     */
+    public void setSamples(double[] newSamples) {
+        ensureInput(newSamples.length, false);
+        System.arraycopy(newSamples, 0, inReal, 0, newSamples.length);
+
+        inImag = null;
+        size = newSamples.length;
+    }
+
+    /**
+     * Allows for changing the internal sampleRate variable
+     *
+     * @param newRate The new sample rate to use in computations.
+     */
+    public void setSampleRate(int newRate) {
+        sampleRate = newRate;
+    }
+
+    /**
+     * Makes sure the internal input arrays can hold the specified size
+     *
+     * @param newSize The number of input elements
+     * @param complex Whether or not the input has imaginary parts
+     */
+    private void ensureInput(int newSize, boolean complex) {
+        if (inReal == null || inReal.length < newSize) {
+            inReal = new double[newSize];
+        }
+        if (complex && (inImag == null || inImag.length < newSize)) {
+            inImag = new double[newSize];
+        }
+    }
+
+    /**
+     * Computes the amplitude of every target frequency
+     *
+     * <p>The amplitude is 2|X(f)|/N, which is the peak amplitude of a sine wave at exactly
+     * that frequency, so it can be compared against a fixed threshold to decide whether a
+     * frequency is present regardless of the number of samples.</p>
+     *
+     * @return The amplitude of each target, in the same order as the targets
+     * @throws RuntimeException Thrown when there is no input or no targets
+     */
+    public double[] computeAmplitudes() throws RuntimeException {
+        if (size == 0) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - No input has been set");
+        }
+        if (targets.length == 0) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - No target frequencies have been set");
+        }
+
+        if (targets.length >= PARALLEL_TARGETS && (long) targets.length * size >= PARALLEL_WORK) {
+            int block = Math.max(1, targets.length / (4 * ForkJoinPool.commonPool().getParallelism()));
+            ForkJoinPool.commonPool().invoke(new TargetTask(0, targets.length, block));
+        }
+        else {
+            evaluate(0, targets.length);
+        }
+
+        return amplitudes.clone();
+    }
+
+    @Override
+    public double computeFrequency() throws RuntimeException {
+        computeAmplitudes();
+
+        int maxTarget = 0;
+        for (int t = 1; t < targets.length; t++) {
+            if (amplitudes[maxTarget] < amplitudes[t]) {
+                maxTarget = t;
+            }
+        }
+
+        frequency = targets[maxTarget];
+
+        return frequency;
+    }
+
+    /**
+     * Runs the Goertzel filter for a range of targets
+     *
+     * @param from The first target to evaluate
+     * @param to One past the last target to evaluate
+     */
+    private void evaluate(int from, int to) {
+        for (int t = from; t < to; t++) {
+            double omega = 2 * Math.PI * targets[t] / sampleRate;
+            double cos = Math.cos(omega), sin = Math.sin(omega);
+            double coeff = 2 * cos;
+
+            // s[n] = x[n] + 2cos(w)s[n-1] - s[n-2], run on the real and imaginary parts
+            double r1 = 0.0, r2 = 0.0;
+            for (int n = 0; n < size; n++) {
+                double r0 = inReal[n] + coeff * r1 - r2;
+                r2 = r1;
+                r1 = r0;
+            }
+
+            // X = e^(jw)s[N-1] - s[N-2], up to a phase that doesn't change the magnitude
+            double xr = cos * r1 - r2, xi = sin * r1;
+
+            if (inImag != null) {
+                double i1 = 0.0, i2 = 0.0;
+                for (int n = 0; n < size; n++) {
+                    double i0 = inImag[n] + coeff * i1 - i2;
+                    i2 = i1;
+                    i1 = i0;
+                }
+
+                // The imaginary input contributes j times its own filter output
+                xr -= sin * i1;
+                xi += cos * i1 - i2;
+            }
+
+            amplitudes[t] = 2 * Math.sqrt(xr * xr + xi * xi) / size;
+        }
+    }
+
+    /**
+     * Evaluates a range of targets, splitting it while it is larger than the block.
+     */
+    private class TargetTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from, to, block;
+
+        TargetTask(int from, int to, int block) {
+            this.from = from;
+            this.to = to;
+            this.block = block;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > block) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new TargetTask(from, middle, block), new TargetTask(middle, to, block));
+                return;
+            }
+
+            evaluate(from, to);
+        }
+    }
+
+    @Override
+    public void run() {
+        this.computeFrequency();
+    }
+
+    @Override
+    public void addObserver(FreqObserver newObs) {
+        if (newObs != null)
+            observers.add(newObs);
+    }
+
+    @Override
+    public void updateObservers() {
+        ListIterator<FreqObserver> it = observers.listIterator();
+
+        while(it.hasNext()) {
+            it.next().update(frequency);
+        }
+    }
+
+    @Override
+    public double getFrequency() {
+        return frequency;
+    }
+}
@@ -0,0 +1,312 @@
+package com.hawkejo.complexnumberfft;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+
+/**
+ * Computes the fundamental frequency of instrument audio with a harmonic product spectrum
+ *
+ * <p>A {@link FrequencyGenerator} for notes whose harmonics can be stronger than the
+ * fundamental, where the strongest bin of {@link FFTFreqGen} often lands on a harmonic.
+ * The magnitude spectrum is multiplied by copies of itself compressed by 2, 3 and so on
+ * up to the number of harmonics. Only at the fundamental do all of the copies line up on
+ * a harmonic, so the product peaks there even in small FFTs. Each compressed copy takes
+ * the largest magnitude near every h-th bin, since the harmonics of a fundamental that
+ * lies between bins drift away from whole multiples of its bin. Both the magnitudes and
+ * the compress and multiply passes are vectorized by {@link SimdFFT}. The peak can be refined
+ * between bins with a {@link PeakInterpolation}. Only the real parts of the input are
+ * used, and inputs of any size are accepted.</p>
+ */
+
+public class HPSFreqGen implements Runnable, FreqObservable, FrequencyGenerator {
+    private double[] samples, realScratch;
+    private double[] fftReal, fftImag, magnitudes, widened, product;
+    private FFTPlan plan;
+    private int harmonics;
+    private double minFrequency, minPeakRatio;
+    private PeakInterpolation interpolation;
+    private double frequency;
+    private int sampleRate;
+    private final String CLASS_TAG = "HPSFreqGen";
+    private List<FreqObserver> observers;
+
+    /**
+     * Defaults the sampleRate variable to 8000 Hz
+     */
+    public HPSFreqGen() {
+        this(8000);
+    }
+
+    /**
+     * Allows for specifying the sample rate.
+     *
+     * <p>The product uses 5 harmonics and ignores fundamentals below 40 Hz or weaker than
+     * a quarter of the strongest bin.</p>
+     *
+     * @param newRate The specified sample rate.
+     */
+    public HPSFreqGen(int newRate) {
+        this(newRate, 5);
+    }
+
+    /**
+     * Allows for specifying the sample rate and the number of harmonics.
+     *
+     * @param newRate The specified sample rate.
+     * @param newHarmonics The number of harmonics multiplied together, at least 1
+     * @throws RuntimeException Thrown when the number of harmonics is less than 1
+     */
+    public HPSFreqGen(int newRate, int newHarmonics) throws RuntimeException {
+        sampleRate = newRate;
+        minFrequency = 40.0;
+        minPeakRatio = 0.25;
+        interpolation = PeakInterpolation.NONE;
+        frequency = 0.0;
+        observers = new LinkedList<>();
+        setHarmonics(newHarmonics);
+    }
+
+    /**
+     * Allows for changing the number of harmonics multiplied together.
+     *
+     * <p>More harmonics reject harmonics more reliably, but lower the highest fundamental
+     * that can be found to sampleRate / (2 * harmonics).</p>
+     *
+     * @param newHarmonics The number of harmonics, at least 1
+     * @throws RuntimeException Thrown when the number of harmonics is less than 1
+     */
+    public void setHarmonics(int newHarmonics) throws RuntimeException {
+        if (newHarmonics < 1) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - At least one harmonic must be used\n");
+        }
+
+        harmonics = newHarmonics;
+    }
+
+    /**
+     * Returns the number of harmonics multiplied together.
+     *
+     * @return The number of harmonics
+     */
+    public int getHarmonics() {
+        return harmonics;
+    }
+
+    /**
+     * Allows for ignoring fundamentals below a frequency.
+     *
+     * <p>The lowest bins mostly hold DC offset and rumble, which would otherwise be
+     * multiplied into a false peak.</p>
+     *
+     * @param newMin The lowest fundamental to look for, in Hz
+     * @throws RuntimeException Thrown when the frequency is negative or not finite
+     */
+    public void setMinFrequency(double newMin) throws RuntimeException {
+        if (!(newMin >= 0.0) || Double.isInfinite(newMin)) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - The minimum frequency must be finite and not negative\n");
+        }
+
+        minFrequency = newMin;
+    }
+
+    /**
+     * Allows for ignoring fundamentals that are much weaker than the strongest bin.
+     *
+     * <p>A fundamental is only accepted when a bin next to it has at least this fraction
+     * of the magnitude of the strongest bin. Lower values find fundamentals that are
+     * nearly missing, higher values reject more hum and noise.</p>
+     *
+     * @param newRatio The fraction of the strongest magnitude, from 0 to 1
+     * @throws RuntimeException Thrown when the ratio is outside of 0 to 1
+     */
+    public void setMinPeakRatio(double newRatio) throws RuntimeException {
+        if (!(newRatio >= 0.0 && newRatio <= 1.0)) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - The peak ratio must be from 0 to 1\n");
+        }
+
+        minPeakRatio = newRatio;
+    }
+
+    /**
+     * Allows for refining the fundamental between the centres of two bins.
+     *
+     * @param newInterpolation The estimator to use on the bins around the fundamental
+     * @throws RuntimeException Thrown when the interpolation is null
+     */
+    public void setInterpolation(PeakInterpolation newInterpolation) throws RuntimeException {
+        if (newInterpolation == null) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - The interpolation can't be null\n");
+        }
+
+        interpolation = newInterpolation;
+    }
+
+    @Override
+    public void setArray(ComplexNumber array[]) {
+        setList(Arrays.asList(array));
+    }
+
+    @Override
+    public void setList(List<ComplexNumber> audList) {
+        if (realScratch == null || realScratch.length != audList.size()) {
+            realScratch = new double[audList.size()];
+        }
+
+        int i = 0;
+        for (ComplexNumber num : audList) {
+            realScratch[i++] = num.getReal();
+        }
+
+        samples = realScratch;
+    }
+
+    /**
+     * Allows for specifying real audio samples directly.
+     *
+     * <p>The array is used as it is, without copying it.</p>
+     *
+     * @param newSamples The new audio samples to compute the frequency from
+     */
+    public void setSamples(double[] newSamples) {
+        samples = newSamples;
+    }
+
+    /**
+     * Allows for changing the internal sampleRate variable
+     *
+     * @param newRate The new sample rate to use in computations.
+     */
+    public void setSampleRate(int newRate) {
+        sampleRate = newRate;
+    }
+
+    @Override
+    public double computeFrequency() throws RuntimeException {
+        if (samples == null) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - No input has been set");
+        }
+
+        int size = samples.length;
+        int half = size / 2;
+        // Bin (count - 1) * harmonics is the highest one read, and the peak needs a bin above it
+        int count = Math.min(half / harmonics + 1, half);
+        double binWidth = (double) sampleRate/size;
+        int first = (int) Math.max(1.0, Math.ceil(minFrequency / binWidth));
+        if (first >= count) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - The input is too short for the minimum frequency");
+        }
+
+        spectrum(size);
+        SimdFFT.magnitudes(fftReal, fftImag, magnitudes, half + 1);
+
+        // Multiply the spectrum by itself compressed by each harmonic number. Harmonic h of
+        // a fundamental that lies between bins is up to h/2 bins away from h times its bin,
+        // so the compressed copies read the largest magnitude within that distance.
+        System.arraycopy(magnitudes, 0, product, 0, count);
+        System.arraycopy(magnitudes, 0, widened, 0, half + 1);
+        for (int h = 2, reach = 0; h <= harmonics; h++) {
+            for (; reach < h / 2; reach++) {
+                widen(widened, half + 1);
+            }
+            SimdFFT.multiplyDecimated(product, widened, h, count);
+        }
+
+        // Quiet bins, such as mains hum under a decaying note, can still have a large
+        // product, so only bins near a strong enough magnitude are candidates
+        int strongest = SimdFFT.maxPowerBin(fftReal, fftImag, first, half);
+        double floor = minPeakRatio * magnitudes[strongest];
+
+        int peak = first;
+        double best = -1.0;
+        for (int k = first; k < count; k++) {
+            double near = Math.max(magnitudes[k - 1], Math.max(magnitudes[k], magnitudes[k + 1]));
+            if (best < product[k] && near >= floor) {
+                peak = k;
+                best = product[k];
+            }
+        }
+
+        frequency = (peak + interpolation.offset(fftReal, fftImag, peak, size)) * binWidth;
+
+        return frequency;
+    }
+
+    /**
+     * Replaces each value with the largest of itself and its two neighbours
+     *
+     * @param values The values to widen in place
+     * @param count The number of values
+     */
+    private static void widen(double[] values, int count) {
+        double previous = values[0];
+        for (int k = 0; k < count - 1; k++) {
+            double current = values[k];
+            values[k] = Math.max(Math.max(previous, current), values[k + 1]);
+            previous = current;
+        }
+        values[count - 1] = Math.max(previous, values[count - 1]);
+    }
+
+    /**
+     * Computes bins 0 through size/2 of the input into the internal FFT arrays
+     *
+     * <p>Powers of 2 use {@link PrimitiveFFT#realFFT}, and other sizes an
+     * {@link FFTPlan} that is kept until the size changes.</p>
+     *
+     * @param size The number of samples to transform
+     */
+    private void spectrum(int size) {
+        boolean powerOfTwo = (size & (size - 1)) == 0;
+        int length = powerOfTwo ? size/2 + 1 : size;
+
+        if (fftReal == null || fftReal.length < length) {
+            fftReal = new double[length];
+            fftImag = new double[length];
+        }
+        if (magnitudes == null || magnitudes.length < size/2 + 1) {
+            magnitudes = new double[size/2 + 1];
+            widened = new double[size/2 + 1];
+            product = new double[size/2 + 1];
+        }
+
+        if (powerOfTwo) {
+            PrimitiveFFT.realFFT(samples, size, fftReal, fftImag);
+        }
+        else {
+            if (plan == null || plan.getSize() != size) {
+                plan = new FFTPlan(size);
+            }
+
+            System.arraycopy(samples, 0, fftReal, 0, size);
+            Arrays.fill(fftImag, 0, size, 0.0);
+            plan.execute(fftReal, fftImag);
+        }
+    }
+
+    @Override
+    public void run() {
+        this.computeFrequency();
+    }
+
+    @Override
+    public void addObserver(FreqObserver newObs) {
+        if (newObs != null)
+            observers.add(newObs);
+    }
+
+    @Override
+    public void updateObservers() {
+        ListIterator<FreqObserver> it = observers.listIterator();
+
+        while(it.hasNext()) {
+            it.next().update(frequency);
+        }
+    }
+
+    @Override
+    public double getFrequency() {
+        return frequency;
+    }
+}
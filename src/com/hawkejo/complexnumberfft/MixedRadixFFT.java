@@ -0,0 +1,360 @@
+package com.hawkejo.complexnumberfft;
+
+/**
+ * Computes FFTs of sizes made up of the factors 2, 3, 5 and 7.
+ *
+ * <p>A class that computes the Fourier series using a mixed-radix Cooley-Tukey
+ * algorithm. The size is factored into radix 4, 2, 3, 5 and 7 stages, and each stage
+ * uses a butterfly written out for its radix. This covers the block sizes that come from
+ * timing audio in milliseconds, such as 4410 at 44100 Hz, 960 at 48000 Hz or 1600 at
+ * 16000 Hz, so they can be transformed without padding them to a power of 2. The twiddle
+ * factors are computed once when the object is created. Objects are never modified
+ * afterwards and can be shared between threads as long as each thread uses its own work
+ * arrays.</p>
+ */
+
+class MixedRadixFFT {
+    private static final String CLASS_TAG = "MixedRadixFFT";
+
+    private final int size;
+    private final int[] factors, spans;
+    private final double[] twRe, twIm;
+
+    // Rotation constants for the radix 7 butterfly
+    private static final double C1 = Math.cos(2 * Math.PI / 7), S1 = Math.sin(2 * Math.PI / 7);
+    private static final double C2 = Math.cos(4 * Math.PI / 7), S2 = Math.sin(4 * Math.PI / 7);
+    private static final double C3 = Math.cos(6 * Math.PI / 7), S3 = Math.sin(6 * Math.PI / 7);
+
+    /**
+     * Factors the size and precomputes the twiddle factors for it.
+     *
+     * @param newSize The number of elements that will be transformed
+     * @throws RuntimeException Thrown when the size has a prime factor larger than 7
+     */
+    MixedRadixFFT(int newSize) throws RuntimeException {
+        if (!isSupported(newSize)) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - The size must only have the factors 2, 3, 5 and 7\n");
+        }
+
+        size = newSize;
+
+        // Use as many radix 4 stages as possible since they need the fewest operations
+        int[] found = new int[32];
+        int count = 0, rest = size;
+        for (int radix : new int[] {4, 2, 3, 5, 7}) {
+            while (rest % radix == 0) {
+                found[count++] = radix;
+                rest /= radix;
+            }
+        }
+
+        factors = new int[count];
+        spans = new int[count];
+        for (int i = 0, span = size; i < count; i++) {
+            factors[i] = found[i];
+            span /= found[i];
+            spans[i] = span;
+        }
+
+        twRe = new double[size];
+        twIm = new double[size];
+        for (int k = 0; k < size; k++) {
+            double kth = -2 * k * Math.PI / size;
+            twRe[k] = Math.cos(kth);
+            twIm[k] = Math.sin(kth);
+        }
+    }
+
+    /**
+     * Checks whether a size only has the prime factors 2, 3, 5 and 7.
+     *
+     * @param size The size to check
+     * @return Whether or not the size can be transformed by this class
+     */
+    static boolean isSupported(int size) {
+        if (size < 1) {
+            return false;
+        }
+
+        for (int radix : new int[] {2, 3, 5, 7}) {
+            while (size % radix == 0) {
+                size /= radix;
+            }
+        }
+
+        return size == 1;
+    }
+
+    /**
+     * Returns the size this object transforms.
+     *
+     * @return The transform size
+     */
+    int getSize() {
+        return size;
+    }
+
+    /**
+     * Compute the FFT of the first size elements of the arrays in place.
+     *
+     * @param re The real parts of the input, replaced by the real parts of the output
+     * @param im The imaginary parts of the input, replaced by the imaginary parts of the output
+     * @param workRe Scratch space of at least size elements
+     * @param workIm Scratch space of at least size elements
+     */
+    void transform(double[] re, double[] im, double[] workRe, double[] workIm) {
+        if (size == 1) {
+            return;
+        }
+
+        System.arraycopy(re, 0, workRe, 0, size);
+        System.arraycopy(im, 0, workIm, 0, size);
+        work(re, im, 0, workRe, workIm, 0, 1, 0);
+    }
+
+    /**
+     * Recursively transforms one decimated sub-sequence of the input.
+     *
+     * <p>The sub-sequence starts at inOff and takes every stride'th input element. Each
+     * of its radix sub-sequences is transformed into a contiguous block of the output,
+     * and the blocks are then combined with the butterfly for the radix.</p>
+     *
+     * @param outRe Receives the real parts of the transform
+     * @param outIm Receives the imaginary parts of the transform
+     * @param outOff The first output element to write
+     * @param inRe The real parts of the input
+     * @param inIm The imaginary parts of the input
+     * @param inOff The first input element of the sub-sequence
+     * @param stride The distance between input elements of the sub-sequence
+     * @param stage The index of the factor handled at this level
+     */
+    private void work(double[] outRe, double[] outIm, int outOff,
+                      double[] inRe, double[] inIm, int inOff, int stride, int stage) {
+        int radix = factors[stage], span = spans[stage];
+
+        if (span == 1) {
+            for (int q = 0; q < radix; q++) {
+                outRe[outOff + q] = inRe[inOff + q * stride];
+                outIm[outOff + q] = inIm[inOff + q * stride];
+            }
+        }
+        else {
+            for (int q = 0; q < radix; q++) {
+                work(outRe, outIm, outOff + q * span, inRe, inIm, inOff + q * stride,
+                        stride * radix, stage + 1);
+            }
+        }
+
+        switch (radix) {
+            case 2:
+                butterfly2(outRe, outIm, outOff, stride, span);
+                break;
+            case 3:
+                butterfly3(outRe, outIm, outOff, stride, span);
+                break;
+            case 4:
+                butterfly4(outRe, outIm, outOff, stride, span);
+                break;
+            case 5:
+                butterfly5(outRe, outIm, outOff, stride, span);
+                break;
+            default:
+                butterfly7(outRe, outIm, outOff, stride, span);
+                break;
+        }
+    }
+
+    /**
+     * Combines two blocks of span elements.
+     */
+    private void butterfly2(double[] re, double[] im, int off, int stride, int span) {
+        for (int u = 0; u < span; u++) {
+            int a = off + u, b = a + span, w = u * stride;
+
+            double tRe = re[b] * twRe[w] - im[b] * twIm[w];
+            double tIm = re[b] * twIm[w] + im[b] * twRe[w];
+
+            re[b] = re[a] - tRe;
+            im[b] = im[a] - tIm;
+            re[a] += tRe;
+            im[a] += tIm;
+        }
+    }
+
+    /**
+     * Combines three blocks of span elements.
+     */
+    private void butterfly3(double[] re, double[] im, int off, int stride, int span) {
+        // The imaginary part of e^(-j*2*pi/3)
+        double rot = twIm[stride * span];
+
+        for (int u = 0; u < span; u++) {
+            int a = off + u, b = a + span, c = b + span;
+            int w1 = u * stride, w2 = 2 * w1;
+
+            double s1Re = re[b] * twRe[w1] - im[b] * twIm[w1];
+            double s1Im = re[b] * twIm[w1] + im[b] * twRe[w1];
+            double s2Re = re[c] * twRe[w2] - im[c] * twIm[w2];
+            double s2Im = re[c] * twIm[w2] + im[c] * twRe[w2];
+
+            double sumRe = s1Re + s2Re, sumIm = s1Im + s2Im;
+            double difRe = (s1Re - s2Re) * rot, difIm = (s1Im - s2Im) * rot;
+
+            double midRe = re[a] - 0.5 * sumRe, midIm = im[a] - 0.5 * sumIm;
+            re[a] += sumRe;
+            im[a] += sumIm;
+
+            re[b] = midRe - difIm;
+            im[b] = midIm + difRe;
+            re[c] = midRe + difIm;
+            im[c] = midIm - difRe;
+        }
+    }
+
+    /**
+     * Combines four blocks of span elements.
+     */
+    private void butterfly4(double[] re, double[] im, int off, int stride, int span) {
+        for (int u = 0; u < span; u++) {
+            int a = off + u, b = a + span, c = b + span, d = c + span;
+            int w1 = u * stride, w2 = 2 * w1, w3 = 3 * w1;
+
+            double s0Re = re[b] * twRe[w1] - im[b] * twIm[w1];
+            double s0Im = re[b] * twIm[w1] + im[b] * twRe[w1];
+            double s1Re = re[c] * twRe[w2] - im[c] * twIm[w2];
+            double s1Im = re[c] * twIm[w2] + im[c] * twRe[w2];
+            double s2Re = re[d] * twRe[w3] - im[d] * twIm[w3];
+            double s2Im = re[d] * twIm[w3] + im[d] * twRe[w3];
+
+            double s5Re = re[a] - s1Re, s5Im = im[a] - s1Im;
+            double s3Re = s0Re + s2Re, s3Im = s0Im + s2Im;
+            double s4Re = s0Re - s2Re, s4Im = s0Im - s2Im;
+            double f0Re = re[a] + s1Re, f0Im = im[a] + s1Im;
+
+            re[a] = f0Re + s3Re;
+            im[a] = f0Im + s3Im;
+            re[c] = f0Re - s3Re;
+            im[c] = f0Im - s3Im;
+            re[b] = s5Re + s4Im;
+            im[b] = s5Im - s4Re;
+            re[d] = s5Re - s4Im;
+            im[d] = s5Im + s4Re;
+        }
+    }
+
+    /**
+     * Combines five blocks of span elements.
+     */
+    private void butterfly5(double[] re, double[] im, int off, int stride, int span) {
+        // e^(-j*2*pi/5) and e^(-j*4*pi/5)
+        double yaRe = twRe[stride * span], yaIm = twIm[stride * span];
+        double ybRe = twRe[2 * stride * span], ybIm = twIm[2 * stride * span];
+
+        for (int u = 0; u < span; u++) {
+            int f0 = off + u, f1 = f0 + span, f2 = f1 + span, f3 = f2 + span, f4 = f3 + span;
+            int w1 = u * stride, w2 = 2 * w1, w3 = 3 * w1, w4 = 4 * w1;
+
+            double s0Re = re[f0], s0Im = im[f0];
+            double s1Re = re[f1] * twRe[w1] - im[f1] * twIm[w1];
+            double s1Im = re[f1] * twIm[w1] + im[f1] * twRe[w1];
+            double s2Re = re[f2] * twRe[w2] - im[f2] * twIm[w2];
+            double s2Im = re[f2] * twIm[w2] + im[f2] * twRe[w2];
+            double s3Re = re[f3] * twRe[w3] - im[f3] * twIm[w3];
+            double s3Im = re[f3] * twIm[w3] + im[f3] * twRe[w3];
+            double s4Re = re[f4] * twRe[w4] - im[f4] * twIm[w4];
+            double s4Im = re[f4] * twIm[w4] + im[f4] * twRe[w4];
+
+            double s7Re = s1Re + s4Re, s7Im = s1Im + s4Im;
+            double s10Re = s1Re - s4Re, s10Im = s1Im - s4Im;
+            double s8Re = s2Re + s3Re, s8Im = s2Im + s3Im;
+            double s9Re = s2Re - s3Re, s9Im = s2Im - s3Im;
+
+            re[f0] = s0Re + s7Re + s8Re;
+            im[f0] = s0Im + s7Im + s8Im;
+
+            double s5Re = s0Re + s7Re * yaRe + s8Re * ybRe;
+            double s5Im = s0Im + s7Im * yaRe + s8Im * ybRe;
+            double s6Re = s10Im * yaIm + s9Im * ybIm;
+            double s6Im = -s10Re * yaIm - s9Re * ybIm;
+
+            re[f1] = s5Re - s6Re;
+            im[f1] = s5Im - s6Im;
+            re[f4] = s5Re + s6Re;
+            im[f4] = s5Im + s6Im;
+
+            double s11Re = s0Re + s7Re * ybRe + s8Re * yaRe;
+            double s11Im = s0Im + s7Im * ybRe + s8Im * yaRe;
+            double s12Re = -s10Im * ybIm + s9Im * yaIm;
+            double s12Im = s10Re * ybIm - s9Re * yaIm;
+
+            re[f2] = s11Re + s12Re;
+            im[f2] = s11Im + s12Im;
+            re[f3] = s11Re - s12Re;
+            im[f3] = s11Im - s12Im;
+        }
+    }
+
+    /**
+     * Combines seven blocks of span elements.
+     *
+     * <p>Inputs q and 7 - q are paired into their sum and difference. Output k and 7 - k
+     * then share the cosine terms of the sums and differ only in the sign of the sine
+     * terms of the differences.</p>
+     */
+    private void butterfly7(double[] re, double[] im, int off, int stride, int span) {
+        for (int u = 0; u < span; u++) {
+            int f0 = off + u, f1 = f0 + span, f2 = f1 + span, f3 = f2 + span;
+            int f4 = f3 + span, f5 = f4 + span, f6 = f5 + span;
+            int w1 = u * stride;
+
+            double s0Re = re[f0], s0Im = im[f0];
+            double s1Re = re[f1] * twRe[w1] - im[f1] * twIm[w1];
+            double s1Im = re[f1] * twIm[w1] + im[f1] * twRe[w1];
+            double s2Re = re[f2] * twRe[2 * w1] - im[f2] * twIm[2 * w1];
+            double s2Im = re[f2] * twIm[2 * w1] + im[f2] * twRe[2 * w1];
+            double s3Re = re[f3] * twRe[3 * w1] - im[f3] * twIm[3 * w1];
+            double s3Im = re[f3] * twIm[3 * w1] + im[f3] * twRe[3 * w1];
+            double s4Re = re[f4] * twRe[4 * w1] - im[f4] * twIm[4 * w1];
+            double s4Im = re[f4] * twIm[4 * w1] + im[f4] * twRe[4 * w1];
+            double s5Re = re[f5] * twRe[5 * w1] - im[f5] * twIm[5 * w1];
+            double s5Im = re[f5] * twIm[5 * w1] + im[f5] * twRe[5 * w1];
+            double s6Re = re[f6] * twRe[6 * w1] - im[f6] * twIm[6 * w1];
+            double s6Im = re[f6] * twIm[6 * w1] + im[f6] * twRe[6 * w1];
+
+            double a1Re = s1Re + s6Re, a1Im = s1Im + s6Im, b1Re = s1Re - s6Re, b1Im = s1Im - s6Im;
+            double a2Re = s2Re + s5Re, a2Im = s2Im + s5Im, b2Re = s2Re - s5Re, b2Im = s2Im - s5Im;
+            double a3Re = s3Re + s4Re, a3Im = s3Im + s4Im, b3Re = s3Re - s4Re, b3Im = s3Im - s4Im;
+
+            re[f0] = s0Re + a1Re + a2Re + a3Re;
+            im[f0] = s0Im + a1Im + a2Im + a3Im;
+
+            // X[k] = s0 + sum(a[q] * cos) - j * sum(b[q] * sin), X[7 - k] uses + j instead
+            double tRe = s0Re + a1Re * C1 + a2Re * C2 + a3Re * C3;
+            double tIm = s0Im + a1Im * C1 + a2Im * C2 + a3Im * C3;
+            double vRe = b1Re * S1 + b2Re * S2 + b3Re * S3;
+            double vIm = b1Im * S1 + b2Im * S2 + b3Im * S3;
+            re[f1] = tRe + vIm;
+            im[f1] = tIm - vRe;
+            re[f6] = tRe - vIm;
+            im[f6] = tIm + vRe;
+
+            tRe = s0Re + a1Re * C2 + a2Re * C3 + a3Re * C1;
+            tIm = s0Im + a1Im * C2 + a2Im * C3 + a3Im * C1;
+            vRe = b1Re * S2 - b2Re * S3 - b3Re * S1;
+            vIm = b1Im * S2 - b2Im * S3 - b3Im * S1;
+            re[f2] = tRe + vIm;
+            im[f2] = tIm - vRe;
+            re[f5] = tRe - vIm;
+            im[f5] = tIm + vRe;
+
+            tRe = s0Re + a1Re * C3 + a2Re * C1 + a3Re * C2;
+            tIm = s0Im + a1Im * C3 + a2Im * C1 + a3Im * C2;
+            vRe = b1Re * S3 - b2Re * S1 + b3Re * S2;
+            vIm = b1Im * S3 - b2Im * S1 + b3Im * S2;
+            re[f3] = tRe + vIm;
+            im[f3] = tIm - vRe;
+            re[f4] = tRe - vIm;
+            im[f4] = tIm + vRe;
+        }
+    }
+}
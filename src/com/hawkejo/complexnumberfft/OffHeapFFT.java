@@ -0,0 +1,174 @@
+package com.hawkejo.complexnumberfft;
+
+import java.nio.DoubleBuffer;
+
+/**
+ * Computes FFTs on complex numbers stored outside of the Java heap
+ *
+ * <p>A class that performs the same iterative, in-place radix-2 transform as
+ * {@link PrimitiveFFT}, but on a {@link ComplexBuffer}. The twiddle factors don't come
+ * from the {@link TwiddleCache}, since a cached table for 2^24 points would take more heap
+ * than the buffer saves. Instead each factor is the product of one entry of a coarse and
+ * one entry of a fine table, both with about the square root of the size in entries, and
+ * the factors of each stage are expanded a chunk at a time into a small array that is
+ * reused for every group of the stage. The heap use of a transform therefore stays in the
+ * kilobytes no matter how large the buffer is.</p>
+ */
+
+public class OffHeapFFT {
+    private static final String CLASS_TAG = "OffHeapFFT";
+
+    // The number of twiddle factors expanded at a time for a stage
+    private static final int CHUNK = 4096;
+
+    /**
+     * Only static methods are provided by this class.
+     */
+    private OffHeapFFT() {
+    }
+
+    /**
+     * Compute an FFT in place on the full buffer
+     *
+     * @param buffer The input, replaced by its Fourier series
+     * @throws RuntimeException Thrown when the buffer is closed or its size isn't a power of 2
+     */
+    public static void fft(ComplexBuffer buffer) throws RuntimeException {
+        fft(buffer, buffer.getSize());
+    }
+
+    /**
+     * Compute an FFT in place on the first size elements of the buffer
+     *
+     * @param buffer The input, replaced by its Fourier series
+     * @param size The number of elements to transform
+     * @throws RuntimeException Thrown when the buffer is closed, the size isn't a power of 2 or
+     * the size is larger than the buffer
+     */
+    public static void fft(ComplexBuffer buffer, int size) throws RuntimeException {
+        if (size < 1 || (size & (size - 1)) != 0) {
+            throw new RuntimeException(CLASS_TAG + ".fft: ERROR - The size must be a power of 2\n");
+        }
+        if (size > buffer.getSize()) {
+            throw new RuntimeException(CLASS_TAG + ".fft: ERROR - The buffer is smaller than the size\n");
+        }
+
+        DoubleBuffer re = buffer.real(), im = buffer.imag();
+        if (size < 2) {
+            return;
+        }
+
+        bitReverse(re, im, size);
+
+        // A twiddle index w below size/2 is split into a coarse part w >> fineBits and a
+        // fine part w & fineMask, and e^(-j*2*pi*w/size) is the product of the two factors.
+        int fineBits = (Integer.numberOfTrailingZeros(size) - 1) / 2;
+        int fineMask = (1 << fineBits) - 1;
+        double[][] fine = factors(1 << fineBits, 1, size);
+        double[][] coarse = factors((size >> 1) >> fineBits, 1 << fineBits, size);
+
+        int chunk = Math.min(CHUNK, size >> 1);
+        double[] cos = new double[chunk], sin = new double[chunk];
+
+        for (int span = 2; span <= size; span <<= 1) {
+            int half = span >> 1;
+            int stride = size / span;
+
+            for (int k0 = 0; k0 < half; k0 += chunk) {
+                int count = Math.min(chunk, half - k0);
+                for (int k = 0, w = k0 * stride; k < count; k++, w += stride) {
+                    double cr = coarse[0][w >> fineBits], ci = coarse[1][w >> fineBits];
+                    double fr = fine[0][w & fineMask], fi = fine[1][w & fineMask];
+                    cos[k] = cr * fr - ci * fi;
+                    sin[k] = cr * fi + ci * fr;
+                }
+
+                for (int even = k0; even < size; even += span) {
+                    for (int k = 0; k < count; k++) {
+                        int top = even + k, bottom = top + half;
+                        double br = re.get(bottom), bi = im.get(bottom);
+                        double oddR = cos[k] * br - sin[k] * bi;
+                        double oddI = cos[k] * bi + sin[k] * br;
+                        double tr = re.get(top), ti = im.get(top);
+
+                        re.put(bottom, tr - oddR);
+                        im.put(bottom, ti - oddI);
+                        re.put(top, tr + oddR);
+                        im.put(top, ti + oddI);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the element with the largest magnitude in a range of the buffer
+     *
+     * @param buffer The buffer to search
+     * @param from The first element to search
+     * @param to One past the last element to search
+     * @return The index of the first element with the largest magnitude, or -1 if the range is empty
+     * @throws RuntimeException Thrown when the buffer is closed or the range is outside of it
+     */
+    public static int maxPowerBin(ComplexBuffer buffer, int from, int to) throws RuntimeException {
+        if (from < 0 || to > buffer.getSize()) {
+            throw new RuntimeException(CLASS_TAG + ".maxPowerBin: ERROR - The range is outside of the buffer\n");
+        }
+
+        DoubleBuffer re = buffer.real(), im = buffer.imag();
+        int maxBin = -1;
+        double maxPower = -1.0;
+        for (int k = from; k < to; k++) {
+            double r = re.get(k), i = im.get(k);
+            double power = r * r + i * i;
+            if (maxPower < power) {
+                maxBin = k;
+                maxPower = power;
+            }
+        }
+
+        return maxBin;
+    }
+
+    /**
+     * Computes evenly spaced twiddle factors
+     *
+     * @param count The number of factors
+     * @param step The distance between the exponents of neighbouring factors
+     * @param size The size of the transform
+     * @return The cosines and sines of the factors e^(-j*2*pi*k*step/size)
+     */
+    private static double[][] factors(int count, int step, int size) {
+        double[][] out = new double[2][count];
+        for (int k = 0; k < count; k++) {
+            double angle = -2 * Math.PI * ((double) k * step) / size;
+            out[0][k] = Math.cos(angle);
+            out[1][k] = Math.sin(angle);
+        }
+
+        return out;
+    }
+
+    /**
+     * Put the first size elements of the buffer into bit reversed order
+     *
+     * @param re The real parts to reorder
+     * @param im The imaginary parts to reorder
+     * @param size The number of elements to reorder, must be a power of 2
+     */
+    private static void bitReverse(DoubleBuffer re, DoubleBuffer im, int size) {
+        int shift = 32 - Integer.numberOfTrailingZeros(size);
+        for (int i = 1; i < size; i++) {
+            int j = Integer.reverse(i) >>> shift;
+            if (i < j) {
+                double temp = re.get(i);
+                re.put(i, re.get(j));
+                re.put(j, temp);
+
+                temp = im.get(i);
+                im.put(i, im.get(j));
+                im.put(j, temp);
+            }
+        }
+    }
+}
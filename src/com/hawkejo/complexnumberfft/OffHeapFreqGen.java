@@ -0,0 +1,178 @@
+package com.hawkejo.complexnumberfft;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+
+/**
+ * Computes frequencies from audio data stored outside of the Java heap
+ *
+ * <p>A version of {@link FFTFreqGen} that works on a {@link ComplexBuffer} and computes
+ * the frequency with {@link OffHeapFFT}, so even very large inputs put no pressure on the
+ * garbage collector. A buffer can be filled directly, for example by decoding a WAV file
+ * into {@link ComplexBuffer#real()}, and handed over with
+ * {@link #setBuffer(ComplexBuffer)}, in which case the caller keeps ownership of it and it
+ * is transformed in place. Input set as an array or a List is copied into a buffer owned
+ * by this class, and every computation copies it into a second owned buffer and
+ * transforms that one, so the frequency can be computed again from the same input. Both
+ * owned buffers are closed by {@link #close()}. The size of the input must be a power of
+ * 2.</p>
+ */
+
+public class OffHeapFreqGen implements Runnable, FreqObservable, FrequencyGenerator, AutoCloseable {
+    private ComplexBuffer buffer, work;
+    private boolean ownsBuffer;
+    private double frequency;
+    private int sampleRate;
+    private final String CLASS_TAG = "OffHeapFreqGen";
+    private List<FreqObserver> observers;
+
+    /**
+     * Defaults the sampleRate variable to 8000 Hz
+     */
+    public OffHeapFreqGen() {
+        this(8000);
+    }
+
+    /**
+     * Allows for specifying the sample rate.
+     *
+     * @param newRate The specified sample rate.
+     */
+    public OffHeapFreqGen(int newRate) {
+        buffer = null;
+        work = null;
+        ownsBuffer = false;
+        sampleRate = newRate;
+        frequency = 0.0;
+        observers = new LinkedList<>();
+    }
+
+    @Override
+    public void setArray(ComplexNumber array[]) {
+        setList(Arrays.asList(array));
+    }
+
+    @Override
+    public void setList(List<ComplexNumber> audList) {
+        checkSize(audList.size());
+
+        if (!ownsBuffer || buffer.getSize() != audList.size()) {
+            release();
+            buffer = new ComplexBuffer(audList.size());
+            work = new ComplexBuffer(audList.size());
+            ownsBuffer = true;
+        }
+
+        buffer.copyIn(audList);
+    }
+
+    /**
+     * Allows for computing the frequency of a buffer filled by the caller.
+     *
+     * <p>The buffer is replaced by its Fourier series when the frequency is computed, so
+     * it has to be filled again before each computation. The caller keeps ownership of
+     * the buffer and is responsible for closing it.</p>
+     *
+     * @param newBuffer The buffer holding the audio data
+     * @throws RuntimeException Thrown when the buffer size isn't a power of 2
+     */
+    public void setBuffer(ComplexBuffer newBuffer) throws RuntimeException {
+        checkSize(newBuffer.getSize());
+
+        release();
+        buffer = newBuffer;
+        ownsBuffer = false;
+    }
+
+    /**
+     * Allows for changing the internal sampleRate variable
+     *
+     * @param newRate The new sample rate to use in computations.
+     */
+    public void setSampleRate(int newRate) {
+        sampleRate = newRate;
+    }
+
+    /**
+     * Makes sure a new input size is usable by the off-heap FFT
+     *
+     * @param newSize The size of the new input
+     * @throws RuntimeException Thrown when the size isn't a power of 2
+     */
+    private void checkSize(int newSize) throws RuntimeException {
+        if (newSize < 2 || (newSize & (newSize - 1)) != 0) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - The input size must be a power of 2\n");
+        }
+    }
+
+    /**
+     * Closes the current buffers if they are owned by this class
+     */
+    private void release() {
+        if (ownsBuffer) {
+            buffer.close();
+            work.close();
+        }
+        buffer = null;
+        work = null;
+        ownsBuffer = false;
+    }
+
+    @Override
+    public double computeFrequency() throws RuntimeException {
+        if (buffer == null) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - No input has been set");
+        }
+
+        // A buffer owned by this class keeps the input, so only its copy is transformed
+        int size = buffer.getSize();
+        ComplexBuffer target = buffer;
+        if (ownsBuffer) {
+            work.copyIn(buffer, size);
+            target = work;
+        }
+        OffHeapFFT.fft(target, size);
+
+        frequency = OffHeapFFT.maxPowerBin(target, 0, size/2) * ((double) sampleRate/size);
+
+        return frequency;
+    }
+
+    /**
+     * Closes the buffers owned by this class.
+     *
+     * <p>A buffer set with {@link #setBuffer(ComplexBuffer)} is left open, since it
+     * belongs to the caller. A new input has to be set before computing again.</p>
+     */
+    @Override
+    public void close() {
+        release();
+    }
+
+    @Override
+    public void run() {
+        this.computeFrequency();
+    }
+
+    @Override
+    public void addObserver(FreqObserver newObs) {
+        if (newObs != null)
+            observers.add(newObs);
+    }
+
+    @Override
+    public void updateObservers() {
+        ListIterator<FreqObserver> it = observers.listIterator();
+
+        while(it.hasNext()) {
+            it.next().update(frequency);
+        }
+    }
+
+    @Override
+    public double getFrequency() {
+        return frequency;
+    }
+}
@@ -0,0 +1,245 @@
+package com.hawkejo.complexnumberfft;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Computes FFTs on primitive arrays using a fork/join pool.
+ *
+ * <p>A class that performs the same in-place radix-2 transform as {@link PrimitiveFFT},
+ * but splits the work into {@link RecursiveAction} tasks. After the input is put into
+ * bit reversed order, each half of a block is an independent sub-transform, so the two
+ * halves are forked and then combined. The splitting stops once a block is small enough
+ * to keep every worker of the pool busy, so the depth follows both the input size and
+ * the parallelism of the pool. Large combine steps are split into ranges of butterflies
+ * as well. No threads are created per call; the shared common pool is used unless a pool
+ * is specified.</p>
+ */
+
+public class ParallelFFT {
+    private static final String CLASS_TAG = "ParallelFFT";
+
+    // Blocks smaller than this are never split, since the task overhead would outweigh
+    // the work. 2^13 elements of real and imaginary parts fit in a typical L2 cache.
+    private static final int MIN_BLOCK = 1 << 13;
+    // The number of tasks per worker, so the pool can balance uneven workers
+    private static final int TASKS_PER_WORKER = 4;
+
+    /**
+     * Only static methods are provided by this class.
+     */
+    private ParallelFFT() {
+    }
+
+    /**
+     * Compute an FFT in place using the common fork/join pool
+     *
+     * @param re The real parts of the input, replaced by the real parts of the output
+     * @param im The imaginary parts of the input, replaced by the imaginary parts of the output
+     * @param size The number of elements to transform, must be a power of 2
+     * @throws RuntimeException Thrown when the size isn't a power of 2 or is larger than the arrays
+     */
+    public static void fft(double[] re, double[] im, int size) throws RuntimeException {
+        fft(re, im, size, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Compute an FFT in place using the specified fork/join pool
+     *
+     * @param re The real parts of the input, replaced by the real parts of the output
+     * @param im The imaginary parts of the input, replaced by the imaginary parts of the output
+     * @param size The number of elements to transform, must be a power of 2
+     * @param pool The pool to run the tasks in
+     * @throws RuntimeException Thrown when the size isn't a power of 2 or is larger than the arrays
+     */
+    public static void fft(double[] re, double[] im, int size, ForkJoinPool pool)
+            throws RuntimeException {
+        if (size < 1 || (size & (size - 1)) != 0) {
+            throw new RuntimeException(CLASS_TAG + ".fft: ERROR - The size must be a power of 2\n");
+        }
+        if (size > re.length || size > im.length) {
+            throw new RuntimeException(CLASS_TAG + ".fft: ERROR - The arrays are smaller than the size\n");
+        }
+
+        TwiddleTable table = TwiddleCache.get(size);
+        int block = blockSize(size, pool.getParallelism());
+
+        if (block >= size) {
+            PrimitiveFFT.transform(re, im, size, table);
+            return;
+        }
+
+        pool.invoke(new BitReverseTask(re, im, size, 0, size, block));
+        pool.invoke(new TransformTask(re, im, 0, size, table, block));
+    }
+
+    /**
+     * Compute an inverse FFT in place using the common fork/join pool
+     *
+     * @param re The real parts of the input, replaced by the real parts of the output
+     * @param im The imaginary parts of the input, replaced by the imaginary parts of the output
+     * @param size The number of elements to transform, must be a power of 2
+     * @throws RuntimeException Thrown when the size isn't a power of 2 or is larger than the arrays
+     */
+    public static void ifft(double[] re, double[] im, int size) throws RuntimeException {
+        ifft(re, im, size, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Compute an inverse FFT in place using the specified fork/join pool
+     *
+     * <p>The input is conjugated in place, transformed forward with the pool, and then
+     * conjugated and divided by the size in place, the same as
+     * {@link PrimitiveFFT#ifft(double[], double[], int)}.</p>
+     *
+     * @param re The real parts of the input, replaced by the real parts of the output
+     * @param im The imaginary parts of the input, replaced by the imaginary parts of the output
+     * @param size The number of elements to transform, must be a power of 2
+     * @param pool The pool to run the tasks in
+     * @throws RuntimeException Thrown when the size isn't a power of 2 or is larger than the arrays
+     */
+    public static void ifft(double[] re, double[] im, int size, ForkJoinPool pool)
+            throws RuntimeException {
+        if (size < 1 || (size & (size - 1)) != 0) {
+            throw new RuntimeException(CLASS_TAG + ".ifft: ERROR - The size must be a power of 2\n");
+        }
+        if (size > re.length || size > im.length) {
+            throw new RuntimeException(CLASS_TAG + ".ifft: ERROR - The arrays are smaller than the size\n");
+        }
+
+        PrimitiveFFT.conjugate(im, size);
+        fft(re, im, size, pool);
+        PrimitiveFFT.conjugateScale(re, im, size);
+    }
+
+    /**
+     * Picks the size of the blocks that are transformed without splitting
+     *
+     * @param size The size of the full transform
+     * @param parallelism The number of workers in the pool
+     * @return The block size, a power of 2
+     */
+    static int blockSize(int size, int parallelism) {
+        int tasks = Math.max(parallelism, 1) * TASKS_PER_WORKER;
+        int block = Integer.highestOneBit(Math.max(size / tasks, 1));
+
+        return Math.max(block, MIN_BLOCK);
+    }
+
+    /**
+     * Puts a range of elements into bit reversed order.
+     *
+     * <p>Each pair of elements is swapped by the task owning the lower index, so ranges
+     * can be processed at the same time without touching the same pair.</p>
+     */
+    private static class BitReverseTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] re, im;
+        private final int size, from, to, block;
+
+        BitReverseTask(double[] re, double[] im, int size, int from, int to, int block) {
+            this.re = re;
+            this.im = im;
+            this.size = size;
+            this.from = from;
+            this.to = to;
+            this.block = block;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > block) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new BitReverseTask(re, im, size, from, middle, block),
+                        new BitReverseTask(re, im, size, middle, to, block));
+                return;
+            }
+
+            int shift = 32 - Integer.numberOfTrailingZeros(size);
+            for (int i = from; i < to; i++) {
+                int j = Integer.reverse(i) >>> shift;
+                if (i < j) {
+                    double temp = re[i];
+                    re[i] = re[j];
+                    re[j] = temp;
+
+                    temp = im[i];
+                    im[i] = im[j];
+                    im[j] = temp;
+                }
+            }
+        }
+    }
+
+    /**
+     * Transforms one block of bit reversed elements.
+     *
+     * <p>Blocks larger than the block size fork a task for each half and then combine
+     * the two halves. Smaller blocks are transformed in the current thread.</p>
+     */
+    private static class TransformTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] re, im;
+        private final int offset, size, block;
+        private final TwiddleTable table;
+
+        TransformTask(double[] re, double[] im, int offset, int size, TwiddleTable table, int block) {
+            this.re = re;
+            this.im = im;
+            this.offset = offset;
+            this.size = size;
+            this.table = table;
+            this.block = block;
+        }
+
+        @Override
+        protected void compute() {
+            if (size <= block) {
+                PrimitiveFFT.butterflies(re, im, offset, size, table);
+                return;
+            }
+
+            int half = size >> 1;
+            invokeAll(new TransformTask(re, im, offset, half, table, block),
+                    new TransformTask(re, im, offset + half, half, table, block));
+            new CombineTask(re, im, offset, size, 0, half, table, block).compute();
+        }
+    }
+
+    /**
+     * Computes a range of the butterflies that combine two halves of a block.
+     */
+    private static class CombineTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] re, im;
+        private final int offset, size, from, to, block;
+        private final TwiddleTable table;
+
+        CombineTask(double[] re, double[] im, int offset, int size, int from, int to,
+                    TwiddleTable table, int block) {
+            this.re = re;
+            this.im = im;
+            this.offset = offset;
+            this.size = size;
+            this.from = from;
+            this.to = to;
+            this.table = table;
+            this.block = block;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > block) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new CombineTask(re, im, offset, size, from, middle, table, block),
+                        new CombineTask(re, im, offset, size, middle, to, table, block));
+                return;
+            }
+
+            PrimitiveFFT.combine(re, im, offset, size, from, to, table);
+        }
+    }
+}
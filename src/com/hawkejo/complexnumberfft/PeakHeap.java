@@ -0,0 +1,256 @@
+package com.hawkejo.complexnumberfft;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Keeps the strongest local maxima of a spectrum in a heap of bounded size
+ *
+ * <p>The heap holds at most a fixed number of bins and keeps the weakest of them at the
+ * root, so a new bin only has to beat the root to get in, and most bins of a spectrum
+ * are rejected with one comparison. Finding the K strongest peaks of N bins this way
+ * takes one pass and O(N + K log K) time instead of sorting the whole spectrum. Large
+ * spectra are split into chunks that are searched as {@link RecursiveTask} tasks on a
+ * fork/join pool, and the heaps of the chunks are merged. Bins with equal power are
+ * ordered by index, so the result doesn't depend on how the spectrum was split.</p>
+ */
+
+final class PeakHeap {
+    // Chunks smaller than this many bins are never split, since the task overhead
+    // would outweigh the work.
+    private static final int MIN_BLOCK = 1 << 15;
+    // The number of tasks per worker, so the pool can balance uneven workers
+    private static final int TASKS_PER_WORKER = 4;
+
+    private final int[] bins;
+    private final double[] powers;
+    private int size;
+
+    /**
+     * Creates an empty heap.
+     *
+     * @param capacity The largest number of bins to keep, at least 1
+     */
+    PeakHeap(int capacity) {
+        bins = new int[capacity];
+        powers = new double[capacity];
+        size = 0;
+    }
+
+    /**
+     * Finds the strongest local maxima of a range of bins
+     *
+     * <p>A bin is a local maximum when its power is greater than that of the bin below it
+     * and not less than that of the bin above it, so only the first bin of a flat top
+     * counts. Neighbours outside of the array are ignored. Ranges of many bins are split
+     * into chunks that run on the common fork/join pool.</p>
+     *
+     * @param re The real parts of the bins
+     * @param im The imaginary parts of the bins
+     * @param from The first bin to search
+     * @param to One past the last bin to search
+     * @param length The number of bins in the arrays, which bounds the neighbours
+     * @param capacity The largest number of peaks to keep
+     * @return The heap holding the strongest peaks
+     */
+    static PeakHeap search(double[] re, double[] im, int from, int to, int length, int capacity) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int tasks = Math.max(pool.getParallelism(), 1) * TASKS_PER_WORKER;
+        int block = Math.max((to - from) / tasks, MIN_BLOCK);
+
+        if (to - from <= block) {
+            PeakHeap heap = new PeakHeap(capacity);
+            heap.scan(re, im, from, to, length);
+            return heap;
+        }
+
+        return pool.invoke(new SearchTask(re, im, from, to, length, capacity, block));
+    }
+
+    /**
+     * Offers every local maximum of a range of bins to the heap
+     *
+     * @param re The real parts of the bins
+     * @param im The imaginary parts of the bins
+     * @param from The first bin to search
+     * @param to One past the last bin to search
+     * @param length The number of bins in the arrays
+     */
+    private void scan(double[] re, double[] im, int from, int to, int length) {
+        if (from >= to) {
+            return;
+        }
+
+        double below = from > 0 ? power(re, im, from - 1) : Double.NEGATIVE_INFINITY;
+        double current = power(re, im, from);
+        for (int k = from; k < to; k++) {
+            double above = k + 1 < length ? power(re, im, k + 1) : Double.NEGATIVE_INFINITY;
+            if (current > below && current >= above) {
+                offer(k, current);
+            }
+            below = current;
+            current = above;
+        }
+    }
+
+    /**
+     * Adds a bin if the heap has room or the bin is stronger than the weakest one kept
+     *
+     * @param bin The index of the bin
+     * @param power The squared magnitude of the bin
+     */
+    void offer(int bin, double power) {
+        if (size < bins.length) {
+            bins[size] = bin;
+            powers[size] = power;
+            up(size++);
+        }
+        else if (weaker(0, bin, power)) {
+            bins[0] = bin;
+            powers[0] = power;
+            down(0);
+        }
+    }
+
+    /**
+     * Offers every bin of another heap to this one
+     *
+     * @param other The heap to take the bins from
+     */
+    void addAll(PeakHeap other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.bins[i], other.powers[i]);
+        }
+    }
+
+    /**
+     * Empties the heap into an array, from the strongest bin to the weakest
+     *
+     * @return The bins that were kept
+     */
+    int[] drain() {
+        int[] sorted = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            sorted[i] = bins[0];
+            size--;
+            bins[0] = bins[size];
+            powers[0] = powers[size];
+            down(0);
+        }
+
+        return sorted;
+    }
+
+    /**
+     * Checks whether the bin at a position of the heap is weaker than another bin
+     *
+     * @param i The position in the heap
+     * @param bin The index of the other bin
+     * @param power The squared magnitude of the other bin
+     * @return True when the bin in the heap is weaker
+     */
+    private boolean weaker(int i, int bin, double power) {
+        return powers[i] < power || (powers[i] == power && bins[i] > bin);
+    }
+
+    /**
+     * Moves a bin towards the root until its parent is weaker
+     *
+     * @param i The position of the bin in the heap
+     */
+    private void up(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!weaker(i, bins[parent], powers[parent])) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    /**
+     * Moves a bin away from the root until both of its children are stronger
+     *
+     * @param i The position of the bin in the heap
+     */
+    private void down(int i) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                return;
+            }
+            if (child + 1 < size && weaker(child + 1, bins[child], powers[child])) {
+                child++;
+            }
+            if (!weaker(child, bins[i], powers[i])) {
+                return;
+            }
+            swap(i, child);
+            i = child;
+        }
+    }
+
+    /**
+     * Swaps two positions of the heap
+     *
+     * @param i The first position
+     * @param j The second position
+     */
+    private void swap(int i, int j) {
+        int bin = bins[i];
+        bins[i] = bins[j];
+        bins[j] = bin;
+        double power = powers[i];
+        powers[i] = powers[j];
+        powers[j] = power;
+    }
+
+    /**
+     * Computes the squared magnitude of a bin
+     *
+     * @param re The real parts of the bins
+     * @param im The imaginary parts of the bins
+     * @param k The bin
+     * @return The squared magnitude
+     */
+    private static double power(double[] re, double[] im, int k) {
+        return re[k] * re[k] + im[k] * im[k];
+    }
+
+    /**
+     * Searches a contiguous range of bins.
+     */
+    private static class SearchTask extends RecursiveTask<PeakHeap> {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] re, im;
+        private final int from, to, length, capacity, block;
+
+        SearchTask(double[] re, double[] im, int from, int to, int length, int capacity, int block) {
+            this.re = re;
+            this.im = im;
+            this.from = from;
+            this.to = to;
+            this.length = length;
+            this.capacity = capacity;
+            this.block = block;
+        }
+
+        @Override
+        protected PeakHeap compute() {
+            if (to - from > block) {
+                int middle = (from + to) >>> 1;
+                SearchTask upper = new SearchTask(re, im, middle, to, length, capacity, block);
+                upper.fork();
+                PeakHeap heap = new SearchTask(re, im, from, middle, length, capacity, block).compute();
+                heap.addAll(upper.join());
+                return heap;
+            }
+
+            PeakHeap heap = new PeakHeap(capacity);
+            heap.scan(re, im, from, to, length);
+            return heap;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.hawkejo.complexnumberfft;
+
+/**
+ * Ways of estimating where a spectral peak lies between two bins
+ *
+ * <p>An FFT of N samples only has a bin every sampleRate/N Hz, so taking the centre of the
+ * strongest bin is off by up to half of that. Each estimator looks at the strongest bin
+ * and its two neighbours and returns the offset of the true peak from the centre of the
+ * strongest bin, in bins. This lets a small FFT locate a tone as accurately as a much
+ * larger one. The estimators are derived for an unwindowed (rectangular) transform, so
+ * with a {@link WindowFunction} the complex estimators use the spectrum of the window
+ * instead, and the parabola is fitted through the logarithms of the magnitudes.</p>
+ */
+
+public enum PeakInterpolation {
+    /**
+     * Uses the centre of the strongest bin.
+     */
+    NONE {
+        @Override
+        double estimate(double[] re, double[] im, int bin, int size) {
+            return 0.0;
+        }
+
+        @Override
+        double estimate(double[] re, double[] im, int bin, int size, WindowFunction window) {
+            return 0.0;
+        }
+    },
+
+    /**
+     * Fits a parabola through the magnitudes of the three bins.
+     *
+     * <p>The cheapest estimator, with an error of a few percent of a bin. With a window,
+     * the main lobe is close to a Gaussian, so the parabola is fitted through the
+     * logarithms of the magnitudes, which is exact for a Gaussian.</p>
+     */
+    PARABOLIC {
+        @Override
+        double estimate(double[] re, double[] im, int bin, int size) {
+            double before = Math.hypot(re[bin - 1], im[bin - 1]);
+            double peak = Math.hypot(re[bin], im[bin]);
+            double after = Math.hypot(re[bin + 1], im[bin + 1]);
+
+            return 0.5 * (before - after) / (before - 2 * peak + after);
+        }
+
+        @Override
+        double estimate(double[] re, double[] im, int bin, int size, WindowFunction window) {
+            if (window == WindowFunction.NONE) {
+                return estimate(re, im, bin, size);
+            }
+
+            double before = Math.log(Math.hypot(re[bin - 1], im[bin - 1]));
+            double peak = Math.log(Math.hypot(re[bin], im[bin]));
+            double after = Math.log(Math.hypot(re[bin + 1], im[bin + 1]));
+
+            return 0.5 * (before - after) / (before - 2 * peak + after);
+        }
+    },
+
+    /**
+     * Quinn's second estimator, from the ratios of the complex neighbours to the peak.
+     *
+     * <p>Close to the best possible accuracy for a single tone in white noise.</p>
+     */
+    QUINN {
+        @Override
+        double estimate(double[] re, double[] im, int bin, int size) {
+            double power = re[bin] * re[bin] + im[bin] * im[bin];
+            double ratioBefore = (re[bin - 1] * re[bin] + im[bin - 1] * im[bin]) / power;
+            double ratioAfter = (re[bin + 1] * re[bin] + im[bin + 1] * im[bin]) / power;
+
+            double before = ratioBefore / (1 - ratioBefore);
+            double after = -ratioAfter / (1 - ratioAfter);
+
+            return (before + after) / 2 + tau(after * after) - tau(before * before);
+        }
+    },
+
+    /**
+     * Jacobsen's estimator on the complex bins, with Candan's bias correction.
+     *
+     * <p>Nearly as accurate as {@link #QUINN} without any logarithms.</p>
+     */
+    JACOBSEN {
+        @Override
+        double estimate(double[] re, double[] im, int bin, int size) {
+            // Re((X[k-1] - X[k+1]) / (2X[k] - X[k-1] - X[k+1]))
+            double numR = re[bin - 1] - re[bin + 1], numI = im[bin - 1] - im[bin + 1];
+            double denR = 2 * re[bin] - re[bin - 1] - re[bin + 1];
+            double denI = 2 * im[bin] - im[bin - 1] - im[bin + 1];
+            double delta = (numR * denR + numI * denI) / (denR * denR + denI * denI);
+
+            double step = Math.PI / size;
+            return delta * Math.tan(step) / step;
+        }
+    };
+
+    /**
+     * Estimates the offset of the peak without checking the result
+     *
+     * @param re The real parts of the bins
+     * @param im The imaginary parts of the bins
+     * @param bin The strongest bin, which must have a bin on either side
+     * @param size The number of samples that were transformed
+     * @return The offset of the peak from the centre of the bin, in bins
+     */
+    abstract double estimate(double[] re, double[] im, int bin, int size);
+
+    /**
+     * Estimates the offset of the peak in a windowed spectrum without checking the result
+     *
+     * <p>The estimators of the complex bins are only exact without a window, so with one
+     * the offset is found from the spectrum of the window by
+     * {@link WindowFunction#offset(double[], double[], int)} instead.</p>
+     *
+     * @param re The real parts of the bins
+     * @param im The imaginary parts of the bins
+     * @param bin The strongest bin, which must have a bin on either side
+     * @param size The number of samples that were transformed
+     * @param window The window the samples were weighted with
+     * @return The offset of the peak from the centre of the bin, in bins
+     */
+    double estimate(double[] re, double[] im, int bin, int size, WindowFunction window) {
+        if (window == WindowFunction.NONE) {
+            return estimate(re, im, bin, size);
+        }
+
+        return window.offset(re, im, bin);
+    }
+
+    /**
+     * Estimates the offset of the peak from the centre of the strongest bin.
+     *
+     * <p>The result is limited to half a bin either way, since the peak would otherwise
+     * be closer to a neighbouring bin, and is 0 when the bins give no usable estimate,
+     * for example when they are all 0.</p>
+     *
+     * @param re The real parts of the bins
+     * @param im The imaginary parts of the bins
+     * @param bin The strongest bin, which must have a bin on either side
+     * @param size The number of samples that were transformed
+     * @return The offset of the peak from the centre of the bin, in bins
+     */
+    public double offset(double[] re, double[] im, int bin, int size) {
+        return offset(re, im, bin, size, WindowFunction.NONE);
+    }
+
+    /**
+     * Estimates the offset of the peak from the centre of the strongest bin of a windowed
+     * spectrum.
+     *
+     * <p>Limited the same way as {@link #offset(double[], double[], int, int)}.</p>
+     *
+     * @param re The real parts of the bins
+     * @param im The imaginary parts of the bins
+     * @param bin The strongest bin, which must have a bin on either side
+     * @param size The number of samples that were transformed
+     * @param window The window the samples were weighted with
+     * @return The offset of the peak from the centre of the bin, in bins
+     */
+    public double offset(double[] re, double[] im, int bin, int size, WindowFunction window) {
+        double offset = estimate(re, im, bin, size, window);
+        if (Double.isNaN(offset) || Double.isInfinite(offset)) {
+            return 0.0;
+        }
+
+        return Math.max(-0.5, Math.min(0.5, offset));
+    }
+
+    /**
+     * The correction term of Quinn's second estimator
+     *
+     * @param x The squared first estimate
+     * @return The correction
+     */
+    private static double tau(double x) {
+        double root = Math.sqrt(2.0 / 3.0);
+        return 0.25 * Math.log(3 * x * x + 6 * x + 1)
+                - Math.sqrt(6) / 24 * Math.log((x + 1 - root) / (x + 1 + root));
+    }
+}
@@ -0,0 +1,229 @@
+package com.hawkejo.complexnumberfft;
+
+/**
+ * Lowers the sample rate of a block of samples by an integer factor.
+ *
+ * <p>Keeping only every factor-th sample would fold everything above the new Nyquist
+ * frequency down onto the frequencies below it, so the samples are first passed through
+ * a low pass FIR filter. The filter is a sinc tapered by a Kaiser window, with about
+ * 80 dB of attenuation from the new Nyquist frequency up. Its cutoff sits below the new
+ * Nyquist frequency by half of the transition band, so the whole transition band is
+ * below it and nothing folds back onto the kept frequencies. Only the
+ * outputs that are kept are ever computed, which is the work of a polyphase decimator:
+ * each output takes tapsPerPhase taps from each of the factor phases of the filter, so
+ * the cost is tapsPerPhase multiply-adds per input sample, which run as vectorized dot
+ * products through {@link SimdFFT}. The filter has linear phase and its delay is
+ * removed, so output m lines up with input m * factor. Samples before the start or after
+ * the end of the block count as 0.</p>
+ *
+ * <p>With the default 24 taps per phase, frequencies up to about 0.6 times the new
+ * Nyquist frequency pass within 0.01 dB. Above that they are weakened more and more, by
+ * about 7 dB at 0.8 and 23 dB at 0.9 times the new Nyquist frequency, but they are
+ * never aliases. A decimator is immutable and can be used from any number of threads at
+ * the same time.</p>
+ */
+
+public final class PolyphaseDecimator {
+    private static final String CLASS_TAG = "PolyphaseDecimator";
+    private static final int DEFAULT_TAPS_PER_PHASE = 24;
+    // Gives about 80 dB of stop band attenuation
+    private static final double KAISER_BETA = 8.0;
+    private static final double ATTENUATION_DB = 80.0;
+    // The cutoff never drops below this fraction of the new Nyquist frequency, which
+    // only matters for filters too short to reach the attenuation
+    private static final double MIN_CUTOFF_RATIO = 0.5;
+
+    private final int factor;
+    private final int tapsPerPhase;
+    private final int delay;
+    private final double[] taps;
+
+    /**
+     * Creates a decimator with the default filter length.
+     *
+     * @param newFactor The factor to lower the sample rate by, at least 1
+     * @throws RuntimeException Thrown when the factor is less than 1
+     */
+    public PolyphaseDecimator(int newFactor) throws RuntimeException {
+        this(newFactor, DEFAULT_TAPS_PER_PHASE);
+    }
+
+    /**
+     * Creates a decimator with a filter of tapsPerPhase * factor + 1 taps.
+     *
+     * <p>More taps make the transition from the pass band to the stop band narrower, so
+     * more of the new bandwidth is usable, at the cost of more work per sample. With 32
+     * taps per phase, frequencies up to about 0.7 times the new Nyquist frequency pass
+     * within 0.01 dB.</p>
+     *
+     * @param newFactor The factor to lower the sample rate by, at least 1
+     * @param newTapsPerPhase The number of taps in each phase of the filter, at least 2
+     * @throws RuntimeException Thrown when the factor or the number of taps is too small
+     */
+    public PolyphaseDecimator(int newFactor, int newTapsPerPhase) throws RuntimeException {
+        if (newFactor < 1) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - The factor must be at least 1\n");
+        }
+        if (newTapsPerPhase < 2) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - At least 2 taps per phase are needed\n");
+        }
+
+        factor = newFactor;
+        tapsPerPhase = newTapsPerPhase;
+        delay = factor == 1 ? 0 : tapsPerPhase * factor / 2;
+        taps = factor == 1 ? new double[] {1.0} : design(factor, delay);
+    }
+
+    /**
+     * Designs the Kaiser windowed sinc filter
+     *
+     * @param factor The decimation factor
+     * @param half The number of taps on either side of the centre tap
+     * @return The 2 * half + 1 taps, scaled to a gain of 1 at DC
+     */
+    private static double[] design(int factor, int half) {
+        double[] taps = new double[2 * half + 1];
+        double scale = besselI0(KAISER_BETA);
+        double cutoff = Math.PI / factor * cutoffRatio(2 * half, factor);
+        double sum = 0.0;
+
+        for (int n = 0; n <= 2 * half; n++) {
+            int offset = n - half;
+            double sinc = offset == 0 ? cutoff / Math.PI : Math.sin(cutoff * offset) / (Math.PI * offset);
+            double position = (double) offset / half;
+            double window = besselI0(KAISER_BETA * Math.sqrt(1.0 - position * position)) / scale;
+
+            taps[n] = sinc * window;
+            sum += taps[n];
+        }
+        for (int n = 0; n < taps.length; n++) {
+            taps[n] /= sum;
+        }
+
+        return taps;
+    }
+
+    /**
+     * Picks the cutoff so that the stop band starts at the new Nyquist frequency
+     *
+     * <p>A Kaiser window of the given order makes a transition band about
+     * (A - 7.95) / (2.285 * order) radians wide, for an attenuation of A dB. Centring
+     * the cutoff half of that below the new Nyquist frequency puts the whole transition
+     * band below it, so nothing above it can fold back without being attenuated.</p>
+     *
+     * @param order The order of the filter, one less than the number of taps
+     * @param factor The decimation factor
+     * @return The cutoff as a fraction of the new Nyquist frequency
+     */
+    private static double cutoffRatio(int order, int factor) {
+        double transition = (ATTENUATION_DB - 7.95) / (2.285 * order) / (Math.PI / factor);
+
+        return Math.max(MIN_CUTOFF_RATIO, 1.0 - transition / 2);
+    }
+
+    /**
+     * Computes the modified Bessel function of the first kind of order 0
+     *
+     * @param x The argument
+     * @return I0(x)
+     */
+    private static double besselI0(double x) {
+        double sum = 1.0, term = 1.0;
+        for (int k = 1; term > 1e-17 * sum; k++) {
+            double half = x / (2 * k);
+            term *= half * half;
+            sum += term;
+        }
+
+        return sum;
+    }
+
+    /**
+     * Returns the factor that the sample rate is lowered by.
+     *
+     * @return The decimation factor
+     */
+    public int getFactor() {
+        return factor;
+    }
+
+    /**
+     * Returns the number of taps in each phase of the filter.
+     *
+     * @return The taps per phase
+     */
+    public int getTapsPerPhase() {
+        return tapsPerPhase;
+    }
+
+    /**
+     * Returns the number of samples that a block of samples is lowered to.
+     *
+     * @param length The number of input samples
+     * @return length / factor, rounded down
+     */
+    public int outputLength(int length) {
+        return length / factor;
+    }
+
+    /**
+     * Filters and decimates a block of samples.
+     *
+     * @param input The samples at the original rate
+     * @param length The number of input samples to use
+     * @param output Receives outputLength(length) samples at the lower rate
+     * @throws RuntimeException Thrown when the arrays are too small for the length
+     */
+    public void decimate(double[] input, int length, double[] output) throws RuntimeException {
+        decimate(input, length, output, null);
+    }
+
+    /**
+     * Filters and decimates a block of samples, multiplying each output by a weight
+     *
+     * <p>Lets an analysis window be applied in the same pass that produces the output.</p>
+     *
+     * @param input The samples at the original rate
+     * @param length The number of input samples to use
+     * @param output Receives outputLength(length) samples at the lower rate
+     * @param weights The weight of each output sample, or null for none
+     * @throws RuntimeException Thrown when the arrays are too small for the length
+     */
+    void decimate(double[] input, int length, double[] output, double[] weights) throws RuntimeException {
+        decimate(input, 0, length, output, 0, weights);
+    }
+
+    /**
+     * Filters and decimates a block of samples that starts at an offset
+     *
+     * <p>Lets consecutive frames of a recording be decimated one at a time, each as its
+     * own block, without copying them.</p>
+     *
+     * @param input The samples at the original rate
+     * @param inputOffset The first input sample of the block
+     * @param length The number of input samples to use
+     * @param output Receives outputLength(length) samples at the lower rate
+     * @param outputOffset The index of the first output sample
+     * @param weights The weight of each output sample, or null for none
+     * @throws RuntimeException Thrown when the arrays are too small for the length
+     */
+    void decimate(double[] input, int inputOffset, int length, double[] output, int outputOffset,
+                  double[] weights) throws RuntimeException {
+        int count = outputLength(length);
+        if (inputOffset < 0 || outputOffset < 0 || length > input.length - inputOffset
+                || count > output.length - outputOffset || (weights != null && count > weights.length)) {
+            throw new RuntimeException(CLASS_TAG + ".decimate: ERROR - The arrays are too small for the length\n");
+        }
+
+        for (int m = 0; m < count; m++) {
+            // The filter covers input start through start + taps.length - 1, which only
+            // has to be clipped near the ends of the block
+            int start = m * factor - delay;
+            int first = Math.max(0, -start);
+            int last = Math.min(taps.length, length - start);
+            double sum = SimdFFT.dot(taps, first, input, inputOffset + start + first, last - first);
+
+            output[outputOffset + m] = weights == null ? sum : sum * weights[m];
+        }
+    }
+}
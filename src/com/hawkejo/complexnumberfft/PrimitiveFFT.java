@@ -0,0 +1,430 @@
+package com.hawkejo.complexnumberfft;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Computes FFTs on primitive arrays of doubles
+ *
+ * <p>A class that performs an iterative, in-place radix-2 Cooley-Tukey FFT on split
+ * arrays holding the real and imaginary parts of the input. Unlike
+ * {@link ComplexNumber#fft(ComplexNumber[])}, nothing is allocated while the transform
+ * runs, so large transforms do not produce any garbage. The results match the ones
+ * returned by the {@link ComplexNumber} FFT methods.</p>
+ */
+
+public class PrimitiveFFT {
+    private static final String CLASS_TAG = "PrimitiveFFT";
+
+    /**
+     * Only static methods are provided by this class.
+     */
+    private PrimitiveFFT() {
+    }
+
+    /**
+     * Compute an FFT in place on the full length of the arrays
+     *
+     * @param re The real parts of the input, replaced by the real parts of the output
+     * @param im The imaginary parts of the input, replaced by the imaginary parts of the output
+     * @throws RuntimeException Thrown when the arrays differ in length or aren't a power of 2
+     */
+    public static void fft(double[] re, double[] im) throws RuntimeException {
+        if (re.length != im.length) {
+            throw new RuntimeException(CLASS_TAG + ".fft: ERROR - The arrays must be the same length\n");
+        }
+
+        fft(re, im, re.length);
+    }
+
+    /**
+     * Compute an FFT in place on the first size elements of the arrays
+     *
+     * <p>This method computes the Fourier series of the first size elements of the
+     * input arrays using an iterative radix-2 Cooley-Tukey algorithm. The input is
+     * first put into bit reversed order and then combined one stage at a time, using
+     * the shared {@link TwiddleCache} for the twiddle factors. The size must be a power
+     * of 2. Any elements past size are left untouched, which allows scratch arrays to be
+     * reused for smaller transforms.</p>
+     *
+     * @param re The real parts of the input, replaced by the real parts of the output
+     * @param im The imaginary parts of the input, replaced by the imaginary parts of the output
+     * @param size The number of elements to transform
+     * @throws RuntimeException Thrown when the size isn't a power of 2 or is larger than the arrays
+     */
+    public static void fft(double[] re, double[] im, int size) throws RuntimeException {
+        if (size < 1 || (size & (size - 1)) != 0) {
+            throw new RuntimeException(CLASS_TAG + ".fft: ERROR - The size must be a power of 2\n");
+        }
+        if (size > re.length || size > im.length) {
+            throw new RuntimeException(CLASS_TAG + ".fft: ERROR - The arrays are smaller than the size\n");
+        }
+
+        transform(re, im, size, TwiddleCache.get(size));
+    }
+
+    /**
+     * Compute an inverse FFT in place on the full length of the arrays
+     *
+     * @param re The real parts of the input, replaced by the real parts of the output
+     * @param im The imaginary parts of the input, replaced by the imaginary parts of the output
+     * @throws RuntimeException Thrown when the arrays differ in length or aren't a power of 2
+     */
+    public static void ifft(double[] re, double[] im) throws RuntimeException {
+        if (re.length != im.length) {
+            throw new RuntimeException(CLASS_TAG + ".ifft: ERROR - The arrays must be the same length\n");
+        }
+
+        ifft(re, im, re.length);
+    }
+
+    /**
+     * Compute an inverse FFT in place on the first size elements of the arrays
+     *
+     * <p>Uses the identity ifft(x) = conj(fft(conj(x))) / size. Both conjugations and the
+     * scaling are done in place on the arrays, so no ComplexNumbers or temporary arrays
+     * are created. The results match {@link ComplexNumber#ifft(ComplexNumber[])}.</p>
+     *
+     * @param re The real parts of the input, replaced by the real parts of the output
+     * @param im The imaginary parts of the input, replaced by the imaginary parts of the output
+     * @param size The number of elements to transform
+     * @throws RuntimeException Thrown when the size isn't a power of 2 or is larger than the arrays
+     */
+    public static void ifft(double[] re, double[] im, int size) throws RuntimeException {
+        if (size < 1 || (size & (size - 1)) != 0) {
+            throw new RuntimeException(CLASS_TAG + ".ifft: ERROR - The size must be a power of 2\n");
+        }
+        if (size > re.length || size > im.length) {
+            throw new RuntimeException(CLASS_TAG + ".ifft: ERROR - The arrays are smaller than the size\n");
+        }
+
+        conjugate(im, size);
+        transform(re, im, size, TwiddleCache.get(size));
+        conjugateScale(re, im, size);
+    }
+
+    /**
+     * Compute the FFT of real samples using a transform of half the size
+     *
+     * <p>Packs the even samples into the real parts and the odd samples into the imaginary
+     * parts of a size/2 complex array, transforms that, and then separates the result
+     * into the spectrum of the real input. Since the spectrum of real data is conjugate
+     * symmetric, only bins 0 through size/2 are written. This takes roughly half of the
+     * time and memory of transforming the samples as complex numbers with an imaginary
+     * part of 0. The output arrays also serve as the working space for the transform, so
+     * nothing is allocated.</p>
+     *
+     * @param samples The real input samples, left unchanged
+     * @param size The number of samples to transform, must be a power of 2 and at least 2
+     * @param outRe Receives the real parts of bins 0 through size/2, needs size/2 + 1 elements
+     * @param outIm Receives the imaginary parts of bins 0 through size/2, needs size/2 + 1 elements
+     * @throws RuntimeException Thrown when the size is invalid or the arrays are too small
+     */
+    public static void realFFT(double[] samples, int size, double[] outRe, double[] outIm)
+            throws RuntimeException {
+        realFFT(samples, size, null, outRe, outIm);
+    }
+
+    /**
+     * Compute the FFT of real samples multiplied by weights
+     *
+     * <p>Works like {@link #realFFT(double[], int, double[], double[])}, but multiplies
+     * each sample by its weight in the pass that packs the samples into the output
+     * arrays, so an analysis window costs no extra pass over memory.</p>
+     *
+     * @param samples The real input samples, left unchanged
+     * @param size The number of samples to transform, must be a power of 2 and at least 2
+     * @param weights The weight of each sample, or null to transform without weights
+     * @param outRe Receives the real parts of bins 0 through size/2, needs size/2 + 1 elements
+     * @param outIm Receives the imaginary parts of bins 0 through size/2, needs size/2 + 1 elements
+     * @throws RuntimeException Thrown when the size is invalid or the arrays are too small
+     */
+    public static void realFFT(double[] samples, int size, double[] weights, double[] outRe, double[] outIm)
+            throws RuntimeException {
+        if (size < 2 || (size & (size - 1)) != 0) {
+            throw new RuntimeException(CLASS_TAG + ".realFFT: ERROR - The size must be a power of 2\n");
+        }
+        if (size > samples.length || size/2 + 1 > outRe.length || size/2 + 1 > outIm.length
+                || (weights != null && size > weights.length)) {
+            throw new RuntimeException(CLASS_TAG + ".realFFT: ERROR - The arrays are too small for the size\n");
+        }
+
+        realTransform(samples, 0, size, weights, outRe, outIm);
+    }
+
+    /**
+     * Computes the spectrum of real samples starting at an offset, without any checks
+     *
+     * @param samples The real input samples, left unchanged
+     * @param offset The index of the first sample
+     * @param size The number of samples to transform, must be a power of 2 and at least 2
+     * @param outRe Receives the real parts of bins 0 through size/2
+     * @param outIm Receives the imaginary parts of bins 0 through size/2
+     */
+    static void realTransform(double[] samples, int offset, int size, double[] outRe, double[] outIm) {
+        realTransform(samples, offset, size, null, outRe, outIm);
+    }
+
+    /**
+     * Computes the spectrum of weighted real samples starting at an offset, without any checks
+     *
+     * @param samples The real input samples, left unchanged
+     * @param offset The index of the first sample
+     * @param size The number of samples to transform, must be a power of 2 and at least 2
+     * @param weights The weight of each sample, starting with the one at the offset, or null
+     * @param outRe Receives the real parts of bins 0 through size/2
+     * @param outIm Receives the imaginary parts of bins 0 through size/2
+     */
+    static void realTransform(double[] samples, int offset, int size, double[] weights, double[] outRe,
+                              double[] outIm) {
+        int half = size / 2;
+        if (weights == null) {
+            for (int k = 0; k < half; k++) {
+                outRe[k] = samples[offset + 2*k];
+                outIm[k] = samples[offset + 2*k + 1];
+            }
+        }
+        else {
+            for (int k = 0; k < half; k++) {
+                outRe[k] = samples[offset + 2*k] * weights[2*k];
+                outIm[k] = samples[offset + 2*k + 1] * weights[2*k + 1];
+            }
+        }
+
+        // The table for the full size also serves the half size transform with a stride of 2
+        TwiddleTable table = TwiddleCache.get(size);
+        transform(outRe, outIm, half, table);
+
+        // Bins 0 and size/2 only depend on the first element of the half size transform
+        double z0r = outRe[0], z0i = outIm[0];
+        outRe[0] = z0r + z0i;
+        outIm[0] = 0.0;
+        outRe[half] = z0r - z0i;
+        outIm[half] = 0.0;
+
+        // Separate the even and odd sample spectra for bins k and half - k together, since
+        // both depend on the same two elements of the half size transform.
+        for (int k = 1, j = half - 1; k <= j; k++, j--) {
+            double zkr = outRe[k], zki = outIm[k];
+            double zjr = outRe[j], zji = outIm[j];
+
+            // evens = (Z[k] + conj(Z[j])) / 2, odds = -j * (Z[k] - conj(Z[j])) / 2
+            double evenR = 0.5 * (zkr + zjr), evenI = 0.5 * (zki - zji);
+            double oddR = 0.5 * (zki + zji), oddI = -0.5 * (zkr - zjr);
+
+            double wr = table.cos[k], wi = table.sin[k];
+            double twR = wr * oddR - wi * oddI;
+            double twI = wr * oddI + wi * oddR;
+
+            outRe[k] = evenR + twR;
+            outIm[k] = evenI + twI;
+            outRe[j] = evenR - twR;
+            outIm[j] = -(evenI - twI);
+        }
+    }
+
+    /**
+     * Runs the bit reversal and the butterfly stages using the specified table
+     *
+     * @param re The real parts to transform in place
+     * @param im The imaginary parts to transform in place
+     * @param size The number of elements to transform, must be a power of 2
+     * @param table A twiddle table built for size or a larger power of 2
+     */
+    static void transform(double[] re, double[] im, int size, TwiddleTable table) {
+        transform(re, im, 0, size, table);
+    }
+
+    /**
+     * Runs the bit reversal and the butterfly stages on elements starting at an offset
+     *
+     * @param re The real parts to transform in place
+     * @param im The imaginary parts to transform in place
+     * @param offset The first element to transform
+     * @param size The number of elements to transform, must be a power of 2
+     * @param table A twiddle table built for size or a larger power of 2
+     */
+    static void transform(double[] re, double[] im, int offset, int size, TwiddleTable table) {
+        bitReverse(re, im, offset, size);
+        butterflies(re, im, offset, size, table);
+    }
+
+    /**
+     * Runs every butterfly stage on one block of bit reversed elements
+     *
+     * <p>After bit reversal, each aligned block of a power of 2 size holds exactly the
+     * elements of one sub-transform, so blocks can be combined independently of each
+     * other before the larger stages join them.</p>
+     *
+     * @param re The real parts to transform in place
+     * @param im The imaginary parts to transform in place
+     * @param offset The first element of the block
+     * @param size The number of elements in the block, must be a power of 2
+     * @param table A twiddle table built for size or a larger power of 2
+     */
+    static void butterflies(double[] re, double[] im, int offset, int size, TwiddleTable table) {
+        // Combine the transforms one stage at a time, doubling the span each time. The
+        // twiddle table may be built for a larger size, so smaller spans step through it.
+        for (int span = 2; span <= size; span <<= 1) {
+            for (int even = offset; even < offset + size; even += span) {
+                combine(re, im, even, span, 0, span >> 1, table);
+            }
+        }
+    }
+
+    /**
+     * Combines part of two adjacent half size transforms
+     *
+     * @param re The real parts to combine in place
+     * @param im The imaginary parts to combine in place
+     * @param even The first element of the even half
+     * @param span The size of the combined transform
+     * @param from The first butterfly to compute
+     * @param to One past the last butterfly to compute, at most span / 2
+     * @param table A twiddle table built for span or a larger power of 2
+     */
+    static void combine(double[] re, double[] im, int even, int span, int from, int to,
+                        TwiddleTable table) {
+        double[] cos = table.cos, sin = table.sin;
+        int half = span >> 1;
+        int stride = table.size / span;
+
+        for (int k = from, w = from * stride; k < to; k++, w += stride) {
+            int top = even + k, bottom = top + half;
+            double oddR = cos[w] * re[bottom] - sin[w] * im[bottom];
+            double oddI = cos[w] * im[bottom] + sin[w] * re[bottom];
+
+            re[bottom] = re[top] - oddR;
+            im[bottom] = im[top] - oddI;
+            re[top] += oddR;
+            im[top] += oddI;
+        }
+    }
+
+    /**
+     * Conjugates the first size elements in place
+     *
+     * @param im The imaginary parts to negate
+     * @param size The number of elements to conjugate
+     */
+    static void conjugate(double[] im, int size) {
+        for (int i = 0; i < size; i++) {
+            im[i] = -im[i];
+        }
+    }
+
+    /**
+     * Conjugates the first size elements in place and divides them by size
+     *
+     * <p>This is the last step of an inverse transform done through a forward one.</p>
+     *
+     * @param re The real parts to scale
+     * @param im The imaginary parts to negate and scale
+     * @param size The number of elements, also the divisor
+     */
+    static void conjugateScale(double[] re, double[] im, int size) {
+        double scale = 1.0 / size;
+        for (int i = 0; i < size; i++) {
+            re[i] *= scale;
+            im[i] *= -scale;
+        }
+    }
+
+    /**
+     * Put the first size elements of the arrays into bit reversed order
+     *
+     * @param re The real parts to reorder
+     * @param im The imaginary parts to reorder
+     * @param size The number of elements to reorder, must be a power of 2
+     */
+    static void bitReverse(double[] re, double[] im, int size) {
+        bitReverse(re, im, 0, size);
+    }
+
+    /**
+     * Put size elements of the arrays starting at an offset into bit reversed order
+     *
+     * @param re The real parts to reorder
+     * @param im The imaginary parts to reorder
+     * @param offset The first element to reorder
+     * @param size The number of elements to reorder, must be a power of 2
+     */
+    static void bitReverse(double[] re, double[] im, int offset, int size) {
+        for (int i = 1, j = 0; i < size; i++) {
+            int bit = size >> 1;
+            for (; (j & bit) != 0; bit >>= 1) {
+                j ^= bit;
+            }
+            j ^= bit;
+
+            if (i < j) {
+                int a = offset + i, b = offset + j;
+                double temp = re[a];
+                re[a] = re[b];
+                re[b] = temp;
+
+                temp = im[a];
+                im[a] = im[b];
+                im[b] = temp;
+            }
+        }
+    }
+
+    /**
+     * Copy a List of ComplexNumbers into split arrays
+     *
+     * @param src The List to copy from
+     * @param re The array receiving the real parts
+     * @param im The array receiving the imaginary parts
+     */
+    public static void copyIn(List<ComplexNumber> src, double[] re, double[] im) {
+        int i = 0;
+        for (ComplexNumber num : src) {
+            re[i] = num.getReal();
+            im[i] = num.getImaginary();
+            i++;
+        }
+    }
+
+    /**
+     * Copy a List of ComplexNumbers into split arrays, multiplying each by a weight
+     *
+     * <p>Applies an analysis window in the same pass that copies the numbers, so the
+     * window costs no extra pass over memory.</p>
+     *
+     * @param src The List to copy from
+     * @param re The array receiving the weighted real parts
+     * @param im The array receiving the weighted imaginary parts
+     * @param weights The weight of each element, or null to copy without weights
+     */
+    public static void copyIn(List<ComplexNumber> src, double[] re, double[] im, double[] weights) {
+        if (weights == null) {
+            copyIn(src, re, im);
+            return;
+        }
+
+        int i = 0;
+        for (ComplexNumber num : src) {
+            re[i] = num.getReal() * weights[i];
+            im[i] = num.getImaginary() * weights[i];
+            i++;
+        }
+    }
+
+    /**
+     * Copy split arrays into a new List of ComplexNumbers
+     *
+     * @param re The real parts to copy
+     * @param im The imaginary parts to copy
+     * @param size The number of elements to copy
+     * @return A new List holding the copied numbers
+     */
+    public static List<ComplexNumber> copyOut(double[] re, double[] im, int size) {
+        List<ComplexNumber> out = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            out.add(new ComplexNumber(re[i], im[i]));
+        }
+
+        return out;
+    }
+}
@@ -0,0 +1,459 @@
+package com.hawkejo.complexnumberfft;
+
+/**
+ * A reusable plan for FFTs that only need a contiguous range of output bins.
+ *
+ * <p>Uses transform decomposition: the size N is split into N = L * P, where L is a
+ * divisor of N a little larger than the number of bins needed. The input is viewed as P
+ * interleaved subsequences x[P*n1 + p], each of which gets a full size L FFT. Every wanted
+ * bin k is then the sum over p of z^p times bin k mod L of subsequence p, with
+ * z = e^(-j*2*pi*k/N), which is evaluated with Horner's rule so that no twiddle table of
+ * size N is needed. For a power of 2 size the sub-transforms are simply the first log2 L
+ * stages of the radix-2 FFT, run in place by {@link SimdFFT}; the remaining stages, whose
+ * butterflies mostly feed bins that are thrown away, are skipped. Other sizes gather the
+ * subsequences into rows and transform them on a {@link BatchFFT}. Either way the cost
+ * drops from N log2 N to about N log2 L + P times the number of bins.</p>
+ *
+ * <p>A plan for real input packs the samples into a complex array of half the size,
+ * like {@link PrimitiveFFT#realFFT}, and only separates the wanted bins afterwards. A plan
+ * is immutable once created and its scratch space is kept per thread, so it can be
+ * executed from several threads at once.</p>
+ */
+
+public final class PrunedFFT {
+    private static final String CLASS_TAG = "PrunedFFT";
+    // The number of rows filled at a time while gathering the subsequences
+    private static final int GATHER_ROWS = 16;
+    // The number of bit reversed elements of a block written at a time, one cache line
+    private static final int GATHER_RUN = 8;
+
+    private final int size, firstBin, binCount;
+    private final boolean realInput;
+    private final int transformSize, subSize, subCount;
+    private final boolean powerOfTwo;
+    private final BatchFFT batch;
+    private final FFTPlan full;
+    private final int[] bins, rowBins;
+    private final double[] zRe, zIm;
+    private final double[] splitRe, splitIm;
+    private final int[] reverseSub, reverseCount;
+    private final ThreadLocal<double[][]> work;
+
+    /**
+     * Creates a plan for the specified range of bins of a forward transform.
+     *
+     * @param newSize The number of elements each transform works on
+     * @param newFirstBin The first bin to compute
+     * @param newBinCount The number of bins to compute
+     * @throws RuntimeException Thrown when the size is less than 1 or the bins are outside of it
+     */
+    public PrunedFFT(int newSize, int newFirstBin, int newBinCount) throws RuntimeException {
+        this(newSize, newFirstBin, newBinCount, false);
+    }
+
+    /**
+     * Creates a plan for the specified range of bins, optionally for real input.
+     *
+     * <p>The spectrum of real input is conjugate symmetric, so a plan for real input may
+     * only ask for bins 0 through size/2, and the size must be even.</p>
+     *
+     * @param newSize The number of elements or real samples each transform works on
+     * @param newFirstBin The first bin to compute
+     * @param newBinCount The number of bins to compute
+     * @param newRealInput Whether the plan is executed on real samples
+     * @throws RuntimeException Thrown when the size is invalid or the bins are outside of it
+     */
+    public PrunedFFT(int newSize, int newFirstBin, int newBinCount, boolean newRealInput)
+            throws RuntimeException {
+        if (newSize < 1 || (newRealInput && newSize % 2 != 0)) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - The size must be at least 1, and even for real input\n");
+        }
+        int lastBin = newRealInput ? newSize / 2 : newSize - 1;
+        if (newBinCount < 1 || newFirstBin < 0 || newFirstBin > lastBin + 1 - newBinCount) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - The bins must be inside of the transform\n");
+        }
+
+        size = newSize;
+        firstBin = newFirstBin;
+        binCount = newBinCount;
+        realInput = newRealInput;
+        transformSize = realInput ? size / 2 : size;
+
+        // Real input needs bins k and transformSize - k of the half size transform
+        bins = new int[realInput ? 2 * binCount : binCount];
+        for (int i = 0; i < binCount; i++) {
+            bins[i] = (firstBin + i) % transformSize;
+            if (realInput) {
+                bins[binCount + i] = (transformSize - bins[i]) % transformSize;
+            }
+        }
+
+        subSize = subSize(transformSize, bins.length);
+        subCount = transformSize / subSize;
+        powerOfTwo = (transformSize & (transformSize - 1)) == 0;
+
+        if (subCount == 1) {
+            // Every bin of the sub-transform is needed anyway, so nothing can be pruned
+            full = new FFTPlan(transformSize);
+            batch = null;
+            rowBins = null;
+            zRe = null;
+            zIm = null;
+            reverseSub = null;
+            reverseCount = null;
+        }
+        else {
+            full = null;
+            batch = powerOfTwo ? null : new BatchFFT(subSize);
+            reverseSub = powerOfTwo ? bitReversed(subSize) : null;
+            reverseCount = powerOfTwo ? bitReversed(subCount) : null;
+            rowBins = new int[bins.length];
+            zRe = new double[bins.length];
+            zIm = new double[bins.length];
+            for (int i = 0; i < bins.length; i++) {
+                double angle = -2 * Math.PI * bins[i] / transformSize;
+                rowBins[i] = bins[i] % subSize;
+                zRe[i] = Math.cos(angle);
+                zIm[i] = Math.sin(angle);
+            }
+        }
+
+        // The twiddle factors that separate the even and odd samples of real input
+        splitRe = realInput ? new double[binCount] : null;
+        splitIm = realInput ? new double[binCount] : null;
+        for (int i = 0; realInput && i < binCount; i++) {
+            double angle = -2 * Math.PI * (firstBin + i) / size;
+            splitRe[i] = Math.cos(angle);
+            splitIm[i] = Math.sin(angle);
+        }
+
+        final int length = transformSize, accumulators = realInput ? bins.length : 0;
+        work = new ThreadLocal<double[][]>() {
+            @Override
+            protected double[][] initialValue() {
+                return new double[][] {new double[length], new double[length],
+                        new double[accumulators], new double[accumulators]};
+            }
+        };
+    }
+
+    /**
+     * Picks the size of the sub-transforms
+     *
+     * <p>The cost is about N log2 L for the sub-transforms plus N * count / L for the
+     * wanted bins, so L should be a little larger than the number of bins. Only divisors
+     * of N can be used.</p>
+     *
+     * @param size The size of the full transform
+     * @param count The number of wanted bins
+     * @return The divisor of size to use as the sub-transform size
+     */
+    private static int subSize(int size, int count) {
+        int best = size;
+        double bestCost = cost(size, size, count);
+
+        // Divisors come in pairs d and size / d, so only d up to the square root is tried
+        for (int d = 1; (long) d * d <= size; d++) {
+            if (size % d != 0) {
+                continue;
+            }
+
+            for (int l : new int[] {d, size / d}) {
+                double lCost = cost(size, l, count);
+                if (l >= Math.max(count, GATHER_RUN) && lCost < bestCost) {
+                    best = l;
+                    bestCost = lCost;
+                }
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Estimates the number of operations for a sub-transform size
+     *
+     * @param size The size of the full transform
+     * @param sub The size of the sub-transforms
+     * @param count The number of wanted bins
+     * @return The estimated cost
+     */
+    private static double cost(int size, int sub, int count) {
+        double butterflies = (double) size * Math.log(Math.max(sub, 2)) / Math.log(2);
+        return sub == size ? butterflies : butterflies + (double) count * (size / sub);
+    }
+
+    /**
+     * Returns the number of elements or real samples each transform works on.
+     *
+     * @return The size of the plan
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the first bin that is computed.
+     *
+     * @return The first bin
+     */
+    public int getFirstBin() {
+        return firstBin;
+    }
+
+    /**
+     * Returns the number of bins that are computed.
+     *
+     * @return The number of bins
+     */
+    public int getBinCount() {
+        return binCount;
+    }
+
+    /**
+     * Returns whether the plan is executed on real samples.
+     *
+     * @return True for a plan for real input
+     */
+    public boolean isRealInput() {
+        return realInput;
+    }
+
+    /**
+     * Computes the wanted bins of the FFT of the input, leaving the input unchanged.
+     *
+     * @param inRe The real parts of the input
+     * @param inIm The imaginary parts of the input
+     * @param outRe Receives the real parts of bins firstBin through firstBin + binCount - 1
+     * @param outIm Receives the imaginary parts of the same bins
+     * @throws RuntimeException Thrown when the plan is for real input, the input is smaller
+     * than the plan or the output can't hold the bins
+     */
+    public void execute(double[] inRe, double[] inIm, double[] outRe, double[] outIm)
+            throws RuntimeException {
+        if (realInput) {
+            throw new RuntimeException(CLASS_TAG + ".execute: ERROR - The plan is for real input\n");
+        }
+        if (inRe.length < size || inIm.length < size) {
+            throw new RuntimeException(CLASS_TAG + ".execute: ERROR - The input is smaller than the plan\n");
+        }
+        checkOutput(outRe, outIm);
+
+        double[][] scratch = work.get();
+        load(inRe, inIm, 0, 1, null, scratch[0], scratch[1]);
+        evaluate(scratch[0], scratch[1], outRe, outIm);
+    }
+
+    /**
+     * Computes the wanted bins of the FFT of real samples, leaving the samples unchanged.
+     *
+     * @param samples The real input samples
+     * @param outRe Receives the real parts of bins firstBin through firstBin + binCount - 1
+     * @param outIm Receives the imaginary parts of the same bins
+     * @throws RuntimeException Thrown when the plan isn't for real input, there are fewer
+     * samples than the size of the plan or the output can't hold the bins
+     */
+    public void execute(double[] samples, double[] outRe, double[] outIm) throws RuntimeException {
+        executeWeighted(samples, null, outRe, outIm);
+    }
+
+    /**
+     * Computes the wanted bins of the FFT of real samples multiplied by weights.
+     *
+     * <p>Each sample is multiplied by its weight while it is gathered into the scratch
+     * arrays, so an analysis window costs no extra pass over memory. The samples are left
+     * unchanged.</p>
+     *
+     * @param samples The real input samples
+     * @param weights The weight of each sample, or null to transform without weights
+     * @param outRe Receives the real parts of bins firstBin through firstBin + binCount - 1
+     * @param outIm Receives the imaginary parts of the same bins
+     * @throws RuntimeException Thrown when the plan isn't for real input, there are fewer
+     * samples or weights than the size of the plan or the output can't hold the bins
+     */
+    public void executeWeighted(double[] samples, double[] weights, double[] outRe, double[] outIm)
+            throws RuntimeException {
+        if (!realInput) {
+            throw new RuntimeException(CLASS_TAG + ".execute: ERROR - The plan is for complex input\n");
+        }
+        if (samples.length < size || (weights != null && weights.length < size)) {
+            throw new RuntimeException(CLASS_TAG + ".execute: ERROR - The input is smaller than the plan\n");
+        }
+        checkOutput(outRe, outIm);
+
+        // Even samples become the real parts and odd samples the imaginary parts
+        double[][] scratch = work.get();
+        double[] zr = scratch[2], zi = scratch[3];
+        load(samples, samples, 1, 2, weights, scratch[0], scratch[1]);
+        evaluate(scratch[0], scratch[1], zr, zi);
+
+        for (int i = 0, j = binCount; i < binCount; i++, j++) {
+            // evens = (Z[k] + conj(Z[-k])) / 2, odds = -j * (Z[k] - conj(Z[-k])) / 2
+            double evenR = 0.5 * (zr[i] + zr[j]), evenI = 0.5 * (zi[i] - zi[j]);
+            double oddR = 0.5 * (zi[i] + zi[j]), oddI = -0.5 * (zr[i] - zr[j]);
+
+            outRe[i] = evenR + splitRe[i] * oddR - splitIm[i] * oddI;
+            outIm[i] = evenI + splitRe[i] * oddI + splitIm[i] * oddR;
+        }
+    }
+
+    /**
+     * Makes sure the output arrays can hold the bins
+     *
+     * @param outRe The array for the real parts
+     * @param outIm The array for the imaginary parts
+     * @throws RuntimeException Thrown when either array is too small
+     */
+    private void checkOutput(double[] outRe, double[] outIm) throws RuntimeException {
+        if (outRe.length < binCount || outIm.length < binCount) {
+            throw new RuntimeException(CLASS_TAG + ".execute: ERROR - The output can't hold the bins\n");
+        }
+    }
+
+    /**
+     * Copies the input into the scratch arrays and runs the sub-transforms
+     *
+     * <p>Element n is read from srcRe[stride*n] and srcIm[stride*n + imOffset], which
+     * covers split complex arrays as well as real samples packed in pairs. Each part is
+     * multiplied by the weight at the same index as it is read, when weights are given.</p>
+     *
+     * @param srcRe The array holding the real parts
+     * @param srcIm The array holding the imaginary parts
+     * @param imOffset The distance of each imaginary part from its element
+     * @param stride The distance between elements
+     * @param weights The weights of the real samples, or null
+     * @param re The real scratch array
+     * @param im The imaginary scratch array
+     */
+    private void load(double[] srcRe, double[] srcIm, int imOffset, int stride, double[] weights,
+                      double[] re, double[] im) {
+        if (full != null) {
+            for (int n = 0; n < transformSize; n++) {
+                re[n] = weigh(srcRe, stride * n, weights);
+                im[n] = weigh(srcIm, stride * n + imOffset, weights);
+            }
+            full.execute(re, im);
+        }
+        else if (powerOfTwo) {
+            gatherBitReversed(srcRe, srcIm, imOffset, stride, weights, re, im);
+            SimdFFT.stages(re, im, transformSize, subSize, TwiddleCache.get(transformSize));
+        }
+        else {
+            // Gather subsequence p, x[P*n1 + p], into row p in tiles of a few rows, so the
+            // input is read in order and only a few rows are written at a time
+            for (int p0 = 0; p0 < subCount; p0 += GATHER_ROWS) {
+                int p1 = Math.min(p0 + GATHER_ROWS, subCount);
+                for (int n1 = 0; n1 < subSize; n1++) {
+                    int n = stride * n1 * subCount;
+                    for (int p = p0; p < p1; p++) {
+                        re[p * subSize + n1] = weigh(srcRe, n + stride * p, weights);
+                        im[p * subSize + n1] = weigh(srcIm, n + stride * p + imOffset, weights);
+                    }
+                }
+            }
+            batch.transform(re, im, subCount);
+        }
+    }
+
+    /**
+     * Copies the input into bit reversed order, a cache line of each block at a time
+     *
+     * <p>Element P*n1 + p goes to position bitrev(n1) of block bitrev(p). Going through
+     * n1 in bit reversed order GATHER_RUN at a time reads that many input rows in order
+     * and writes whole cache lines, which is much faster than swapping in place once the
+     * arrays are larger than the cache. The input is read as in {@link #load}.</p>
+     */
+    private void gatherBitReversed(double[] srcRe, double[] srcIm, int imOffset, int stride,
+                                   double[] weights, double[] re, double[] im) {
+        int[] rows = new int[GATHER_RUN];
+
+        for (int m0 = 0; m0 < subSize; m0 += GATHER_RUN) {
+            for (int t = 0; t < GATHER_RUN; t++) {
+                rows[t] = stride * reverseSub[m0 + t] * subCount;
+            }
+
+            for (int p = 0; p < subCount; p++) {
+                int out = reverseCount[p] * subSize + m0, in = stride * p;
+                for (int t = 0; t < GATHER_RUN; t++) {
+                    re[out + t] = weigh(srcRe, rows[t] + in, weights);
+                    im[out + t] = weigh(srcIm, rows[t] + in + imOffset, weights);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads one input value, multiplied by its weight when there are weights
+     *
+     * @param src The array holding the value
+     * @param index The index of the value
+     * @param weights The weights, or null
+     * @return The weighted value
+     */
+    private static double weigh(double[] src, int index, double[] weights) {
+        return weights == null ? src[index] : src[index] * weights[index];
+    }
+
+    /**
+     * Computes every bin in the bins array from the transformed scratch arrays
+     *
+     * @param re The real parts of the sub-transforms
+     * @param im The imaginary parts of the sub-transforms
+     * @param outRe Receives the real parts of the bins, in the order of the bins array
+     * @param outIm Receives the imaginary parts of the bins
+     */
+    private void evaluate(double[] re, double[] im, double[] outRe, double[] outIm) {
+        int count = bins.length;
+
+        if (full != null) {
+            for (int i = 0; i < count; i++) {
+                outRe[i] = re[bins[i]];
+                outIm[i] = im[bins[i]];
+            }
+            return;
+        }
+
+        // X[k] = sum over p of z^p * row p at k mod L, evaluated with Horner's rule from the
+        // last row up. Going row by row keeps the reads in order while the outputs stay in
+        // the cache.
+        int row = row(subCount - 1);
+        for (int i = 0; i < count; i++) {
+            outRe[i] = re[row + rowBins[i]];
+            outIm[i] = im[row + rowBins[i]];
+        }
+        for (int p = subCount - 2; p >= 0; p--) {
+            row = row(p);
+            for (int i = 0; i < count; i++) {
+                double ar = outRe[i], ai = outIm[i];
+                outRe[i] = ar * zRe[i] - ai * zIm[i] + re[row + rowBins[i]];
+                outIm[i] = ar * zIm[i] + ai * zRe[i] + im[row + rowBins[i]];
+            }
+        }
+    }
+
+    /**
+     * Lists the bit reversal of every index below a power of 2
+     *
+     * @param count The number of indices, a power of 2
+     * @return The bit reversed indices
+     */
+    private static int[] bitReversed(int count) {
+        int[] out = new int[count];
+        for (int i = 1; i < count; i++) {
+            out[i] = Integer.reverse(i) >>> Integer.numberOfLeadingZeros(count - 1);
+        }
+
+        return out;
+    }
+
+    /**
+     * Finds where the transform of a subsequence starts in the scratch arrays
+     *
+     * @param p The subsequence, the remainder of its indices modulo P
+     * @return The first element of the row holding its transform
+     */
+    private int row(int p) {
+        // For a power of 2 size the blocks are in bit reversed order of the subsequences
+        return (powerOfTwo ? reverseCount[p] : p) * subSize;
+    }
+}
@@ -0,0 +1,217 @@
+package com.hawkejo.complexnumberfft;
+
+/**
+ * An optional FFT engine using SIMD instructions.
+ *
+ * <p>A class that runs the radix-2/4 butterflies, the twiddle multiplies and the
+ * magnitude pass with the JDK Vector API, which compiles down to the AVX2 or AVX-512
+ * units of the processor. The Vector API is still an incubator module, so the kernels
+ * live in their own source root that only the SIMD build compiles, and are loaded by
+ * name. They are only used when they were built and the program is started with
+ * {@code --add-modules jdk.incubator.vector}. Otherwise every method falls back to the
+ * scalar code in {@link PrimitiveFFT}, which gives the same results. The rest of the
+ * sources build with any JDK from 8 on, without any flags.</p>
+ */
+
+public class SimdFFT {
+    private static final String CLASS_TAG = "SimdFFT";
+    private static final String KERNELS_CLASS = "com.hawkejo.complexnumberfft.VectorKernels";
+    private static final SimdKernels KERNELS = loadKernels();
+    private static final boolean AVAILABLE = KERNELS != null;
+
+    /**
+     * Only static methods are provided by this class.
+     */
+    private SimdFFT() {
+    }
+
+    /**
+     * Loads the vectorized kernels if they were built and the Vector API is usable.
+     *
+     * <p>Without the module the kernels fail to link, which is caught like a missing
+     * class.</p>
+     *
+     * @return The kernels, or null when the scalar code has to be used
+     */
+    private static SimdKernels loadKernels() {
+        try {
+            SimdKernels kernels = (SimdKernels) Class.forName(KERNELS_CLASS).getDeclaredConstructor().newInstance();
+
+            return kernels.lanes() > 1 ? kernels : null;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns whether the vectorized kernels are in use.
+     *
+     * @return Whether or not the Vector API is available
+     */
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    /**
+     * Compute an FFT in place on the first size elements of the arrays
+     *
+     * @param re The real parts of the input, replaced by the real parts of the output
+     * @param im The imaginary parts of the input, replaced by the imaginary parts of the output
+     * @param size The number of elements to transform, must be a power of 2
+     * @throws RuntimeException Thrown when the size isn't a power of 2 or is larger than the arrays
+     */
+    public static void fft(double[] re, double[] im, int size) throws RuntimeException {
+        if (size < 1 || (size & (size - 1)) != 0) {
+            throw new RuntimeException(CLASS_TAG + ".fft: ERROR - The size must be a power of 2\n");
+        }
+        if (size > re.length || size > im.length) {
+            throw new RuntimeException(CLASS_TAG + ".fft: ERROR - The arrays are smaller than the size\n");
+        }
+
+        transform(re, im, size, TwiddleCache.get(size));
+    }
+
+    /**
+     * Transforms using the specified table without checking the arguments
+     *
+     * @param re The real parts to transform in place
+     * @param im The imaginary parts to transform in place
+     * @param size The number of elements to transform, must be a power of 2
+     * @param table The twiddle table for the size
+     */
+    static void transform(double[] re, double[] im, int size, TwiddleTable table) {
+        transform(re, im, 0, size, table);
+    }
+
+    /**
+     * Transforms elements starting at an offset without checking the arguments
+     *
+     * @param re The real parts to transform in place
+     * @param im The imaginary parts to transform in place
+     * @param offset The first element to transform
+     * @param size The number of elements to transform, must be a power of 2
+     * @param table The twiddle table for the size
+     */
+    static void transform(double[] re, double[] im, int offset, int size, TwiddleTable table) {
+        if (AVAILABLE) {
+            KERNELS.transform(re, im, offset, size, table);
+        }
+        else {
+            PrimitiveFFT.transform(re, im, offset, size, table);
+        }
+    }
+
+    /**
+     * Runs the first butterfly stages on bit reversed elements without checking the arguments
+     *
+     * <p>Each aligned block of the block size ends up holding the FFT of one interleaved
+     * subsequence of the input, see {@link PrunedFFT}.</p>
+     *
+     * @param re The bit reversed real parts to transform in place
+     * @param im The bit reversed imaginary parts to transform in place
+     * @param size The number of elements, must be a power of 2
+     * @param block The size of the sub-transforms, a power of 2 no larger than size
+     * @param table The twiddle table for the size
+     */
+    static void stages(double[] re, double[] im, int size, int block, TwiddleTable table) {
+        if (AVAILABLE) {
+            KERNELS.stages(re, im, size, block, table);
+        }
+        else {
+            for (int offset = 0; offset < size; offset += block) {
+                PrimitiveFFT.butterflies(re, im, offset, block, table);
+            }
+        }
+    }
+
+    /**
+     * Computes the magnitude of each of the first count elements
+     *
+     * @param re The real parts
+     * @param im The imaginary parts
+     * @param out Receives the magnitudes
+     * @param count The number of elements
+     */
+    public static void magnitudes(double[] re, double[] im, double[] out, int count) {
+        if (AVAILABLE) {
+            KERNELS.magnitudes(re, im, out, count);
+            return;
+        }
+
+        for (int i = 0; i < count; i++) {
+            out[i] = Math.sqrt(re[i] * re[i] + im[i] * im[i]);
+        }
+    }
+
+    /**
+     * Multiplies each of the first count elements by every factor-th value
+     *
+     * <p>Sets product[i] to product[i] * values[i * factor], which multiplies a spectrum
+     * by a copy of itself compressed by the factor, as in a harmonic product spectrum.</p>
+     *
+     * @param product The elements to multiply in place
+     * @param values The values, needs (count - 1) * factor + 1 elements
+     * @param factor The distance between the values that are read, at least 1
+     * @param count The number of elements to multiply
+     */
+    public static void multiplyDecimated(double[] product, double[] values, int factor, int count) {
+        if (AVAILABLE) {
+            KERNELS.multiplyDecimated(product, values, factor, count);
+            return;
+        }
+
+        for (int i = 0; i < count; i++) {
+            product[i] *= values[i * factor];
+        }
+    }
+
+    /**
+     * Computes the dot product of two ranges of values
+     *
+     * @param a The first values
+     * @param aOffset The first element of a to use
+     * @param b The second values
+     * @param bOffset The first element of b to use
+     * @param length The number of elements to multiply
+     * @return The sum of a[aOffset + i] * b[bOffset + i] over the length
+     */
+    public static double dot(double[] a, int aOffset, double[] b, int bOffset, int length) {
+        if (AVAILABLE) {
+            return KERNELS.dot(a, aOffset, b, bOffset, length);
+        }
+
+        double sum = 0.0;
+        for (int i = 0; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+
+        return sum;
+    }
+
+    /**
+     * Finds the element with the largest magnitude in a range
+     *
+     * @param re The real parts
+     * @param im The imaginary parts
+     * @param from The first element to search
+     * @param to One past the last element to search
+     * @return The index of the first element with the largest magnitude, or -1 if the range is empty
+     */
+    public static int maxPowerBin(double[] re, double[] im, int from, int to) {
+        if (AVAILABLE) {
+            return KERNELS.maxPowerBin(re, im, from, to);
+        }
+
+        int maxBin = -1;
+        double maxPower = -1.0;
+        for (int k = from; k < to; k++) {
+            double power = re[k] * re[k] + im[k] * im[k];
+            if (maxPower < power) {
+                maxBin = k;
+                maxPower = power;
+            }
+        }
+
+        return maxBin;
+    }
+}
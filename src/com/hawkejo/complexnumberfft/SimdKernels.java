@@ -0,0 +1,84 @@
+package com.hawkejo.complexnumberfft;
+
+/**
+ * The kernels that {@link SimdFFT} can hand over to a vectorized engine.
+ *
+ * <p>The engine is built on the incubating Vector API, which needs its own compiler and
+ * runtime flags, so it is kept out of the core sources and loaded by name when it is
+ * present. This interface is all that the core sources know about it. The methods
+ * check none of their arguments, since {@link SimdFFT} has already done so.</p>
+ */
+
+interface SimdKernels {
+    /**
+     * Returns the number of doubles held by one vector.
+     *
+     * @return The vector length in doubles
+     */
+    int lanes();
+
+    /**
+     * Compute an FFT in place on size elements of the arrays starting at an offset.
+     *
+     * @param re The real parts of the input, replaced by the real parts of the output
+     * @param im The imaginary parts of the input, replaced by the imaginary parts of the output
+     * @param offset The first element to transform
+     * @param size The number of elements to transform, must be a power of 2
+     * @param table The twiddle table for the size
+     */
+    void transform(double[] re, double[] im, int offset, int size, TwiddleTable table);
+
+    /**
+     * Runs the butterfly stages on bit reversed elements, up to transforms of the block size.
+     *
+     * @param re The bit reversed real parts to transform in place
+     * @param im The bit reversed imaginary parts to transform in place
+     * @param size The number of elements, must be a power of 2
+     * @param block The size of the largest stage to run, a power of 2 no larger than size
+     * @param table The twiddle table for the size
+     */
+    void stages(double[] re, double[] im, int size, int block, TwiddleTable table);
+
+    /**
+     * Computes the magnitude of each element.
+     *
+     * @param re The real parts
+     * @param im The imaginary parts
+     * @param out Receives the magnitudes
+     * @param count The number of elements
+     */
+    void magnitudes(double[] re, double[] im, double[] out, int count);
+
+    /**
+     * Multiplies each element by every factor-th value.
+     *
+     * @param product The elements to multiply in place
+     * @param values The values, read at indices 0, factor, 2*factor and so on
+     * @param factor The distance between the values that are read
+     * @param count The number of elements to multiply
+     */
+    void multiplyDecimated(double[] product, double[] values, int factor, int count);
+
+    /**
+     * Computes the dot product of two ranges of values.
+     *
+     * @param a The first values
+     * @param aOffset The first element of a to use
+     * @param b The second values
+     * @param bOffset The first element of b to use
+     * @param length The number of elements to multiply
+     * @return The sum of the products
+     */
+    double dot(double[] a, int aOffset, double[] b, int bOffset, int length);
+
+    /**
+     * Finds the element with the largest squared magnitude in a range.
+     *
+     * @param re The real parts
+     * @param im The imaginary parts
+     * @param from The first element to search
+     * @param to One past the last element to search
+     * @return The index of the first element with the largest power, or -1 if the range is empty
+     */
+    int maxPowerBin(double[] re, double[] im, int from, int to);
+}
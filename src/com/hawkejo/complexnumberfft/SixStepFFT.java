@@ -0,0 +1,363 @@
+package com.hawkejo.complexnumberfft;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Computes large FFTs with Bailey's six-step algorithm.
+ *
+ * <p>A transform of size N = N1 * N2 is treated as a matrix with N2 rows and N1 columns.
+ * The matrix is transposed, every row is transformed with a size N2 FFT and multiplied by
+ * the twiddle factors. The columns of the result are then gathered a tile at a time into
+ * a small per thread buffer, transformed there with a size N1 FFT and written straight
+ * into the input arrays in natural order, which takes the place of the second and third
+ * transposes. Both sizes are close to the square root of N, so each transform fits in the
+ * cache even when the full transform is far larger than it, and the rows and tiles are
+ * spread over a fork/join pool. The transpose splits the matrix recursively until the
+ * tiles fit in the L1 cache, which keeps it cache-oblivious, and large tiles are forked as
+ * separate tasks. This is faster than {@link ParallelFFT} once the arrays no longer fit
+ * in the cache.</p>
+ *
+ * <p>The batches, plans and twiddle factors for recently used sizes are cached, like the
+ * tables of the {@link TwiddleCache}. The working space, as large as the input, is
+ * allocated by every call and dropped when it returns, since keeping it would pin that
+ * much memory for every thread that ever computed a transform. The allocation is cheap
+ * next to a transform of this size.</p>
+ */
+
+public class SixStepFFT {
+    private static final String CLASS_TAG = "SixStepFFT";
+
+    // Transforms smaller than this fit in the cache, so they are computed directly
+    private static final int MIN_SIZE = 1 << 12;
+    // Tiles with at most this many elements per side are transposed without splitting
+    private static final int TILE = 32;
+    // Tiles with fewer elements than this are not forked as separate tasks
+    private static final int MIN_TASK = 1 << 14;
+    private static final int MAX_PLANS = 4;
+
+    private static final Map<Integer, Plan> plans =
+            new LinkedHashMap<Integer, Plan>(MAX_PLANS, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, Plan> eldest) {
+                    return size() > MAX_PLANS;
+                }
+            };
+
+    /**
+     * Only static methods are provided by this class.
+     */
+    private SixStepFFT() {
+    }
+
+    /**
+     * Compute an FFT in place using the common fork/join pool
+     *
+     * @param re The real parts of the input, replaced by the real parts of the output
+     * @param im The imaginary parts of the input, replaced by the imaginary parts of the output
+     * @param size The number of elements to transform, must be a power of 2
+     * @throws RuntimeException Thrown when the size isn't a power of 2 or is larger than the arrays
+     */
+    public static void fft(double[] re, double[] im, int size) throws RuntimeException {
+        fft(re, im, size, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Compute an FFT in place using the specified fork/join pool
+     *
+     * @param re The real parts of the input, replaced by the real parts of the output
+     * @param im The imaginary parts of the input, replaced by the imaginary parts of the output
+     * @param size The number of elements to transform, must be a power of 2
+     * @param pool The pool to run the tasks in
+     * @throws RuntimeException Thrown when the size isn't a power of 2 or is larger than the arrays
+     */
+    public static void fft(double[] re, double[] im, int size, ForkJoinPool pool)
+            throws RuntimeException {
+        if (size < 1 || (size & (size - 1)) != 0) {
+            throw new RuntimeException(CLASS_TAG + ".fft: ERROR - The size must be a power of 2\n");
+        }
+        if (size > re.length || size > im.length) {
+            throw new RuntimeException(CLASS_TAG + ".fft: ERROR - The arrays are smaller than the size\n");
+        }
+
+        if (size < MIN_SIZE) {
+            SimdFFT.transform(re, im, size, TwiddleCache.get(size));
+            return;
+        }
+
+        Plan plan = plan(size);
+        int rows = plan.rows, cols = plan.cols;
+        double[] workRe = new double[size], workIm = new double[size];
+
+        // Steps 1 to 3: gather the columns into rows, transform them and apply the twiddles
+        pool.invoke(new TransposeTask(re, im, workRe, workIm, rows, cols, 0, rows, 0, cols));
+        plan.rowBatch.transform(workRe, workIm, cols, pool);
+        pool.invoke(new TwiddleTask(workRe, workIm, plan.table, rows, 0, cols));
+
+        // Steps 4 to 6: transform the other dimension and write it out in natural order
+        pool.invoke(new ColumnTask(plan, workRe, workIm, re, im, 0, rows));
+    }
+
+    /**
+     * Returns the cached plan for the specified size, building it if needed
+     *
+     * <p>The plan is built outside of the lock, as in {@link TwiddleCache}.</p>
+     *
+     * @param size The transform size, a power of 2 of at least MIN_SIZE
+     * @return The plan for the size
+     */
+    private static Plan plan(int size) {
+        Plan plan;
+        synchronized (plans) {
+            plan = plans.get(size);
+        }
+        if (plan != null) {
+            return plan;
+        }
+
+        Plan newPlan = new Plan(size);
+        synchronized (plans) {
+            plan = plans.get(size);
+            if (plan == null) {
+                plans.put(size, newPlan);
+                plan = newPlan;
+            }
+        }
+
+        return plan;
+    }
+
+    /**
+     * Everything about a transform that only depends on its size.
+     *
+     * <p>A plan is immutable apart from the per thread tiles, so it can be used by any
+     * number of transforms at the same time.</p>
+     */
+    private static class Plan {
+        final int rows, cols;
+        final TwiddleTable table;
+        final BatchFFT rowBatch;
+        final FFTPlan colPlan;
+        final ThreadLocal<double[][]> tile;
+
+        Plan(int size) {
+            // N1 columns and N2 rows, with N2 the larger one when log2(N) is odd
+            int bits = Integer.numberOfTrailingZeros(size);
+            cols = 1 << (bits / 2);
+            rows = size / cols;
+            table = TwiddleCache.get(size);
+            rowBatch = new BatchFFT(rows);
+            colPlan = new FFTPlan(cols);
+
+            final int length = TILE * cols;
+            tile = new ThreadLocal<double[][]>() {
+                @Override
+                protected double[][] initialValue() {
+                    return new double[][] {new double[length], new double[length]};
+                }
+            };
+        }
+    }
+
+    /**
+     * Transposes a tile of a row-major matrix into another array.
+     *
+     * <p>The element at row r and column c of the source ends up at row c and column r
+     * of the destination. The longer side of the tile is halved until both sides fit
+     * the tile size, so the rows being read and written stay in the cache no matter how
+     * large the cache is.</p>
+     */
+    private static class TransposeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] srcRe, srcIm, dstRe, dstIm;
+        private final int rows, cols, rowFrom, rowTo, colFrom, colTo;
+
+        TransposeTask(double[] srcRe, double[] srcIm, double[] dstRe, double[] dstIm, int rows,
+                      int cols, int rowFrom, int rowTo, int colFrom, int colTo) {
+            this.srcRe = srcRe;
+            this.srcIm = srcIm;
+            this.dstRe = dstRe;
+            this.dstIm = dstIm;
+            this.rows = rows;
+            this.cols = cols;
+            this.rowFrom = rowFrom;
+            this.rowTo = rowTo;
+            this.colFrom = colFrom;
+            this.colTo = colTo;
+        }
+
+        @Override
+        protected void compute() {
+            transpose(rowFrom, rowTo, colFrom, colTo);
+        }
+
+        /**
+         * Transposes a tile, forking the halves of large tiles as separate tasks
+         *
+         * @param r0 The first row of the tile
+         * @param r1 One past the last row of the tile
+         * @param c0 The first column of the tile
+         * @param c1 One past the last column of the tile
+         */
+        private void transpose(int r0, int r1, int c0, int c1) {
+            int height = r1 - r0, width = c1 - c0;
+
+            if (height <= TILE && width <= TILE) {
+                for (int r = r0; r < r1; r++) {
+                    int src = r * cols;
+                    for (int c = c0; c < c1; c++) {
+                        dstRe[c * rows + r] = srcRe[src + c];
+                        dstIm[c * rows + r] = srcIm[src + c];
+                    }
+                }
+            }
+            else if (height * width >= MIN_TASK) {
+                if (height >= width) {
+                    int middle = (r0 + r1) >>> 1;
+                    invokeAll(new TransposeTask(srcRe, srcIm, dstRe, dstIm, rows, cols, r0, middle, c0, c1),
+                            new TransposeTask(srcRe, srcIm, dstRe, dstIm, rows, cols, middle, r1, c0, c1));
+                }
+                else {
+                    int middle = (c0 + c1) >>> 1;
+                    invokeAll(new TransposeTask(srcRe, srcIm, dstRe, dstIm, rows, cols, r0, r1, c0, middle),
+                            new TransposeTask(srcRe, srcIm, dstRe, dstIm, rows, cols, r0, r1, middle, c1));
+                }
+            }
+            else if (height >= width) {
+                int middle = (r0 + r1) >>> 1;
+                transpose(r0, middle, c0, c1);
+                transpose(middle, r1, c0, c1);
+            }
+            else {
+                int middle = (c0 + c1) >>> 1;
+                transpose(r0, r1, c0, middle);
+                transpose(r0, r1, middle, c1);
+            }
+        }
+    }
+
+    /**
+     * Transforms a range of columns and writes them into the output in natural order.
+     *
+     * <p>Column k2 of the source is transformed into the outputs k2 + N2 * k1. Up to TILE
+     * columns at a time are gathered into the rows of a per thread tile, transformed in
+     * place there and scattered to the output, so both the reads and the writes run along
+     * TILE consecutive elements at a time.</p>
+     */
+    private static class ColumnTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Plan plan;
+        private final double[] srcRe, srcIm, dstRe, dstIm;
+        private final int from, to;
+
+        ColumnTask(Plan plan, double[] srcRe, double[] srcIm, double[] dstRe, double[] dstIm,
+                   int from, int to) {
+            this.plan = plan;
+            this.srcRe = srcRe;
+            this.srcIm = srcIm;
+            this.dstRe = dstRe;
+            this.dstIm = dstIm;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            int rows = plan.rows, cols = plan.cols;
+
+            if ((long) (to - from) * cols > MIN_TASK && to - from >= 2 * TILE) {
+                // Split on a whole number of tiles
+                int middle = from + ((to - from) / TILE / 2) * TILE;
+                invokeAll(new ColumnTask(plan, srcRe, srcIm, dstRe, dstIm, from, middle),
+                        new ColumnTask(plan, srcRe, srcIm, dstRe, dstIm, middle, to));
+                return;
+            }
+
+            double[][] tile = plan.tile.get();
+            double[] tileRe = tile[0], tileIm = tile[1];
+
+            for (int first = from; first < to; first += TILE) {
+                int last = Math.min(first + TILE, to);
+
+                for (int c = 0; c < cols; c++) {
+                    int src = c * rows;
+                    for (int k = first; k < last; k++) {
+                        tileRe[(k - first) * cols + c] = srcRe[src + k];
+                        tileIm[(k - first) * cols + c] = srcIm[src + k];
+                    }
+                }
+
+                for (int k = first; k < last; k++) {
+                    plan.colPlan.execute(tileRe, tileIm, (k - first) * cols);
+                }
+
+                for (int c = 0; c < cols; c++) {
+                    int dst = c * rows;
+                    for (int k = first; k < last; k++) {
+                        dstRe[dst + k] = tileRe[(k - first) * cols + c];
+                        dstIm[dst + k] = tileIm[(k - first) * cols + c];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Multiplies a range of rows by the twiddle factors between the two passes.
+     *
+     * <p>Element k of row r is multiplied by e^(-j*2*pi*r*k/N). The table only holds the first
+     * half of the circle, so exponents in the second half use the negated factor.</p>
+     */
+    private static class TwiddleTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] re, im;
+        private final TwiddleTable table;
+        private final int length, from, to;
+
+        TwiddleTask(double[] re, double[] im, TwiddleTable table, int length, int from, int to) {
+            this.re = re;
+            this.im = im;
+            this.table = table;
+            this.length = length;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if ((long) (to - from) * length > MIN_TASK && to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new TwiddleTask(re, im, table, length, from, middle),
+                        new TwiddleTask(re, im, table, length, middle, to));
+                return;
+            }
+
+            double[] cos = table.cos, sin = table.sin;
+            int half = table.size >> 1, mask = table.size - 1;
+
+            for (int row = from; row < to; row++) {
+                int offset = row * length;
+                for (int k = 1, w = row; k < length; k++, w = (w + row) & mask) {
+                    double wr, wi;
+                    if (w < half) {
+                        wr = cos[w];
+                        wi = sin[w];
+                    }
+                    else {
+                        wr = -cos[w - half];
+                        wi = -sin[w - half];
+                    }
+
+                    double r = re[offset + k], i = im[offset + k];
+                    re[offset + k] = r * wr - i * wi;
+                    im[offset + k] = r * wi + i * wr;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.hawkejo.complexnumberfft;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+
+/**
+ * Computes the frequency of a stream of samples with a sliding DFT
+ *
+ * <p>A streaming {@link FrequencyGenerator} that keeps the DFT of the last windowSize
+ * samples up to date one sample at a time. Every call to {@link #push(double)} puts the
+ * sample into a ring buffer and updates each tracked bin with
+ * X_k = (X_k + x_new - x_old) * e^(j*2*pi*k/N), which costs O(1) per bin instead of a
+ * full FFT for every hop. Either the first half of the spectrum or a chosen set of bins is
+ * tracked. Rounding errors of the recursion would slowly build up over a long stream, so
+ * the tracked bins are recomputed exactly from the ring buffer with an {@link FFTPlan}
+ * every few windows. That costs O(log N) per sample when spread out, and keeps the bins
+ * as accurate as a fresh transform no matter how long the stream runs. The window may be
+ * of any size.</p>
+ */
+
+public class SlidingDFTFreqGen implements Runnable, FreqObservable, FrequencyGenerator {
+    // The number of windows between exact recomputations of the tracked bins
+    private static final int RESYNC_WINDOWS = 16;
+
+    private final int windowSize;
+    private final int[] bins;
+    private final double[] binRe, binIm, stepCos, stepSin;
+    private final double[] ring;
+    private final FFTPlan plan;
+    private final double[] workRe, workIm;
+    private int position, pushesSinceSync;
+    private double frequency;
+    private int sampleRate;
+    private final String CLASS_TAG = "SlidingDFTFreqGen";
+    private List<FreqObserver> observers;
+
+    /**
+     * Tracks the bins below half of the sample rate, the same bins searched by {@link FFTFreqGen}.
+     *
+     * @param newWindowSize The number of samples in the sliding window
+     * @param newRate The sample rate of the stream
+     * @throws RuntimeException Thrown when the window size is less than 2
+     */
+    public SlidingDFTFreqGen(int newWindowSize, int newRate) throws RuntimeException {
+        this(newWindowSize, newRate, firstHalf(newWindowSize));
+    }
+
+    /**
+     * Tracks only the specified bins.
+     *
+     * <p>Bin k is centred on the frequency k * sampleRate / windowSize.</p>
+     *
+     * @param newWindowSize The number of samples in the sliding window
+     * @param newRate The sample rate of the stream
+     * @param newBins The bins to track, each between 0 and windowSize - 1
+     * @throws RuntimeException Thrown when the window size is less than 2 or a bin is out of range
+     */
+    public SlidingDFTFreqGen(int newWindowSize, int newRate, int... newBins) throws RuntimeException {
+        if (newWindowSize < 2) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - The window size must be at least 2\n");
+        }
+        if (newBins.length == 0) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - At least one bin must be tracked\n");
+        }
+        for (int bin : newBins) {
+            if (bin < 0 || bin >= newWindowSize) {
+                throw new RuntimeException(CLASS_TAG + ": ERROR - Bin " + bin + " is outside of the window\n");
+            }
+        }
+
+        windowSize = newWindowSize;
+        sampleRate = newRate;
+        bins = newBins.clone();
+        binRe = new double[bins.length];
+        binIm = new double[bins.length];
+        stepCos = new double[bins.length];
+        stepSin = new double[bins.length];
+        for (int i = 0; i < bins.length; i++) {
+            double angle = 2 * Math.PI * bins[i] / windowSize;
+            stepCos[i] = Math.cos(angle);
+            stepSin[i] = Math.sin(angle);
+        }
+
+        ring = new double[windowSize];
+        plan = new FFTPlan(windowSize);
+        workRe = new double[windowSize];
+        workIm = new double[windowSize];
+        frequency = 0.0;
+        observers = new LinkedList<>();
+    }
+
+    /**
+     * Lists the bins in the first half of the spectrum
+     *
+     * @param windowSize The number of samples in the window
+     * @return Bins 0 through (windowSize - 1)/2
+     */
+    private static int[] firstHalf(int windowSize) {
+        int[] out = new int[FFTFreqGen.searchedBins(windowSize)];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = i;
+        }
+
+        return out;
+    }
+
+    /**
+     * Adds one sample to the stream and reports the new peak.
+     *
+     * <p>The oldest sample leaves the window, every tracked bin is updated, and the
+     * frequency of the strongest bin is stored and sent to every observer.</p>
+     *
+     * @param sample The newest sample of the stream
+     * @return The frequency of the strongest tracked bin
+     */
+    public double push(double sample) {
+        advance(sample);
+        frequency = peakFrequency();
+        updateObservers();
+
+        return frequency;
+    }
+
+    /**
+     * Clears the window, as if only zeros had been pushed.
+     */
+    public void reset() {
+        Arrays.fill(ring, 0.0);
+        Arrays.fill(binRe, 0.0);
+        Arrays.fill(binIm, 0.0);
+        position = 0;
+        pushesSinceSync = 0;
+        frequency = 0.0;
+    }
+
+    /**
+     * Returns the magnitude of every tracked bin.
+     *
+     * @return The magnitudes, in the same order as the tracked bins
+     */
+    public double[] getMagnitudes() {
+        double[] out = new double[bins.length];
+        for (int i = 0; i < bins.length; i++) {
+            out[i] = Math.sqrt(binRe[i] * binRe[i] + binIm[i] * binIm[i]);
+        }
+
+        return out;
+    }
+
+    /**
+     * Returns the bins that are tracked.
+     *
+     * @return A copy of the tracked bins
+     */
+    public int[] getBins() {
+        return bins.clone();
+    }
+
+    /**
+     * Moves the window forward by one sample without reporting the peak
+     *
+     * @param sample The newest sample of the stream
+     */
+    private void advance(double sample) {
+        double delta = sample - ring[position];
+        ring[position] = sample;
+        position = position + 1 == windowSize ? 0 : position + 1;
+
+        for (int i = 0; i < bins.length; i++) {
+            double re = binRe[i] + delta, im = binIm[i];
+            binRe[i] = re * stepCos[i] - im * stepSin[i];
+            binIm[i] = re * stepSin[i] + im * stepCos[i];
+        }
+
+        if (++pushesSinceSync == RESYNC_WINDOWS * windowSize) {
+            resync();
+        }
+    }
+
+    /**
+     * Recomputes the tracked bins exactly from the samples in the window
+     *
+     * <p>The window is transformed oldest sample first, which is the order the sliding
+     * recursion refers its phases to, so the bins carry on seamlessly.</p>
+     */
+    private void resync() {
+        int tail = windowSize - position;
+        System.arraycopy(ring, position, workRe, 0, tail);
+        System.arraycopy(ring, 0, workRe, tail, position);
+        Arrays.fill(workIm, 0.0);
+
+        plan.execute(workRe, workIm);
+
+        for (int i = 0; i < bins.length; i++) {
+            binRe[i] = workRe[bins[i]];
+            binIm[i] = workIm[bins[i]];
+        }
+
+        pushesSinceSync = 0;
+    }
+
+    /**
+     * Finds the frequency of the strongest tracked bin
+     *
+     * @return The centre frequency of the strongest bin
+     */
+    private double peakFrequency() {
+        int maxBin = 0;
+        double maxPower = -1.0;
+        for (int i = 0; i < bins.length; i++) {
+            double power = binRe[i] * binRe[i] + binIm[i] * binIm[i];
+            if (maxPower < power) {
+                maxBin = bins[i];
+                maxPower = power;
+            }
+        }
+
+        return maxBin * ((double) sampleRate/windowSize);
+    }
+
+    @Override
+    public void setArray(ComplexNumber array[]) {
+        reset();
+        for (ComplexNumber num : array) {
+            advance(num.getReal());
+        }
+    }
+
+    /**
+     * Replaces the window with the real parts of the List.
+     *
+     * <p>The window is cleared and the numbers are streamed in without reporting a peak
+     * for each of them, so only the last windowSize of them remain in the window.</p>
+     *
+     * @param audList The new List of ComplexNumbers
+     */
+    @Override
+    public void setList(List<ComplexNumber> audList) {
+        reset();
+        for (ComplexNumber num : audList) {
+            advance(num.getReal());
+        }
+    }
+
+    /**
+     * Replaces the window with the specified samples.
+     *
+     * <p>Works like {@link #setList(List)} on real samples.</p>
+     *
+     * @param newSamples The samples to stream into the cleared window
+     */
+    public void setSamples(double[] newSamples) {
+        reset();
+        for (double sample : newSamples) {
+            advance(sample);
+        }
+    }
+
+    /**
+     * Allows for changing the internal sampleRate variable
+     *
+     * @param newRate The new sample rate to use in computations.
+     */
+    public void setSampleRate(int newRate) {
+        sampleRate = newRate;
+    }
+
+    /**
+     * Returns the frequency of the strongest bin of the current window.
+     *
+     * <p>The bins are always up to date, so this only searches them.</p>
+     *
+     * @return The computed frequency
+     */
+    @Override
+    public double computeFrequency() {
+        frequency = peakFrequency();
+
+        return frequency;
+    }
+
+    @Override
+    public void run() {
+        this.computeFrequency();
+    }
+
+    @Override
+    public void addObserver(FreqObserver newObs) {
+        if (newObs != null)
+            observers.add(newObs);
+    }
+
+    @Override
+    public void updateObservers() {
+        ListIterator<FreqObserver> it = observers.listIterator();
+
+        while(it.hasNext()) {
+            it.next().update(frequency);
+        }
+    }
+
+    @Override
+    public double getFrequency() {
+        return frequency;
+    }
+}
@@ -0,0 +1,73 @@
+package com.hawkejo.complexnumberfft;
+
+/**
+ * One local maximum of a magnitude spectrum
+ *
+ * <p>Holds the bin of the peak, the frequency it stands for, refined between bins when
+ * a {@link PeakInterpolation} is used, and the magnitude and phase of the bin. Peaks are
+ * immutable and are returned by {@link FFTFreqGen#computePeaks(int)} from the strongest
+ * to the weakest.</p>
+ */
+
+public final class SpectralPeak {
+    private final int bin;
+    private final double frequency;
+    private final double magnitude;
+    private final double phase;
+
+    /**
+     * Creates a peak.
+     *
+     * @param newBin The index of the bin in the spectrum
+     * @param newFrequency The frequency of the peak, in Hz
+     * @param newMagnitude The magnitude of the bin
+     * @param newPhase The phase of the bin, in radians from -pi to pi
+     */
+    public SpectralPeak(int newBin, double newFrequency, double newMagnitude, double newPhase) {
+        bin = newBin;
+        frequency = newFrequency;
+        magnitude = newMagnitude;
+        phase = newPhase;
+    }
+
+    /**
+     * Returns the index of the bin in the spectrum.
+     *
+     * @return The bin
+     */
+    public int getBin() {
+        return bin;
+    }
+
+    /**
+     * Returns the frequency of the peak.
+     *
+     * @return The frequency, in Hz
+     */
+    public double getFrequency() {
+        return frequency;
+    }
+
+    /**
+     * Returns the magnitude of the bin, without any scaling for the size of the transform.
+     *
+     * @return The magnitude
+     */
+    public double getMagnitude() {
+        return magnitude;
+    }
+
+    /**
+     * Returns the phase of the bin.
+     *
+     * @return The phase, in radians from -pi to pi
+     */
+    public double getPhase() {
+        return phase;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%.4f Hz (bin %d, magnitude %.4f, phase %.4f)", frequency, bin, magnitude, phase);
+    }
+}
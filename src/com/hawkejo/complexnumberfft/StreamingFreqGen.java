@@ -0,0 +1,284 @@
+package com.hawkejo.complexnumberfft;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Computes the frequency of a stream of samples once every hop
+ *
+ * <p>A push based {@link FrequencyGenerator} for live audio. Samples are pushed one at a
+ * time or in blocks of any size into a circular buffer that holds the last windowSize of
+ * them. Once the buffer has filled, and then every hopSize samples, the window is copied
+ * out oldest sample first into a frame array, its frequency is computed by an internal
+ * {@link FFTFreqGen} and sent to every observer. Hops shorter than the window give
+ * overlapping windows. The buffer, the frame and every array of the FFT are allocated
+ * when the generator is created, so streaming allocates nothing once it is running.</p>
+ */
+
+public class StreamingFreqGen implements Runnable, FreqObservable, FrequencyGenerator {
+    private final int windowSize;
+    private final int hopSize;
+    private final double[] ring, frame;
+    private final FFTFreqGen analyzer;
+    private int position, untilHop;
+    private double frequency;
+    private int sampleRate;
+    private final String CLASS_TAG = "StreamingFreqGen";
+    private List<FreqObserver> observers;
+
+    /**
+     * Creates a generator for windows of windowSize samples, computed every hopSize samples.
+     *
+     * @param newWindowSize The number of samples in each window, at least 2
+     * @param newHopSize The number of samples between the starts of two windows, at least 1
+     * @param newRate The sample rate of the stream
+     * @throws RuntimeException Thrown when the window or hop size is too small
+     */
+    public StreamingFreqGen(int newWindowSize, int newHopSize, int newRate) throws RuntimeException {
+        if (newWindowSize < 2) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - The window size must be at least 2\n");
+        }
+        if (newHopSize < 1) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - The hop size must be at least 1\n");
+        }
+
+        windowSize = newWindowSize;
+        hopSize = newHopSize;
+        sampleRate = newRate;
+        ring = new double[windowSize];
+        frame = new double[windowSize];
+        analyzer = new FFTFreqGen(newRate);
+        analyzer.setSamples(frame);
+        frequency = 0.0;
+        observers = new ArrayList<>();
+
+        reset();
+        // Sizes the FFT arrays and caches the plan now, instead of at the first hop
+        analyzer.computeFrequency();
+    }
+
+    /**
+     * Returns the number of samples in each window.
+     *
+     * @return The window size
+     */
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * Returns the number of samples between the starts of two windows.
+     *
+     * @return The hop size
+     */
+    public int getHopSize() {
+        return hopSize;
+    }
+
+    /**
+     * Allows for weighting every window with an analysis window.
+     *
+     * @param newWindow The window to apply
+     * @throws RuntimeException Thrown when the window is null
+     */
+    public void setWindow(WindowFunction newWindow) throws RuntimeException {
+        analyzer.setWindow(newWindow);
+    }
+
+    /**
+     * Allows for refining the frequency of every window between the centres of two bins.
+     *
+     * @param newInterpolation The estimator to use
+     * @throws RuntimeException Thrown when the interpolation is null
+     */
+    public void setInterpolation(PeakInterpolation newInterpolation) throws RuntimeException {
+        analyzer.setInterpolation(newInterpolation);
+    }
+
+    /**
+     * Adds one sample to the stream.
+     *
+     * <p>When the sample completes a hop, the frequency of the window is computed and sent
+     * to every observer.</p>
+     *
+     * @param sample The newest sample of the stream
+     * @return Whether or not a new frequency was computed
+     */
+    public boolean push(double sample) {
+        ring[position] = sample;
+        position = position + 1 == windowSize ? 0 : position + 1;
+
+        if (--untilHop > 0) {
+            return false;
+        }
+
+        hop();
+        return true;
+    }
+
+    /**
+     * Adds a block of samples to the stream.
+     *
+     * <p>The samples are copied into the circular buffer in runs that end at the buffer's
+     * end or at the next hop, and a frequency is computed and sent to every observer for
+     * every hop that the block completes.</p>
+     *
+     * @param samples The samples holding the block
+     * @param offset The first sample of the block
+     * @param length The number of samples in the block
+     * @return The number of new frequencies that were computed
+     * @throws RuntimeException Thrown when the block is outside of the samples
+     */
+    public int push(double[] samples, int offset, int length) throws RuntimeException {
+        if (offset < 0 || length < 0 || offset > samples.length - length) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - The block is outside of the samples\n");
+        }
+
+        int hops = 0;
+        while (length > 0) {
+            int run = Math.min(length, Math.min(untilHop, windowSize - position));
+            System.arraycopy(samples, offset, ring, position, run);
+            position = position + run == windowSize ? 0 : position + run;
+            offset += run;
+            length -= run;
+            untilHop -= run;
+
+            if (untilHop == 0) {
+                hop();
+                hops++;
+            }
+        }
+
+        return hops;
+    }
+
+    /**
+     * Clears the stream, as if no samples had been pushed.
+     *
+     * <p>The next frequency is computed once a whole window has been pushed again.</p>
+     */
+    public void reset() {
+        Arrays.fill(ring, 0.0);
+        position = 0;
+        untilHop = windowSize;
+    }
+
+    /**
+     * Computes the frequency of the current window and reports it to the observers
+     */
+    private void hop() {
+        untilHop = hopSize;
+        computeFrequency();
+        updateObservers();
+    }
+
+    /**
+     * Copies the circular buffer into the frame, oldest sample first
+     */
+    private void unroll() {
+        int tail = windowSize - position;
+        System.arraycopy(ring, position, frame, 0, tail);
+        System.arraycopy(ring, 0, frame, tail, position);
+    }
+
+    @Override
+    public void setArray(ComplexNumber array[]) {
+        setList(Arrays.asList(array));
+    }
+
+    /**
+     * Replaces the stream with the real parts of the List.
+     *
+     * <p>The stream is cleared and the numbers are pushed without computing any
+     * frequencies, so only the last windowSize of them remain in the window. The next
+     * frequency is computed one hop later, or once the window has filled.</p>
+     *
+     * @param audList The new List of ComplexNumbers
+     */
+    @Override
+    public void setList(List<ComplexNumber> audList) {
+        reset();
+        for (ComplexNumber num : audList) {
+            ring[position] = num.getReal();
+            position = position + 1 == windowSize ? 0 : position + 1;
+        }
+        loaded(audList.size());
+    }
+
+    /**
+     * Replaces the stream with the specified samples.
+     *
+     * <p>Works like {@link #setList(List)} on real samples.</p>
+     *
+     * @param newSamples The samples to push into the cleared stream
+     */
+    public void setSamples(double[] newSamples) {
+        reset();
+        for (double sample : newSamples) {
+            ring[position] = sample;
+            position = position + 1 == windowSize ? 0 : position + 1;
+        }
+        loaded(newSamples.length);
+    }
+
+    /**
+     * Sets when the next frequency is due after samples were loaded without any hops
+     *
+     * <p>A full window is followed by a hop, and a partial one still has to fill up.</p>
+     *
+     * @param count The number of samples that were loaded
+     */
+    private void loaded(int count) {
+        untilHop = count >= windowSize ? hopSize : windowSize - count;
+    }
+
+    /**
+     * Allows for changing the internal sampleRate variable
+     *
+     * @param newRate The new sample rate to use in computations.
+     */
+    public void setSampleRate(int newRate) {
+        sampleRate = newRate;
+        analyzer.setSampleRate(newRate);
+    }
+
+    /**
+     * Computes the frequency of the current window without reporting it.
+     *
+     * <p>Samples that haven't been pushed yet count as 0.</p>
+     *
+     * @return The computed frequency
+     */
+    @Override
+    public double computeFrequency() {
+        unroll();
+        frequency = analyzer.computeFrequency();
+
+        return frequency;
+    }
+
+    @Override
+    public void run() {
+        this.computeFrequency();
+    }
+
+    @Override
+    public void addObserver(FreqObserver newObs) {
+        if (newObs != null)
+            observers.add(newObs);
+    }
+
+    @Override
+    public void updateObservers() {
+        // Indexed, since this runs every hop and an iterator would be allocated each time
+        for (int i = 0; i < observers.size(); i++) {
+            observers.get(i).update(frequency);
+        }
+    }
+
+    @Override
+    public double getFrequency() {
+        return frequency;
+    }
+}
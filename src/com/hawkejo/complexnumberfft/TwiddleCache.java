@@ -0,0 +1,183 @@
+package com.hawkejo.complexnumberfft;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A shared cache of twiddle factor tables.
+ *
+ * <p>Computing the sines and cosines for every merge step of an FFT takes a large part
+ * of the transform time, and the same values are needed again for every transform of the
+ * same size. This class keeps the {@link TwiddleTable} for recently used sizes so they
+ * are only computed once. The cache is shared by every FFT in this package, is safe to
+ * use from multiple threads and evicts the least recently used tables once it holds more
+ * than the maximum number of tables or more than the maximum number of bytes. Each table
+ * is counted at the size it can grow to, see {@link TwiddleTable#maxBytes()}, and the
+ * most recently used table is always kept, even when it is larger than the limit.</p>
+ */
+
+public class TwiddleCache {
+    private static final String CLASS_TAG = "TwiddleCache";
+    private static final int DEFAULT_MAX_TABLES = 16;
+    private static final long DEFAULT_MAX_BYTES = 512L << 20;
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static int maxTables = DEFAULT_MAX_TABLES;
+    private static long maxBytes = DEFAULT_MAX_BYTES;
+    private static long bytes = 0;
+    private static final Map<Integer, TwiddleTable> tables =
+            new LinkedHashMap<Integer, TwiddleTable>(DEFAULT_MAX_TABLES, 0.75f, true);
+
+    /**
+     * Only static methods are provided by this class.
+     */
+    private TwiddleCache() {
+    }
+
+    /**
+     * Returns the twiddle table for the specified size, building it if needed.
+     *
+     * <p>The table is built outside of the lock so other threads aren't held up while a
+     * large table is computed. If two threads miss on the same size at once, both build
+     * the table and the first one stored is kept.</p>
+     *
+     * @param size The transform size, must be a power of 2
+     * @return The twiddle table for the size
+     * @throws RuntimeException Thrown when the size isn't a power of 2
+     */
+    static TwiddleTable get(int size) throws RuntimeException {
+        if (size < 1 || (size & (size - 1)) != 0) {
+            throw new RuntimeException(CLASS_TAG + ".get: ERROR - The size must be a power of 2\n");
+        }
+
+        TwiddleTable table;
+        synchronized (tables) {
+            table = tables.get(size);
+        }
+
+        if (table != null) {
+            hits.incrementAndGet();
+            return table;
+        }
+
+        misses.incrementAndGet();
+        TwiddleTable newTable = new TwiddleTable(size);
+
+        synchronized (tables) {
+            table = tables.get(size);
+            if (table == null) {
+                tables.put(size, newTable);
+                bytes += newTable.maxBytes();
+                table = newTable;
+                trim();
+            }
+        }
+
+        return table;
+    }
+
+    /**
+     * Evicts the least recently used tables until the cache is within both limits.
+     *
+     * <p>The caller must hold the lock on the tables.</p>
+     */
+    private static void trim() {
+        while (tables.size() > 1 && (tables.size() > maxTables || bytes > maxBytes)) {
+            Integer eldest = tables.keySet().iterator().next();
+            bytes -= tables.remove(eldest).maxBytes();
+        }
+    }
+
+    /**
+     * Returns how many lookups found their table already in the cache.
+     *
+     * @return The number of cache hits
+     */
+    public static long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Returns how many lookups had to build a new table.
+     *
+     * @return The number of cache misses
+     */
+    public static long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of tables currently held by the cache.
+     *
+     * @return The number of cached tables
+     */
+    public static int getTableCount() {
+        synchronized (tables) {
+            return tables.size();
+        }
+    }
+
+    /**
+     * Returns the number of bytes the cached tables are counted as.
+     *
+     * @return The sum of {@link TwiddleTable#maxBytes()} over the cached tables
+     */
+    public static long getByteCount() {
+        synchronized (tables) {
+            return bytes;
+        }
+    }
+
+    /**
+     * Allows for changing the maximum number of tables kept in the cache.
+     *
+     * <p>Lowering the limit evicts the least recently used tables right away.</p>
+     *
+     * @param newMax The new maximum number of tables, must be at least 1
+     * @throws RuntimeException Thrown when the new maximum is less than 1
+     */
+    public static void setMaxTables(int newMax) throws RuntimeException {
+        if (newMax < 1) {
+            throw new RuntimeException(CLASS_TAG + ".setMaxTables: ERROR - The maximum must be at least 1\n");
+        }
+
+        synchronized (tables) {
+            maxTables = newMax;
+            trim();
+        }
+    }
+
+    /**
+     * Allows for changing the maximum number of bytes kept in the cache.
+     *
+     * <p>Lowering the limit evicts the least recently used tables right away. The most
+     * recently used table is kept even when it alone is larger than the limit.</p>
+     *
+     * @param newMax The new maximum number of bytes, must be at least 1
+     * @throws RuntimeException Thrown when the new maximum is less than 1
+     */
+    public static void setMaxBytes(long newMax) throws RuntimeException {
+        if (newMax < 1) {
+            throw new RuntimeException(CLASS_TAG + ".setMaxBytes: ERROR - The maximum must be at least 1\n");
+        }
+
+        synchronized (tables) {
+            maxBytes = newMax;
+            trim();
+        }
+    }
+
+    /**
+     * Removes every table from the cache and resets the hit and miss counters.
+     */
+    public static void clear() {
+        synchronized (tables) {
+            tables.clear();
+            bytes = 0;
+        }
+        hits.set(0);
+        misses.set(0);
+    }
+}
@@ -0,0 +1,105 @@
+package com.hawkejo.complexnumberfft;
+
+/**
+ * Holds the precomputed twiddle factors for one transform size.
+ *
+ * <p>A table containing W(k) = e^(-j*2*pi*k/size) for every k in the first half of the
+ * unit circle. The table for a size can also be used by any smaller power of 2 transform
+ * by stepping through it with a stride of size / smallerSize. Tables are never modified
+ * after they are built, so they can be shared between threads freely.</p>
+ */
+
+class TwiddleTable {
+    final int size;
+    final double[] cos, sin;
+    private volatile double[][] stages;
+    private volatile float[][] singles;
+
+    /**
+     * Computes the twiddle factors for the specified size.
+     *
+     * @param newSize The transform size the table is built for
+     */
+    TwiddleTable(int newSize) {
+        size = newSize;
+        cos = new double[Math.max(size / 2, 1)];
+        sin = new double[Math.max(size / 2, 1)];
+
+        for (int k = 0; k < cos.length; k++) {
+            double kth = -2 * k * Math.PI / size;
+            cos[k] = Math.cos(kth);
+            sin[k] = Math.sin(kth);
+        }
+    }
+
+    /**
+     * Returns the most memory the table can use.
+     *
+     * <p>Counts the double precision factors, plus the copies made by {@link #byStage()}
+     * and {@link #asFloat()} as if both were already built, since they are only made the
+     * first time they are needed.</p>
+     *
+     * @return The number of bytes held by the factor arrays once every copy is built
+     */
+    long maxBytes() {
+        long factors = cos.length + sin.length;
+        return factors * 8 + 2L * Math.max(size, 2) * 8 + factors * 4;
+    }
+
+    /**
+     * Returns the twiddle factors rearranged so each stage reads them contiguously.
+     *
+     * <p>The factors for the stage that combines halves of h elements are stored at
+     * h through 2h - 1, so vectorized butterflies can load them with unit stride. The
+     * arrays are built the first time they are needed. If two threads build them at
+     * once, both get identical arrays.</p>
+     *
+     * @return The real parts in index 0 and the imaginary parts in index 1
+     */
+    double[][] byStage() {
+        double[][] result = stages;
+        if (result == null) {
+            double[] stageCos = new double[Math.max(size, 2)];
+            double[] stageSin = new double[Math.max(size, 2)];
+
+            for (int half = 1; half < size; half <<= 1) {
+                int stride = size / (2 * half);
+                for (int k = 0; k < half; k++) {
+                    stageCos[half + k] = cos[k * stride];
+                    stageSin[half + k] = sin[k * stride];
+                }
+            }
+
+            result = new double[][] {stageCos, stageSin};
+            stages = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the twiddle factors rounded to single precision.
+     *
+     * <p>The arrays are built the first time they are needed. If two threads build them
+     * at once, both get identical arrays.</p>
+     *
+     * @return The real parts in index 0 and the imaginary parts in index 1
+     */
+    float[][] asFloat() {
+        float[][] result = singles;
+        if (result == null) {
+            float[] floatCos = new float[cos.length];
+            float[] floatSin = new float[sin.length];
+
+            for (int k = 0; k < cos.length; k++) {
+                floatCos[k] = (float) cos[k];
+                floatSin[k] = (float) sin[k];
+            }
+
+            result = new float[][] {floatCos, floatSin};
+            singles = result;
+        }
+
+        return result;
+    }
+}
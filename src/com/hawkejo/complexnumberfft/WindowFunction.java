@@ -0,0 +1,237 @@
+package com.hawkejo.complexnumberfft;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Analysis windows that taper the input of an FFT
+ *
+ * <p>Transforming a block of samples as it is treats the cut at either end as part of the
+ * signal, which spreads every tone across the whole spectrum. This leakage buries weak
+ * tones next to strong ones unless the FFT is made much larger. Weighting the block with a
+ * window that falls to 0 at the ends trades a wider peak for far lower leakage. Every
+ * window here is a sum of cosines, in the periodic form used for spectral analysis. The
+ * table for a size is computed once and kept in a small cache per window, like the
+ * {@link TwiddleCache}, so applying a window costs one multiply per sample.</p>
+ */
+
+public enum WindowFunction {
+    /**
+     * No window, every weight is 1.
+     *
+     * <p>The narrowest peaks, but the highest leakage, with sidelobes only 13 dB down.</p>
+     */
+    NONE(new double[] {1.0}),
+
+    /**
+     * The Hann window.
+     *
+     * <p>A good default, with sidelobes 31 dB down that fall off quickly.</p>
+     */
+    HANN(new double[] {0.5, 0.5}),
+
+    /**
+     * The Hamming window.
+     *
+     * <p>Sidelobes 43 dB down next to the peak, but falling off slowly further away.</p>
+     */
+    HAMMING(new double[] {0.54, 0.46}),
+
+    /**
+     * The 4 term Blackman-Harris window.
+     *
+     * <p>Sidelobes 92 dB down, for finding weak tones next to strong ones, at the cost of
+     * a peak about twice as wide as {@link #HANN}.</p>
+     */
+    BLACKMAN_HARRIS(new double[] {0.35875, 0.48829, 0.14128, 0.01168}),
+
+    /**
+     * A 5 term flat top window.
+     *
+     * <p>The top of the peak is flat to within 0.01 dB across a whole bin, so the
+     * magnitude of a tone is measured correctly wherever it lies between bins. The peak
+     * is the widest of all of the windows.</p>
+     */
+    FLAT_TOP(new double[] {0.21557895, 0.41663158, 0.277263158, 0.083578947, 0.006947368});
+
+    private static final int MAX_TABLES = 8;
+    // Halving steps of the search in offset(), which leave an error far below 1e-9 bins
+    private static final int SEARCH_STEPS = 40;
+
+    private final double[] coefficients;
+    private final Map<Integer, double[]> tables;
+
+    WindowFunction(double[] newCoefficients) {
+        coefficients = newCoefficients;
+        tables = new LinkedHashMap<Integer, double[]>(MAX_TABLES, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, double[]> eldest) {
+                return size() > MAX_TABLES;
+            }
+        };
+    }
+
+    /**
+     * Computes one weight of the window
+     *
+     * <p>w[n] = a0 - a1 cos(2 pi n/size) + a2 cos(4 pi n/size) - ..., so the weights of
+     * every window sum to a0 * size.</p>
+     *
+     * @param n The index of the sample
+     * @param size The number of samples in the block
+     * @return The weight
+     */
+    public double weight(int n, int size) {
+        double sum = coefficients[0];
+        for (int term = 1; term < coefficients.length; term++) {
+            double cosine = Math.cos(2 * Math.PI * term * n / size);
+            sum += (term % 2 == 1 ? -coefficients[term] : coefficients[term]) * cosine;
+        }
+
+        return sum;
+    }
+
+    /**
+     * Returns a copy of the weights for a block size.
+     *
+     * @param size The number of samples in the block, at least 1
+     * @return A new array holding the weight of every sample
+     * @throws RuntimeException Thrown when the size is less than 1
+     */
+    public double[] weights(int size) throws RuntimeException {
+        return table(size).clone();
+    }
+
+    /**
+     * Returns the average weight, which is how much the window scales a tone's magnitude.
+     *
+     * @return The coherent gain of the window
+     */
+    public double getCoherentGain() {
+        return coefficients[0];
+    }
+
+    /**
+     * Estimates how far a tone lies from the centre of a bin of a windowed spectrum
+     *
+     * <p>A tone delta bins above bin k leaves X[k + j] proportional to
+     * (-1)^j * D(delta - j), where D is the kernel of the window, so the ratios of the two
+     * neighbours to the peak only depend on delta. Like Quinn's estimator, the ratios are
+     * taken as the real parts of X[k -+ 1] / X[k], and delta is then found by halving the
+     * range -1/2 to 1/2 until D gives the same difference of the ratios. For NONE this
+     * is exact for a lone complex tone, as for Quinn's estimators, and for the other
+     * windows it is as exact, apart from the leakage of other tones.</p>
+     *
+     * @param re The real parts of the bins
+     * @param im The imaginary parts of the bins
+     * @param bin The strongest bin, which must have a bin on either side
+     * @return The offset of the tone from the centre of the bin, in bins, or NaN when the
+     * bins give no usable estimate
+     */
+    double offset(double[] re, double[] im, int bin) {
+        double power = re[bin] * re[bin] + im[bin] * im[bin];
+        double before = (re[bin - 1] * re[bin] + im[bin - 1] * im[bin]) / power;
+        double after = (re[bin + 1] * re[bin] + im[bin + 1] * im[bin]) / power;
+        double measured = after - before;
+        if (Double.isNaN(measured)) {
+            return Double.NaN;
+        }
+
+        // The difference falls as the tone moves up, from its value at -1/2 to that at 1/2
+        double low = -0.5, high = 0.5;
+        for (int step = 0; step < SEARCH_STEPS; step++) {
+            double middle = (low + high) / 2;
+            if (ratioDifference(middle) > measured) {
+                low = middle;
+            }
+            else {
+                high = middle;
+            }
+        }
+
+        return (low + high) / 2;
+    }
+
+    /**
+     * Computes the difference of the neighbour ratios for a tone delta bins above a bin
+     *
+     * @param delta The offset of the tone from the centre of the bin, in bins
+     * @return (D(delta + 1) - D(delta - 1)) / D(delta)
+     */
+    private double ratioDifference(double delta) {
+        return (kernel(delta + 1) - kernel(delta - 1)) / kernel(delta);
+    }
+
+    /**
+     * Computes the spectrum of the window at a distance from a tone, up to a constant
+     *
+     * <p>Each cosine of the window shifts a copy of the sinc of the unwindowed transform
+     * by its number of bins either way, so D(d) = a0 sinc(d) + the sum of
+     * am/2 (sinc(d - m) + sinc(d + m)). The alternating signs of the terms cancel against
+     * the alternating signs of the shifted sincs.</p>
+     *
+     * @param distance The distance from the tone, in bins
+     * @return The kernel at that distance
+     */
+    private double kernel(double distance) {
+        double sum = coefficients[0] * sinc(distance);
+        for (int term = 1; term < coefficients.length; term++) {
+            sum += coefficients[term] / 2 * (sinc(distance - term) + sinc(distance + term));
+        }
+
+        return sum;
+    }
+
+    /**
+     * Computes sin(pi x) / (pi x)
+     *
+     * @param x The argument
+     * @return The normalized sinc of x
+     */
+    private static double sinc(double x) {
+        if (x == 0.0) {
+            return 1.0;
+        }
+
+        return Math.sin(Math.PI * x) / (Math.PI * x);
+    }
+
+    /**
+     * Returns the shared table of weights for a block size, building it if needed
+     *
+     * <p>The table is built outside of the lock, as in {@link TwiddleCache}. It must not
+     * be changed by the caller.</p>
+     *
+     * @param size The number of samples in the block, at least 1
+     * @return The weight of every sample
+     * @throws RuntimeException Thrown when the size is less than 1
+     */
+    double[] table(int size) throws RuntimeException {
+        if (size < 1) {
+            throw new RuntimeException("WindowFunction.table: ERROR - The size must be at least 1\n");
+        }
+
+        double[] table;
+        synchronized (tables) {
+            table = tables.get(size);
+        }
+        if (table != null) {
+            return table;
+        }
+
+        double[] newTable = new double[size];
+        for (int n = 0; n < size; n++) {
+            newTable[n] = weight(n, size);
+        }
+
+        synchronized (tables) {
+            table = tables.get(size);
+            if (table == null) {
+                tables.put(size, newTable);
+                table = newTable;
+            }
+        }
+
+        return table;
+    }
+}
@@ -0,0 +1,339 @@
+package com.hawkejo.complexnumberfft;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+
+/**
+ * Computes the pitch of voice and instrument audio with the YIN algorithm
+ *
+ * <p>A {@link FrequencyGenerator} that finds the period of the input in the time domain.
+ * The difference function d(t), the sum of (x[j] - x[j+t])^2 over the first part of the
+ * window, is rewritten as two energy terms minus twice a cross-correlation. The energies
+ * come from a running sum of squares and the cross-correlation from an FFT, so every lag
+ * is computed in O(N log N) instead of the O(N^2) of the direct sums. Both real signals
+ * share one complex forward transform, and the product of their spectra is taken back
+ * with an inverse {@link FFTPlan}. The difference function is then normalized by its
+ * running mean, the first dip below the threshold is taken as the period and refined
+ * with a parabola. How far that dip goes towards 0 is reported as the confidence that the
+ * input is periodic at all. The plans and scratch arrays are kept between calls of the
+ * same window size. Only the real parts of the input are used.</p>
+ */
+
+public class YinFreqGen implements Runnable, FreqObservable, FrequencyGenerator {
+    private double[] samples, realScratch;
+    private int offset, length;
+    private double minFrequency, maxFrequency, threshold;
+    private FFTPlan forward, inverse;
+    private double[] workRe, workIm, normalized, difference;
+    private double confidence;
+    private double frequency;
+    private int sampleRate;
+    private final String CLASS_TAG = "YinFreqGen";
+    private List<FreqObserver> observers;
+
+    /**
+     * Defaults the sampleRate variable to 8000 Hz
+     */
+    public YinFreqGen() {
+        this(8000);
+    }
+
+    /**
+     * Allows for specifying the sample rate.
+     *
+     * <p>Pitches from 40 Hz up to a quarter of the sample rate are searched, with a
+     * threshold of 0.1.</p>
+     *
+     * @param newRate The specified sample rate.
+     */
+    public YinFreqGen(int newRate) {
+        sampleRate = newRate;
+        minFrequency = 40.0;
+        maxFrequency = newRate / 4.0;
+        threshold = 0.1;
+        frequency = 0.0;
+        confidence = 0.0;
+        observers = new LinkedList<>();
+    }
+
+    /**
+     * Allows for limiting the pitches that are searched.
+     *
+     * <p>The lowest pitch sets the longest period, which has to fit into half of the
+     * window. A higher lowest pitch leaves more of the window for the sums.</p>
+     *
+     * @param minHz The lowest pitch to look for
+     * @param maxHz The highest pitch to look for
+     * @throws RuntimeException Thrown when the range is empty or not positive and finite
+     */
+    public void setFrequencyRange(double minHz, double maxHz) throws RuntimeException {
+        if (!(minHz > 0.0) || !(maxHz >= minHz) || Double.isInfinite(maxHz)) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - The range must be positive, finite and not empty\n");
+        }
+
+        minFrequency = minHz;
+        maxFrequency = maxHz;
+    }
+
+    /**
+     * Allows for changing the threshold of the normalized difference.
+     *
+     * <p>The first lag whose normalized difference falls below the threshold is taken as
+     * the period. Lower values avoid picking a multiple of the period's harmonics, higher
+     * values avoid jumping to a multiple of the period.</p>
+     *
+     * @param newThreshold The threshold, between 0 and 1
+     * @throws RuntimeException Thrown when the threshold is outside of 0 to 1
+     */
+    public void setThreshold(double newThreshold) throws RuntimeException {
+        if (!(newThreshold > 0.0 && newThreshold <= 1.0)) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - The threshold must be between 0 and 1\n");
+        }
+
+        threshold = newThreshold;
+    }
+
+    @Override
+    public void setArray(ComplexNumber array[]) {
+        setList(Arrays.asList(array));
+    }
+
+    @Override
+    public void setList(List<ComplexNumber> audList) {
+        if (realScratch == null || realScratch.length != audList.size()) {
+            realScratch = new double[audList.size()];
+        }
+
+        int i = 0;
+        for (ComplexNumber num : audList) {
+            realScratch[i++] = num.getReal();
+        }
+
+        setSamples(realScratch, 0, realScratch.length);
+    }
+
+    /**
+     * Allows for specifying real audio samples directly.
+     *
+     * <p>The array is used as it is, without copying it.</p>
+     *
+     * @param newSamples The new audio samples to compute the frequency from
+     */
+    public void setSamples(double[] newSamples) {
+        setSamples(newSamples, 0, newSamples.length);
+    }
+
+    /**
+     * Allows for using a window of a longer recording without copying it.
+     *
+     * <p>Tracking the pitch frame by frame only needs the offset to change between
+     * calls, and keeping the length the same keeps the plans and scratch arrays.</p>
+     *
+     * @param newSamples The audio samples holding the window
+     * @param newOffset The first sample of the window
+     * @param newLength The number of samples in the window
+     * @throws RuntimeException Thrown when the window is outside of the samples
+     */
+    public void setSamples(double[] newSamples, int newOffset, int newLength) throws RuntimeException {
+        if (newOffset < 0 || newLength < 0 || newOffset > newSamples.length - newLength) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - The window is outside of the samples\n");
+        }
+
+        samples = newSamples;
+        offset = newOffset;
+        length = newLength;
+    }
+
+    /**
+     * Allows for changing the internal sampleRate variable
+     *
+     * @param newRate The new sample rate to use in computations.
+     */
+    public void setSampleRate(int newRate) {
+        sampleRate = newRate;
+    }
+
+    /**
+     * Returns how periodic the input was when the frequency was last computed.
+     *
+     * <p>This is 1 minus the normalized difference at the chosen period: close to 1 for
+     * a clean tone, and low for noise or silence, where the frequency means little.</p>
+     *
+     * @return The confidence, from 0 to 1
+     */
+    public double getConfidence() {
+        return confidence;
+    }
+
+    @Override
+    public double computeFrequency() throws RuntimeException {
+        if (samples == null) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - No input has been set");
+        }
+
+        int minLag = Math.max(2, (int) Math.floor(sampleRate / maxFrequency));
+        int maxLag = Math.min(length / 2, (int) Math.ceil(sampleRate / minFrequency));
+        if (maxLag <= minLag) {
+            throw new RuntimeException(CLASS_TAG + ": ERROR - The window is too short for the frequency range");
+        }
+
+        differences(maxLag);
+
+        // Cumulative mean normalized difference, d'(t) = d(t) * t / (d(1) + ... + d(t))
+        double sum = 0.0;
+        for (int t = 1; t <= maxLag; t++) {
+            sum += difference[t];
+            normalized[t] = sum > 0.0 ? difference[t] * t / sum : 1.0;
+        }
+
+        // The first dip below the threshold, followed down to its bottom, or else the
+        // lowest point of the whole range
+        int period = -1;
+        for (int t = minLag; t <= maxLag; t++) {
+            if (normalized[t] < threshold) {
+                while (t < maxLag && normalized[t + 1] < normalized[t]) {
+                    t++;
+                }
+                period = t;
+                break;
+            }
+        }
+        if (period < 0) {
+            period = minLag;
+            for (int t = minLag + 1; t <= maxLag; t++) {
+                if (normalized[t] < normalized[period]) {
+                    period = t;
+                }
+            }
+        }
+
+        confidence = Math.max(0.0, Math.min(1.0, 1.0 - normalized[period]));
+        frequency = sampleRate / (period + refine(period, maxLag));
+
+        return frequency;
+    }
+
+    /**
+     * Computes the difference function for lags 0 through maxLag into the difference array
+     *
+     * <p>With W = length - maxLag samples in each sum,
+     * d(t) = e(0) + e(t) - 2r(t), where e(t) is the sum of x[j]^2 for j from t to t + W - 1
+     * and r(t) is the sum of x[j] * x[j + t] for j below W. The window goes into the real
+     * parts and its first W samples into the imaginary parts of one transform, and their
+     * cross spectrum is separated from it directly. No lag wraps around, since j + t stays
+     * below the length, so the transform only has to hold the window.</p>
+     *
+     * @param maxLag The longest lag
+     */
+    private void differences(int maxLag) {
+        int sumLength = length - maxLag;
+        int size = Integer.highestOneBit(Math.max(length - 1, 1)) << 1;
+        prepare(size, maxLag);
+
+        for (int i = 0; i < length; i++) {
+            workRe[i] = samples[offset + i];
+            workIm[i] = i < sumLength ? workRe[i] : 0.0;
+        }
+        Arrays.fill(workRe, length, size, 0.0);
+        Arrays.fill(workIm, length, size, 0.0);
+
+        forward.execute(workRe, workIm);
+
+        // With a = Z[k] and b = Z[-k], X[k] * conj(Y[k]) works out to
+        // (Re(a)Im(b) + Im(a)Re(b)) / 2 + j(|a|^2 - |b|^2) / 4, and the pair is done together
+        for (int k = 0; k <= size / 2; k++) {
+            int m = (size - k) & (size - 1);
+            double ar = workRe[k], ai = workIm[k], br = workRe[m], bi = workIm[m];
+            double crossRe = 0.5 * (ar * bi + ai * br);
+            double crossIm = 0.25 * (ar * ar + ai * ai - br * br - bi * bi);
+
+            workRe[k] = crossRe;
+            workIm[k] = crossIm;
+            workRe[m] = crossRe;
+            workIm[m] = -crossIm;
+        }
+
+        inverse.execute(workRe, workIm);
+
+        // Running sums of squares give every e(t) in O(1)
+        double head = 0.0;
+        for (int j = 0; j < sumLength; j++) {
+            double x = samples[offset + j];
+            head += x * x;
+        }
+        double tail = head;
+        difference[0] = 0.0;
+        for (int t = 1; t <= maxLag; t++) {
+            double leaving = samples[offset + t - 1], entering = samples[offset + t + sumLength - 1];
+            tail += entering * entering - leaving * leaving;
+            difference[t] = Math.max(0.0, head + tail - 2 * workRe[t]);
+        }
+    }
+
+    /**
+     * Makes sure the plans and scratch arrays fit the transform size and lags
+     *
+     * @param size The size of the transforms
+     * @param maxLag The longest lag
+     */
+    private void prepare(int size, int maxLag) {
+        if (forward == null || forward.getSize() != size) {
+            forward = new FFTPlan(size);
+            inverse = new FFTPlan(size, true);
+            workRe = new double[size];
+            workIm = new double[size];
+        }
+        if (difference == null || difference.length < maxLag + 1) {
+            difference = new double[maxLag + 1];
+            normalized = new double[maxLag + 1];
+        }
+    }
+
+    /**
+     * Fits a parabola through the difference function around the period
+     *
+     * @param period The lag of the dip
+     * @param maxLag The longest lag
+     * @return The offset of the bottom of the parabola from the period, in samples
+     */
+    private double refine(int period, int maxLag) {
+        if (period < 2 || period >= maxLag) {
+            return 0.0;
+        }
+
+        double before = difference[period - 1], at = difference[period], after = difference[period + 1];
+        double curve = before - 2 * at + after;
+        if (!(curve > 0.0)) {
+            return 0.0;
+        }
+
+        return Math.max(-0.5, Math.min(0.5, 0.5 * (before - after) / curve));
+    }
+
+    @Override
+    public void run() {
+        this.computeFrequency();
+    }
+
+    @Override
+    public void addObserver(FreqObserver newObs) {
+        if (newObs != null)
+            observers.add(newObs);
+    }
+
+    @Override
+    public void updateObservers() {
+        ListIterator<FreqObserver> it = observers.listIterator();
+
+        while(it.hasNext()) {
+            it.next().update(frequency);
+        }
+    }
+
+    @Override
+    public double getFrequency() {
+        return frequency;
+    }
+}
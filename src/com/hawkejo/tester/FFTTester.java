@@ -1,12 +1,38 @@
 package com.hawkejo.tester;
 
+import com.hawkejo.complexnumberfft.CepstrumFreqGen;
+import com.hawkejo.complexnumberfft.ComplexBuffer;
 import com.hawkejo.complexnumberfft.ComplexNumber;
+import com.hawkejo.complexnumberfft.ExternalFFT;
 import com.hawkejo.complexnumberfft.FFTFreqGen;
+import com.hawkejo.complexnumberfft.FFTPlan;
+import com.hawkejo.complexnumberfft.FloatFFT;
+import com.hawkejo.complexnumberfft.FloatFFTFreqGen;
 import com.hawkejo.complexnumberfft.FrequencyGenerator;
+import com.hawkejo.complexnumberfft.GoertzelFreqGen;
+import com.hawkejo.complexnumberfft.HPSFreqGen;
+import com.hawkejo.complexnumberfft.OffHeapFreqGen;
+import com.hawkejo.complexnumberfft.ParallelFFT;
+import com.hawkejo.complexnumberfft.PeakInterpolation;
+import com.hawkejo.complexnumberfft.PolyphaseDecimator;
+import com.hawkejo.complexnumberfft.PrimitiveFFT;
+import com.hawkejo.complexnumberfft.SimdFFT;
+import com.hawkejo.complexnumberfft.SixStepFFT;
+import com.hawkejo.complexnumberfft.SlidingDFTFreqGen;
+import com.hawkejo.complexnumberfft.SpectralPeak;
+import com.hawkejo.complexnumberfft.StreamingFreqGen;
+import com.hawkejo.complexnumberfft.TwiddleCache;
+import com.hawkejo.complexnumberfft.WindowFunction;
+import com.hawkejo.complexnumberfft.YinFreqGen;
 import phonecs.WavFile;
 
 import java.io.File;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.DoubleBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
 
@@ -193,6 +219,10 @@ class FFTTester {
 
 	/**
 	 * Tests the speed of the FFTFreqGen class
+	 *
+	 * <p>Last, the twiddle cache is cleared and the primitive version is run repeatedly on
+	 * the same size by new generators, reporting the cache counters and the time of the first run, which
+	 * builds the table, next to the best time of the runs after it.</p>
 	 */
 	static void testSpeedFFT(int binSize) {
 		long startTime;
@@ -213,10 +243,15 @@ class FFTTester {
 		// Test FFTFreqGen
 		FFTFreqGen toFreqST = new FFTFreqGen();
 		FFTFreqGen toFreqMT = new FFTFreqGen();
+		FFTFreqGen toFreqPrim = new FFTFreqGen();
+		FFTFreqGen toFreqReal = new FFTFreqGen();
 
 		// Set the arrays
 		toFreqST.setArray(toFFTArr);
 		toFreqMT.setArray(toFFTArr);
+		toFreqPrim.setArray(toFFTArr);
+		toFreqReal.setArray(toFFTArr);
+		toFreqReal.setRealInput(true);
 
 		// Test the Single-threaded version
 		startTime = System.nanoTime();
@@ -234,6 +269,1580 @@ class FFTTester {
 		totalTime = (endTime-startTime) / 1000000;
 
 		System.out.println("Multi Threaded Performance:");
-		System.out.format("Frequency: %.3f Hz\nTime: %d ms", out, totalTime);
+		System.out.format("Frequency: %.3f Hz\nTime: %d ms\n\n", out, totalTime);
+
+		// Test the primitive array version
+		startTime = System.nanoTime();
+		out = toFreqPrim.computeFrequencyPrimitive();
+		endTime = System.nanoTime();
+		totalTime = (endTime-startTime) / 1000000;
+
+		System.out.println("Primitive Array Performance:");
+		System.out.format("Frequency: %.3f Hz\nTime: %d ms\n\n", out, totalTime);
+
+		// Test the real input version
+		startTime = System.nanoTime();
+		out = toFreqReal.computeFrequencyReal();
+		endTime = System.nanoTime();
+		totalTime = (endTime-startTime) / 1000000;
+
+		System.out.println("Real Input Performance:");
+		System.out.format("Frequency: %.3f Hz\nTime: %d ms\n\n", out, totalTime);
+
+		// Test the twiddle cache, where only the first run should have to build the table.
+		// Each run uses a new FFTFreqGen, since one keeps the plan holding its table.
+		final int runs = 20;
+		TwiddleCache.clear();
+		long firstTime = 0, repeatTime = Long.MAX_VALUE;
+		for (int run = 0; run < runs; run++) {
+			startTime = System.nanoTime();
+			FFTFreqGen toFreqRun = new FFTFreqGen();
+			toFreqRun.setArray(toFFTArr);
+			toFreqRun.computeFrequencyPrimitive();
+			totalTime = System.nanoTime() - startTime;
+
+			if (run == 0) {
+				firstTime = totalTime;
+			}
+			else {
+				repeatTime = Math.min(repeatTime, totalTime);
+			}
+		}
+
+		System.out.format("Twiddle Cache over %d runs:\n", runs);
+		System.out.format("Hits: %d  Misses: %d  Tables: %d  Bytes: %d\n", TwiddleCache.getHitCount(),
+				TwiddleCache.getMissCount(), TwiddleCache.getTableCount(), TwiddleCache.getByteCount());
+		System.out.format("First Time: %d ms\nRepeat Time: %d ms", firstTime / 1000000, repeatTime / 1000000);
+	}
+
+	/**
+	 * Tests the speed of the SIMD engine against the scalar primitive arrays
+	 *
+	 * <p>Each size is transformed repeatedly by both engines and the best average time
+	 * of several rounds is reported. The SIMD engine only differs from the scalar one
+	 * when src-simd was built and the program runs with --add-modules jdk.incubator.vector.</p>
+	 */
+	static void testSpeedSimd() {
+		System.out.println("Testing Speed of SimdFFT.");
+		System.out.println("Vector API available: " + SimdFFT.isAvailable() + "\n");
+
+		Random rand = new Random();
+		for (int size = 4096; size <= 1048576; size *= 2) {
+			double[] re = new double[size], im = new double[size];
+			double[] workRe = new double[size], workIm = new double[size];
+			for (int i = 0; i < size; i++) {
+				re[i] = rand.nextDouble() * 2 - 1;
+			}
+
+			int reps = Math.max(4, 16777216 / size);
+			long scalarTime = Long.MAX_VALUE, simdTime = Long.MAX_VALUE;
+
+			for (int round = 0; round < 5; round++) {
+				long startTime = System.nanoTime();
+				for (int i = 0; i < reps; i++) {
+					System.arraycopy(re, 0, workRe, 0, size);
+					System.arraycopy(im, 0, workIm, 0, size);
+					PrimitiveFFT.fft(workRe, workIm, size);
+				}
+				scalarTime = Math.min(scalarTime, (System.nanoTime() - startTime) / reps);
+
+				startTime = System.nanoTime();
+				for (int i = 0; i < reps; i++) {
+					System.arraycopy(re, 0, workRe, 0, size);
+					System.arraycopy(im, 0, workIm, 0, size);
+					SimdFFT.fft(workRe, workIm, size);
+				}
+				simdTime = Math.min(simdTime, (System.nanoTime() - startTime) / reps);
+			}
+
+			System.out.format("Size: %7d  Scalar: %8d us  SIMD: %8d us  Speedup: %.2fx\n", size,
+					scalarTime / 1000, simdTime / 1000, (double) scalarTime / simdTime);
+		}
+	}
+
+	/**
+	 * Tests the speed of the batched frame API against one computation per frame
+	 *
+	 * <p>A random signal is split into frames of several sizes. Each frame is computed
+	 * by a separate {@link FFTFreqGen#computeFrequencyReal()} call and then all frames are
+	 * computed by a single {@link FFTFreqGen#computeFrequencies(double[], int)} call, and
+	 * the best time of several rounds is reported for both.</p>
+	 *
+	 * @param totalSize The total number of samples in all frames
+	 */
+	static void testSpeedBatch(int totalSize) {
+		System.out.println("Testing Speed of batched frames.\n");
+
+		Random rand = new Random();
+		double[] signal = new double[totalSize];
+		for (int i = 0; i < totalSize; i++) {
+			signal[i] = rand.nextDouble() * 2 - 1;
+		}
+
+		for (int frameSize = 256; frameSize <= 16384; frameSize *= 4) {
+			int frames = totalSize / frameSize;
+			double[][] split = new double[frames][];
+			for (int f = 0; f < frames; f++) {
+				split[f] = Arrays.copyOfRange(signal, f * frameSize, (f + 1) * frameSize);
+			}
+
+			FFTFreqGen gen = new FFTFreqGen(44100);
+			long singleTime = Long.MAX_VALUE, batchTime = Long.MAX_VALUE;
+
+			for (int round = 0; round < 5; round++) {
+				long startTime = System.nanoTime();
+				for (int f = 0; f < frames; f++) {
+					gen.setSamples(split[f]);
+					gen.computeFrequencyReal();
+				}
+				singleTime = Math.min(singleTime, System.nanoTime() - startTime);
+
+				startTime = System.nanoTime();
+				gen.computeFrequencies(signal, frameSize);
+				batchTime = Math.min(batchTime, System.nanoTime() - startTime);
+			}
+
+			System.out.format("Frame: %6d  Frames: %6d  Per frame: %8d us  Batched: %8d us  Speedup: %.2fx\n",
+					frameSize, frames, singleTime / 1000, batchTime / 1000, (double) singleTime / batchTime);
+		}
+	}
+
+	/**
+	 * Tests the speed of the six-step FFT against the multi threaded FFT
+	 *
+	 * <p>Sizes from 2^20 to 2^24 are transformed by {@link ParallelFFT}, which backs
+	 * {@link ComplexNumber#fftMT(List)}, and by {@link SixStepFFT}. Both work on primitive
+	 * arrays, so the times only differ by the algorithm, and the best time of several
+	 * rounds is reported for each.</p>
+	 */
+	static void testSpeedSixStep() {
+		System.out.println("Testing Speed of SixStepFFT against ParallelFFT.\n");
+
+		Random rand = new Random();
+		for (int size = 1048576; size <= 16777216; size *= 2) {
+			double[] re = new double[size], im = new double[size];
+			double[] workRe = new double[size], workIm = new double[size];
+			for (int i = 0; i < size; i++) {
+				re[i] = rand.nextDouble() * 2 - 1;
+			}
+
+			long parallelTime = Long.MAX_VALUE, sixStepTime = Long.MAX_VALUE;
+
+			for (int round = 0; round < 3; round++) {
+				System.arraycopy(re, 0, workRe, 0, size);
+				System.arraycopy(im, 0, workIm, 0, size);
+				long startTime = System.nanoTime();
+				ParallelFFT.fft(workRe, workIm, size);
+				parallelTime = Math.min(parallelTime, System.nanoTime() - startTime);
+
+				System.arraycopy(re, 0, workRe, 0, size);
+				System.arraycopy(im, 0, workIm, 0, size);
+				startTime = System.nanoTime();
+				SixStepFFT.fft(workRe, workIm, size);
+				sixStepTime = Math.min(sixStepTime, System.nanoTime() - startTime);
+			}
+
+			System.out.format("Size: %8d  ParallelFFT: %8d ms  SixStepFFT: %8d ms  Speedup: %.2fx\n", size,
+					parallelTime / 1000000, sixStepTime / 1000000, (double) parallelTime / sixStepTime);
+		}
+	}
+
+	/**
+	 * Tests the frequency and speed of transform sizes that are not powers of 2
+	 *
+	 * <p>One second of the 440 Hz recording is read, and the first samples of it are
+	 * computed at a power of 2 for reference, at 4410, 960 and 1600, which the mixed-radix
+	 * transform handles, and at 4409, which has to use Bluestein's algorithm. The whole
+	 * second and one sample less are computed the same way. Each size is run through
+	 * {@link FFTFreqGen#computeFrequency()} and through an {@link FFTPlan} of that size,
+	 * reporting the frequency of the largest bin and the best time of several passes for
+	 * each.</p>
+	 */
+	static void testSpeedSizes() {
+		final String file = "res/440sr44100.wav";
+		final int[] sizes = {4096, 4410, 960, 1600, 4409, 44100, 44099};
+
+		System.out.println("Testing Speed of FFTFreqGen and FFTPlan on sizes that are not powers of 2.\n");
+
+		try
+		{
+			WavFile wavFile = WavFile.openWavFile(new File(file));
+			int sampleRate = (int) wavFile.getSampleRate();
+			double[] second = readChannel(wavFile, sampleRate);
+			wavFile.close();
+
+			System.out.format("%-12s %8s %14s %12s %14s %12s\n", "Algorithm", "Size", "FFTFreqGen", "FFTFreqGen",
+					"FFTPlan", "FFTPlan");
+			for (int size : sizes) {
+				double[] samples = Arrays.copyOf(second, size);
+				FFTFreqGen freqGen = new FFTFreqGen(sampleRate);
+				freqGen.setSamples(samples);
+
+				FFTPlan plan = new FFTPlan(size);
+				double[] re = new double[size], im = new double[size];
+
+				long freqGenTime = Long.MAX_VALUE, planTime = Long.MAX_VALUE;
+				// Enough passes are run for the JIT compiler to finish, keeping the best time
+				for (int pass = 0; pass < 50; pass++) {
+					long startTime = System.nanoTime();
+					freqGen.computeFrequency();
+					freqGenTime = Math.min(freqGenTime, System.nanoTime() - startTime);
+
+					Arrays.fill(im, 0.0);
+					startTime = System.nanoTime();
+					plan.execute(samples, im, re, im);
+					planTime = Math.min(planTime, System.nanoTime() - startTime);
+				}
+
+				int peak = 1;
+				for (int bin = 2; bin <= size / 2; bin++) {
+					if (re[bin] * re[bin] + im[bin] * im[bin] > re[peak] * re[peak] + im[peak] * im[peak]) {
+						peak = bin;
+					}
+				}
+
+				int rest = size;
+				for (int radix : new int[] {2, 3, 5, 7}) {
+					while (rest % radix == 0) {
+						rest /= radix;
+					}
+				}
+				String algorithm = (size & (size - 1)) == 0 ? "Radix-2" : rest == 1 ? "Mixed-radix" : "Bluestein";
+
+				System.out.format("%-12s %8d %11.4f Hz %9d us %11.4f Hz %9d us\n", algorithm, size,
+						freqGen.getFrequency(), freqGenTime / 1000, (double) peak * sampleRate / size,
+						planTime / 1000);
+			}
+		}
+		catch (Exception e)
+		{
+			System.err.println(e);
+		}
+	}
+
+	/**
+	 * Tests the speed and allocation of the in-place inverse FFT
+	 *
+	 * <p>Sizes from 2^16 to 2^20 are inverted by the earlier List based method, which is
+	 * rebuilt in {@link #linkedListIfft(List)}, by {@link ComplexNumber#ifft(List)} and by
+	 * {@link PrimitiveFFT#ifft(double[], double[], int)} on arrays. The time and the bytes
+	 * allocated by the calling thread are reported for each, taking the best time of
+	 * several rounds for the two new methods.</p>
+	 */
+	static void testSpeedIfft() {
+		System.out.println("Testing Speed and allocation of the inverse FFT.\n");
+
+		com.sun.management.ThreadMXBean threads =
+				(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+		Random rand = new Random();
+
+		for (int size = 65536; size <= 1048576; size *= 2) {
+			List<ComplexNumber> input = new ArrayList<>(size);
+			double[] re = new double[size], im = new double[size];
+			double[] workRe = new double[size], workIm = new double[size];
+			for (int i = 0; i < size; i++) {
+				re[i] = rand.nextDouble() * 2 - 1;
+				im[i] = rand.nextDouble() * 2 - 1;
+				input.add(new ComplexNumber(re[i], im[i]));
+			}
+
+			long[] times = {Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE};
+			long[] bytes = new long[3];
+
+			// The List based method takes tens of seconds at the larger sizes, so it only runs once
+			long startBytes = threads.getThreadAllocatedBytes(threadId);
+			long startTime = System.nanoTime();
+			linkedListIfft(input);
+			times[0] = System.nanoTime() - startTime;
+			bytes[0] = threads.getThreadAllocatedBytes(threadId) - startBytes;
+
+			for (int round = 0; round < 3; round++) {
+				startBytes = threads.getThreadAllocatedBytes(threadId);
+				startTime = System.nanoTime();
+				ComplexNumber.ifft(input);
+				times[1] = Math.min(times[1], System.nanoTime() - startTime);
+				bytes[1] = threads.getThreadAllocatedBytes(threadId) - startBytes;
+
+				System.arraycopy(re, 0, workRe, 0, size);
+				System.arraycopy(im, 0, workIm, 0, size);
+				startBytes = threads.getThreadAllocatedBytes(threadId);
+				startTime = System.nanoTime();
+				PrimitiveFFT.ifft(workRe, workIm, size);
+				times[2] = Math.min(times[2], System.nanoTime() - startTime);
+				bytes[2] = threads.getThreadAllocatedBytes(threadId) - startBytes;
+			}
+
+			System.out.format("Size: %7d  LinkedList: %6d ms %5d MB  List: %5d ms %5d MB  Arrays: %5d ms %5d KB\n",
+					size, times[0] / 1000000, bytes[0] >> 20, times[1] / 1000000, bytes[1] >> 20,
+					times[2] / 1000000, bytes[2] >> 10);
+		}
+	}
+
+	/**
+	 * The List inverse FFT as it was before it worked in place, kept for comparison
+	 *
+	 * @param arg The input List of ComplexNumbers
+	 * @return The inverse Fourier series of the numbers
+	 */
+	private static List<ComplexNumber> linkedListIfft(List<ComplexNumber> arg) {
+		int size = arg.size();
+		List<ComplexNumber> a = new LinkedList<ComplexNumber>();
+		List<ComplexNumber> b = new LinkedList<ComplexNumber>();
+		List<ComplexNumber> out = new LinkedList<ComplexNumber>();
+
+		for (ComplexNumber num : arg) {
+			a.add(ComplexNumber.conjugate(num));
+		}
+
+		a = ComplexNumber.fft(a);
+
+		for (ComplexNumber num : a) {
+			b.add(ComplexNumber.conjugate(num));
+		}
+
+		for (ComplexNumber num : b) {
+			out.add(ComplexNumber.multiply(num, 1.0 / size));
+		}
+
+		return out;
+	}
+
+	/**
+	 * Compares the single precision path against the double precision path
+	 *
+	 * <p>The first samples of each bundled WAV file are transformed by both
+	 * {@link PrimitiveFFT} and {@link FloatFFT}. The largest and the RMS difference of the
+	 * spectra are reported relative to the largest magnitude, along with the frequency
+	 * found by {@link FFTFreqGen} and {@link FloatFFTFreqGen}.</p>
+	 */
+	static void testAccuracyFloat() {
+		final int binSize = 32768;
+		final String[] files = {"res/440sr44100.wav", "res/1ksr44100.wav", "res/10ksr44100.wav",
+				"res/Guitarsr16000.wav"};
+
+		System.out.println("Testing Accuracy of FloatFFT against PrimitiveFFT.\n");
+		System.out.format("%-24s %12s %12s %14s %14s\n", "File", "Max error", "RMS error",
+				"Double (Hz)", "Float (Hz)");
+
+		for (String file : files) {
+			try
+			{
+				WavFile wavFile = WavFile.openWavFile(new File(file));
+				int sampleRate = (int) wavFile.getSampleRate();
+				double[] samples = readChannel(wavFile, binSize);
+				wavFile.close();
+
+				float[] floatSamples = new float[binSize];
+				for (int i = 0; i < binSize; i++) {
+					floatSamples[i] = (float) samples[i];
+				}
+
+				double[] re = new double[binSize/2 + 1], im = new double[binSize/2 + 1];
+				float[] floatRe = new float[binSize/2 + 1], floatIm = new float[binSize/2 + 1];
+				PrimitiveFFT.realFFT(samples, binSize, re, im);
+				FloatFFT.realFFT(floatSamples, binSize, floatRe, floatIm);
+
+				double maxMagnitude = 0.0, maxError = 0.0, sumError = 0.0;
+				for (int k = 0; k <= binSize/2; k++) {
+					double error = Math.hypot(re[k] - floatRe[k], im[k] - floatIm[k]);
+					maxMagnitude = Math.max(maxMagnitude, Math.hypot(re[k], im[k]));
+					maxError = Math.max(maxError, error);
+					sumError += error * error;
+				}
+				double rmsError = Math.sqrt(sumError / (binSize/2 + 1));
+
+				FFTFreqGen doubleGen = new FFTFreqGen(sampleRate);
+				doubleGen.setSamples(samples);
+				FloatFFTFreqGen floatGen = new FloatFFTFreqGen(sampleRate);
+				floatGen.setSamples(samples);
+
+				System.out.format("%-24s %12.3e %12.3e %14.4f %14.4f\n", file, maxError / maxMagnitude,
+						rmsError / maxMagnitude, doubleGen.computeFrequency(), floatGen.computeFrequency());
+			}
+			catch (Exception e)
+			{
+				System.err.println(e);
+			}
+		}
+
+		System.out.println();
+	}
+
+	/**
+	 * Tests the Goertzel detector on the bundled test tones
+	 *
+	 * <p>The first samples of each bundled WAV file are checked for 440 Hz, 1 kHz and
+	 * 10 kHz with {@link GoertzelFreqGen}. The amplitude of each target and the detected
+	 * frequency are reported, along with the time taken by the detector and by a full FFT
+	 * with {@link FFTFreqGen} on the same samples.</p>
+	 */
+	static void testGoertzel() {
+		final int binSize = 32768;
+		final double[] targets = {440.0, 1000.0, 10000.0};
+		final String[] files = {"res/440sr44100.wav", "res/1ksr44100.wav", "res/10ksr44100.wav",
+				"res/Guitarsr16000.wav"};
+
+		System.out.println("Testing GoertzelFreqGen on 440 Hz, 1 kHz and 10 kHz.\n");
+		System.out.format("%-24s %9s %9s %9s %12s %10s %10s\n", "File", "440 Hz", "1 kHz", "10 kHz",
+				"Detected", "Goertzel", "FFT");
+
+		for (String file : files) {
+			try
+			{
+				WavFile wavFile = WavFile.openWavFile(new File(file));
+				int sampleRate = (int) wavFile.getSampleRate();
+				double[] samples = readChannel(wavFile, binSize);
+				wavFile.close();
+
+				GoertzelFreqGen goertzel = new GoertzelFreqGen(sampleRate, targets);
+				FFTFreqGen fft = new FFTFreqGen(sampleRate);
+				long goertzelTime = Long.MAX_VALUE, fftTime = Long.MAX_VALUE;
+				double[] amplitudes = null;
+				double detected = 0.0;
+
+				for (int round = 0; round < 20; round++) {
+					long startTime = System.nanoTime();
+					goertzel.setSamples(samples);
+					amplitudes = goertzel.computeAmplitudes();
+					detected = goertzel.computeFrequency();
+					goertzelTime = Math.min(goertzelTime, System.nanoTime() - startTime);
+
+					startTime = System.nanoTime();
+					fft.setSamples(samples);
+					fft.computeFrequency();
+					fftTime = Math.min(fftTime, System.nanoTime() - startTime);
+				}
+
+				System.out.format("%-24s %9.4f %9.4f %9.4f %9.1f Hz %7d us %7d us\n", file, amplitudes[0],
+						amplitudes[1], amplitudes[2], detected, goertzelTime / 1000, fftTime / 1000);
+			}
+			catch (Exception e)
+			{
+				System.err.println(e);
+			}
+		}
+
+		System.out.println();
+	}
+
+	/**
+	 * Tests the streaming sliding DFT against recomputing an FFT
+	 *
+	 * <p>Each bundled WAV file is pushed one sample at a time into a
+	 * {@link SlidingDFTFreqGen} with a 4096 sample window, once tracking half of the
+	 * spectrum and once tracking only the bins of 440 Hz, 1 kHz and 10 kHz. The time per
+	 * push is compared with computing the frequency of one window with {@link FFTFreqGen},
+	 * and the frequency after the last push is compared with the FFT of the last window.</p>
+	 */
+	static void testSlidingDFT() {
+		final int windowSize = 4096;
+		final String[] files = {"res/440sr44100.wav", "res/1ksr44100.wav", "res/10ksr44100.wav",
+				"res/Guitarsr16000.wav"};
+
+		System.out.println("Testing SlidingDFTFreqGen against FFTFreqGen.\n");
+		System.out.format("%-24s %14s %14s %12s %12s %12s\n", "File", "Sliding (Hz)", "FFT (Hz)",
+				"Push all", "Push 3 bins", "FFT window");
+
+		for (String file : files) {
+			try
+			{
+				WavFile wavFile = WavFile.openWavFile(new File(file));
+				int sampleRate = (int) wavFile.getSampleRate();
+				int numFrames = (int) Math.min(wavFile.getNumFrames(), 262144);
+				double[] samples = readChannel(wavFile, numFrames);
+				wavFile.close();
+
+				int[] bins = new int[3];
+				double[] targets = {440.0, 1000.0, 10000.0};
+				for (int i = 0; i < bins.length; i++) {
+					bins[i] = Math.min((int) Math.round(targets[i] * windowSize / sampleRate), windowSize - 1);
+				}
+
+				SlidingDFTFreqGen sliding = new SlidingDFTFreqGen(windowSize, sampleRate);
+				SlidingDFTFreqGen tracked = new SlidingDFTFreqGen(windowSize, sampleRate, bins);
+
+				long startTime = System.nanoTime();
+				for (double sample : samples) {
+					sliding.push(sample);
+				}
+				long slidingTime = (System.nanoTime() - startTime) / numFrames;
+
+				startTime = System.nanoTime();
+				for (double sample : samples) {
+					tracked.push(sample);
+				}
+				long trackedTime = (System.nanoTime() - startTime) / numFrames;
+
+				FFTFreqGen fft = new FFTFreqGen(sampleRate);
+				fft.setSamples(Arrays.copyOfRange(samples, numFrames - windowSize, numFrames));
+				long fftTime = Long.MAX_VALUE;
+				for (int round = 0; round < 20; round++) {
+					startTime = System.nanoTime();
+					fft.computeFrequency();
+					fftTime = Math.min(fftTime, System.nanoTime() - startTime);
+				}
+
+				System.out.format("%-24s %14.4f %14.4f %9d ns %9d ns %9d ns\n", file, sliding.getFrequency(),
+						fft.getFrequency(), slidingTime, trackedTime, fftTime);
+			}
+			catch (Exception e)
+			{
+				System.err.println(e);
+			}
+		}
+
+		System.out.println();
+	}
+
+	/**
+	 * Tests the accuracy of the peak interpolations against the FFT size
+	 *
+	 * <p>The first samples of each bundled test tone are computed with
+	 * {@link FFTFreqGen#computeFrequencyReal()} at sizes from 1024 to 131072, once with
+	 * each {@link PeakInterpolation}. The error from the known frequency of the tone is
+	 * reported for each, along with the best time of one computation at that size.</p>
+	 */
+	static void testInterpolation() {
+		final int maxSize = 131072;
+		final String[] files = {"res/440sr44100.wav", "res/1ksr44100.wav", "res/10ksr44100.wav"};
+		final double[] tones = {440.0, 1000.0, 10000.0};
+		final PeakInterpolation[] methods = PeakInterpolation.values();
+
+		System.out.println("Testing accuracy of the peak interpolations against the FFT size.\n");
+
+		for (int f = 0; f < files.length; f++) {
+			try
+			{
+				WavFile wavFile = WavFile.openWavFile(new File(files[f]));
+				int sampleRate = (int) wavFile.getSampleRate();
+				double[] channel = readChannel(wavFile, maxSize);
+				wavFile.close();
+
+				System.out.format("%s, error from %.0f Hz:\n", files[f], tones[f]);
+				System.out.format("%8s %10s", "Size", "Time");
+				for (PeakInterpolation method : methods) {
+					System.out.format(" %12s", method);
+				}
+				System.out.println();
+
+				for (int size = 1024; size <= maxSize; size *= 2) {
+					FFTFreqGen freqGen = new FFTFreqGen(sampleRate);
+					freqGen.setSamples(Arrays.copyOf(channel, size));
+					System.out.format("%8d", size);
+
+					long time = Long.MAX_VALUE;
+					for (int round = 0; round < 10; round++) {
+						long startTime = System.nanoTime();
+						freqGen.computeFrequencyReal();
+						time = Math.min(time, System.nanoTime() - startTime);
+					}
+					System.out.format(" %7d us", time / 1000);
+
+					for (PeakInterpolation method : methods) {
+						freqGen.setInterpolation(method);
+						double error = Math.abs(freqGen.computeFrequencyReal() - tones[f]);
+						System.out.format(" %9.4f Hz", error);
+					}
+					System.out.println();
+				}
+				System.out.println();
+			}
+			catch (Exception e)
+			{
+				System.err.println(e);
+			}
+		}
+	}
+
+	/**
+	 * Tests the harmonic product spectrum against the strongest bin on the guitar recording
+	 *
+	 * <p>The guitar note is split into overlapping windows of several sizes, and the
+	 * frequency of each window is computed by {@link FFTFreqGen} and by
+	 * {@link HPSFreqGen}. A window counts as correct when it is within 3% of the
+	 * fundamental found by {@link #directYin(double[], int, int, int)} on the whole
+	 * recording, which is less than a semitone. The reference works in the time domain,
+	 * so it doesn't share the harmonic errors of either spectrum. The number of correct windows and the average time per window are
+	 * reported for both, taking the best time of several passes.</p>
+	 */
+	static void testHPS() {
+		System.out.println("Testing HPSFreqGen against FFTFreqGen on res/Guitarsr16000.wav.\n");
+
+		try
+		{
+			WavFile wavFile = WavFile.openWavFile(new File("res/Guitarsr16000.wav"));
+			int sampleRate = (int) wavFile.getSampleRate();
+			int numFrames = (int) wavFile.getNumFrames();
+			double[] channel = readChannel(wavFile, numFrames);
+			wavFile.close();
+
+			double fundamental = directYin(channel, 0, numFrames, sampleRate);
+			System.out.format("Fundamental of the whole recording: %.2f Hz\n\n", fundamental);
+			System.out.format("%8s %8s %16s %16s %12s %12s\n", "Window", "Windows", "Max bin correct",
+					"HPS correct", "Max bin", "HPS");
+
+			for (int size = 1024; size <= 16384; size *= 2) {
+				FFTFreqGen maxBin = new FFTFreqGen(sampleRate);
+				HPSFreqGen hps = new HPSFreqGen(sampleRate);
+				int windows = (numFrames - size) / (size / 2) + 1;
+				double[][] split = new double[windows][];
+				for (int w = 0; w < windows; w++) {
+					split[w] = Arrays.copyOfRange(channel, w * size / 2, w * size / 2 + size);
+				}
+
+				int maxBinCorrect = 0, hpsCorrect = 0;
+				long maxBinTime = Long.MAX_VALUE, hpsTime = Long.MAX_VALUE;
+
+				// Every pass finds the same frequencies, so only the best time is kept. Enough
+				// passes are run for the JIT compiler to finish with both generators.
+				for (int pass = 0; pass < Math.max(5, 8192 / windows); pass++) {
+					maxBinCorrect = 0;
+					hpsCorrect = 0;
+
+					long startTime = System.nanoTime();
+					for (double[] window : split) {
+						maxBin.setSamples(window);
+						if (Math.abs(maxBin.computeFrequency() - fundamental) < 0.03 * fundamental) {
+							maxBinCorrect++;
+						}
+					}
+					maxBinTime = Math.min(maxBinTime, System.nanoTime() - startTime);
+
+					startTime = System.nanoTime();
+					for (double[] window : split) {
+						hps.setSamples(window);
+						if (Math.abs(hps.computeFrequency() - fundamental) < 0.03 * fundamental) {
+							hpsCorrect++;
+						}
+					}
+					hpsTime = Math.min(hpsTime, System.nanoTime() - startTime);
+				}
+
+				System.out.format("%8d %8d %16d %16d %9d us %9d us\n", size, windows, maxBinCorrect,
+						hpsCorrect, maxBinTime / windows / 1000, hpsTime / windows / 1000);
+			}
+		}
+		catch (Exception e)
+		{
+			System.err.println(e);
+		}
+
+		System.out.println();
+	}
+
+	/**
+	 * Tests YinFreqGen against the same algorithm with the difference function summed directly
+	 *
+	 * <p>The tones are computed from one window each, followed by a window of white noise,
+	 * to show the frequency and the confidence of periodic and non periodic input. The
+	 * guitar recording is then tracked frame by frame, both with {@link YinFreqGen} and
+	 * with a direct O(N^2) version of the same steps, and the number of frames on which they
+	 * agree, the number within 3% of the fundamental and the best time per frame of several
+	 * passes are reported for each window size. The fundamental is found by the direct
+	 * version on the whole recording, rather than on any one frame.</p>
+	 */
+	static void testYin() {
+		final int window = 2048;
+		final String[] files = {"res/440sr44100.wav", "res/1ksr44100.wav", "res/10ksr44100.wav"};
+
+		System.out.println("Testing YinFreqGen.\n");
+
+		for (String file : files) {
+			try
+			{
+				WavFile wavFile = WavFile.openWavFile(new File(file));
+				int sampleRate = (int) wavFile.getSampleRate();
+				double[] samples = readChannel(wavFile, window);
+				wavFile.close();
+
+				YinFreqGen yin = new YinFreqGen(sampleRate);
+				yin.setFrequencyRange(40.0, 12000.0);
+				yin.setSamples(samples);
+				System.out.format("%-24s %12.4f Hz  Confidence: %.4f\n", file, yin.computeFrequency(),
+						yin.getConfidence());
+			}
+			catch (Exception e)
+			{
+				System.err.println(e);
+			}
+		}
+
+		Random random = new Random(1);
+		double[] noise = new double[window];
+		for (int i = 0; i < window; i++) {
+			noise[i] = random.nextGaussian();
+		}
+		YinFreqGen yin = new YinFreqGen(44100);
+		yin.setSamples(noise);
+		System.out.format("%-24s %12.4f Hz  Confidence: %.4f\n\n", "White noise", yin.computeFrequency(),
+				yin.getConfidence());
+
+		try
+		{
+			WavFile wavFile = WavFile.openWavFile(new File("res/Guitarsr16000.wav"));
+			int sampleRate = (int) wavFile.getSampleRate();
+			int numFrames = (int) wavFile.getNumFrames();
+			double[] channel = readChannel(wavFile, numFrames);
+			wavFile.close();
+
+			double fundamental = directYin(channel, 0, numFrames, sampleRate);
+			System.out.format("Tracking res/Guitarsr16000.wav, fundamental %.2f Hz\n", fundamental);
+			System.out.format("%8s %8s %8s %10s %10s %12s %12s\n", "Window", "Frames", "Agree",
+					"FFT correct", "Direct", "FFT", "Direct");
+
+			for (int size = 512; size <= 4096; size *= 2) {
+				int hop = size / 4;
+				int frames = (numFrames - size) / hop + 1;
+				double[] fftFreqs = new double[frames], directFreqs = new double[frames];
+				YinFreqGen tracker = new YinFreqGen(sampleRate);
+				long fftTime = Long.MAX_VALUE, directTime = Long.MAX_VALUE;
+
+				// Every pass finds the same frequencies, so only the best time is kept
+				for (int pass = 0; pass < Math.max(3, 4096 / frames); pass++) {
+					long startTime = System.nanoTime();
+					for (int f = 0; f < frames; f++) {
+						tracker.setSamples(channel, f * hop, size);
+						fftFreqs[f] = tracker.computeFrequency();
+					}
+					fftTime = Math.min(fftTime, System.nanoTime() - startTime);
+				}
+				for (int pass = 0; pass < 3; pass++) {
+					long startTime = System.nanoTime();
+					for (int f = 0; f < frames; f++) {
+						directFreqs[f] = directYin(channel, f * hop, size, sampleRate);
+					}
+					directTime = Math.min(directTime, System.nanoTime() - startTime);
+				}
+
+				int agree = 0, fftCorrect = 0, directCorrect = 0;
+				for (int f = 0; f < frames; f++) {
+					if (Math.abs(fftFreqs[f] - directFreqs[f]) < 1e-6 * directFreqs[f]) {
+						agree++;
+					}
+					if (Math.abs(fftFreqs[f] - fundamental) < 0.03 * fundamental) {
+						fftCorrect++;
+					}
+					if (Math.abs(directFreqs[f] - fundamental) < 0.03 * fundamental) {
+						directCorrect++;
+					}
+				}
+
+				System.out.format("%8d %8d %8d %10d %10d %9d us %9d us\n", size, frames, agree, fftCorrect,
+						directCorrect, fftTime / frames / 1000, directTime / frames / 1000);
+			}
+		}
+		catch (Exception e)
+		{
+			System.err.println(e);
+		}
+
+		System.out.println();
+	}
+
+	/**
+	 * Computes the frequency of a window with YIN, summing the difference function directly
+	 *
+	 * <p>Uses the same defaults and steps as {@link YinFreqGen}, which should give the
+	 * same frequency up to rounding.</p>
+	 *
+	 * @param samples The audio samples holding the window
+	 * @param offset The first sample of the window
+	 * @param length The number of samples in the window
+	 * @param sampleRate The sample rate of the audio
+	 * @return The frequency of the window
+	 */
+	private static double directYin(double[] samples, int offset, int length, int sampleRate) {
+		int minLag = Math.max(2, (int) Math.floor(sampleRate / (sampleRate / 4.0)));
+		int maxLag = Math.min(length / 2, (int) Math.ceil(sampleRate / 40.0));
+		int sumLength = length - maxLag;
+		double[] difference = new double[maxLag + 1];
+		double[] normalized = new double[maxLag + 1];
+
+		double sum = 0.0;
+		for (int t = 1; t <= maxLag; t++) {
+			double d = 0.0;
+			for (int j = 0; j < sumLength; j++) {
+				double delta = samples[offset + j] - samples[offset + j + t];
+				d += delta * delta;
+			}
+			difference[t] = d;
+			sum += d;
+			normalized[t] = sum > 0.0 ? d * t / sum : 1.0;
+		}
+
+		int period = -1;
+		for (int t = minLag; t <= maxLag; t++) {
+			if (normalized[t] < 0.1) {
+				while (t < maxLag && normalized[t + 1] < normalized[t]) {
+					t++;
+				}
+				period = t;
+				break;
+			}
+		}
+		if (period < 0) {
+			period = minLag;
+			for (int t = minLag + 1; t <= maxLag; t++) {
+				if (normalized[t] < normalized[period]) {
+					period = t;
+				}
+			}
+		}
+
+		double shift = 0.0;
+		if (period >= 2 && period < maxLag) {
+			double before = difference[period - 1], at = difference[period], after = difference[period + 1];
+			double curve = before - 2 * at + after;
+			if (curve > 0.0) {
+				shift = Math.max(-0.5, Math.min(0.5, 0.5 * (before - after) / curve));
+			}
+		}
+
+		return sampleRate / (period + shift);
+	}
+
+	/**
+	 * Tests CepstrumFreqGen on a missing fundamental and on the guitar recording
+	 *
+	 * <p>A 220 Hz note made of only its 2nd to 8th harmonics is computed by
+	 * {@link FFTFreqGen}, {@link HPSFreqGen} and {@link CepstrumFreqGen}, of which only the
+	 * last two should find 220 Hz. The guitar recording is then split into overlapping
+	 * windows as in {@link #testHPS()}, reporting the number of windows within 3% of the
+	 * same time domain fundamental and the best time per window of several passes for
+	 * each generator, and the number of windows per second of the cepstrum.</p>
+	 */
+	static void testCepstrum() {
+		final int sampleRate = 16000;
+		final int size = 2048;
+
+		System.out.println("Testing CepstrumFreqGen.\n");
+
+		double[] missing = new double[size];
+		for (int i = 0; i < size; i++) {
+			for (int h = 2; h <= 8; h++) {
+				missing[i] += Math.sin(2 * Math.PI * 220.0 * h * i / sampleRate) / h;
+			}
+		}
+		FFTFreqGen maxBin = new FFTFreqGen(sampleRate);
+		maxBin.setSamples(missing);
+		HPSFreqGen hps = new HPSFreqGen(sampleRate);
+		hps.setSamples(missing);
+		CepstrumFreqGen cepstrum = new CepstrumFreqGen(sampleRate);
+		cepstrum.setSamples(missing);
+		System.out.format("220 Hz without its fundamental, Max bin: %.2f Hz  HPS: %.2f Hz  Cepstrum: %.2f Hz\n\n",
+				maxBin.computeFrequency(), hps.computeFrequency(), cepstrum.computeFrequency());
+
+		try
+		{
+			WavFile wavFile = WavFile.openWavFile(new File("res/Guitarsr16000.wav"));
+			int numFrames = (int) wavFile.getNumFrames();
+			double[] channel = readChannel(wavFile, numFrames);
+			wavFile.close();
+
+			double fundamental = directYin(channel, 0, numFrames, (int) wavFile.getSampleRate());
+			System.out.format("Windows of res/Guitarsr16000.wav within 3%% of %.2f Hz\n", fundamental);
+			System.out.format("%8s %8s %9s %9s %9s %12s %12s %12s %12s\n", "Window", "Windows", "Max bin",
+					"HPS", "Cepstrum", "Max bin", "HPS", "Cepstrum", "Per second");
+
+			for (int window = 1024; window <= 8192; window *= 2) {
+				int windows = (numFrames - window) / (window / 2) + 1;
+				double[][] split = new double[windows][];
+				for (int w = 0; w < windows; w++) {
+					split[w] = Arrays.copyOfRange(channel, w * window / 2, w * window / 2 + window);
+				}
+
+				FFTFreqGen maxBinGen = new FFTFreqGen(sampleRate);
+				HPSFreqGen hpsGen = new HPSFreqGen(sampleRate);
+				CepstrumFreqGen cepstrumGen = new CepstrumFreqGen(sampleRate);
+				int[] correct = new int[3];
+				long[] times = {Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE};
+
+				// Every pass finds the same frequencies, so only the best time is kept
+				for (int pass = 0; pass < Math.max(5, 8192 / windows); pass++) {
+					Arrays.fill(correct, 0);
+
+					long startTime = System.nanoTime();
+					for (double[] samples : split) {
+						maxBinGen.setSamples(samples);
+						if (Math.abs(maxBinGen.computeFrequency() - fundamental) < 0.03 * fundamental) {
+							correct[0]++;
+						}
+					}
+					times[0] = Math.min(times[0], System.nanoTime() - startTime);
+
+					startTime = System.nanoTime();
+					for (double[] samples : split) {
+						hpsGen.setSamples(samples);
+						if (Math.abs(hpsGen.computeFrequency() - fundamental) < 0.03 * fundamental) {
+							correct[1]++;
+						}
+					}
+					times[1] = Math.min(times[1], System.nanoTime() - startTime);
+
+					startTime = System.nanoTime();
+					for (double[] samples : split) {
+						cepstrumGen.setSamples(samples);
+						if (Math.abs(cepstrumGen.computeFrequency() - fundamental) < 0.03 * fundamental) {
+							correct[2]++;
+						}
+					}
+					times[2] = Math.min(times[2], System.nanoTime() - startTime);
+				}
+
+				System.out.format("%8d %8d %9d %9d %9d %9d us %9d us %9d us %12d\n", window, windows,
+						correct[0], correct[1], correct[2], times[0] / windows / 1000,
+						times[1] / windows / 1000, times[2] / windows / 1000,
+						1000000000L * windows / times[2]);
+			}
+		}
+		catch (Exception e)
+		{
+			System.err.println(e);
+		}
+
+		System.out.println();
+	}
+
+	/**
+	 * Tests the top K peak search of FFTFreqGen against sorting the whole spectrum
+	 *
+	 * <p>A signal of eight tones of falling amplitude in white noise is computed at
+	 * several sizes. {@link FFTFreqGen#computePeaks(int)} is compared with transforming
+	 * the same samples, collecting every local maximum and sorting them all by magnitude,
+	 * which should find the same bins in the same order. The best time of several passes
+	 * of each is reported next to the time of {@link FFTFreqGen#computeFrequency()}. The
+	 * strongest partials of the guitar recording are printed last.</p>
+	 */
+	static void testPeaks() {
+		final int sampleRate = 44100;
+		final int peakCount = 10;
+		final double[] tones = {261.63, 329.63, 392.0, 523.25, 659.25, 783.99, 1046.5, 1318.5};
+
+		System.out.println("Testing FFTFreqGen.computePeaks against sorting the spectrum.\n");
+		System.out.format("%8s %8s %14s %14s %14s\n", "Size", "Match", "Frequency", "Top 10", "Sort");
+
+		Random random = new Random(1);
+		for (int size = 4096; size <= 1048576; size *= 16) {
+			double[] samples = new double[size];
+			for (int i = 0; i < size; i++) {
+				samples[i] = 0.1 * random.nextGaussian();
+				for (int t = 0; t < tones.length; t++) {
+					samples[i] += Math.sin(2 * Math.PI * tones[t] * i / sampleRate) / (t + 1);
+				}
+			}
+
+			FFTFreqGen freqGen = new FFTFreqGen(sampleRate);
+			freqGen.setSamples(samples);
+			double[] re = new double[size/2 + 1], im = new double[size/2 + 1];
+			List<SpectralPeak> peaks = null;
+			Integer[] sorted = null;
+			long frequencyTime = Long.MAX_VALUE, peaksTime = Long.MAX_VALUE, sortTime = Long.MAX_VALUE;
+
+			// Enough passes are run for the JIT compiler to finish, keeping the best time
+			for (int pass = 0; pass < Math.max(10, 8388608 / size); pass++) {
+				long startTime = System.nanoTime();
+				freqGen.computeFrequency();
+				frequencyTime = Math.min(frequencyTime, System.nanoTime() - startTime);
+
+				startTime = System.nanoTime();
+				peaks = freqGen.computePeaks(peakCount);
+				peaksTime = Math.min(peaksTime, System.nanoTime() - startTime);
+
+				startTime = System.nanoTime();
+				sorted = sortedPeaks(samples, re, im);
+				sortTime = Math.min(sortTime, System.nanoTime() - startTime);
+			}
+
+			boolean match = peaks.size() == Math.min(peakCount, sorted.length);
+			for (int p = 0; match && p < peaks.size(); p++) {
+				match = peaks.get(p).getBin() == sorted[p];
+			}
+
+			System.out.format("%8d %8s %11d us %11d us %11d us\n", size, match ? "yes" : "NO",
+					frequencyTime / 1000, peaksTime / 1000, sortTime / 1000);
+		}
+
+		try
+		{
+			WavFile wavFile = WavFile.openWavFile(new File("res/Guitarsr16000.wav"));
+			int guitarRate = (int) wavFile.getSampleRate();
+			double[] samples = readChannel(wavFile, 16384);
+			wavFile.close();
+
+			FFTFreqGen freqGen = new FFTFreqGen(guitarRate);
+			freqGen.setSamples(samples);
+			freqGen.setInterpolation(PeakInterpolation.JACOBSEN);
+			System.out.println("\nStrongest partials of res/Guitarsr16000.wav:");
+			for (SpectralPeak peak : freqGen.computePeaks(6)) {
+				System.out.println("  " + peak);
+			}
+		}
+		catch (Exception e)
+		{
+			System.err.println(e);
+		}
+
+		System.out.println();
+	}
+
+	/**
+	 * Finds every local maximum of the spectrum of real samples, sorted by magnitude
+	 *
+	 * <p>This is the way to get several peaks without {@link FFTFreqGen#computePeaks(int)},
+	 * with the same rules for local maxima and ties.</p>
+	 *
+	 * @param samples The real samples, a power of 2 of them
+	 * @param re Receives the real parts of the spectrum, size/2 + 1 elements
+	 * @param im Receives the imaginary parts of the spectrum, size/2 + 1 elements
+	 * @return The bins of every local maximum, from the strongest to the weakest
+	 */
+	private static Integer[] sortedPeaks(double[] samples, double[] re, double[] im) {
+		int bins = samples.length / 2;
+		PrimitiveFFT.realFFT(samples, samples.length, re, im);
+
+		double[] power = new double[bins + 1];
+		for (int k = 0; k <= bins; k++) {
+			power[k] = re[k] * re[k] + im[k] * im[k];
+		}
+
+		List<Integer> maxima = new ArrayList<>();
+		for (int k = 0; k < bins; k++) {
+			if ((k == 0 || power[k] > power[k - 1]) && power[k] >= power[k + 1]) {
+				maxima.add(k);
+			}
+		}
+
+		Integer[] sorted = maxima.toArray(new Integer[0]);
+		Arrays.sort(sorted, (a, b) -> power[a] != power[b] ? Double.compare(power[b], power[a]) : a - b);
+
+		return sorted;
+	}
+
+	/**
+	 * Tests the analysis windows of FFTFreqGen
+	 *
+	 * <p>For every {@link WindowFunction}, a tone 60 dB weaker than a tone 100 Hz away
+	 * is looked for among the two strongest peaks of a 4096 point spectrum, and the
+	 * amplitude of a tone halfway between two bins is measured from its peak. Then the
+	 * best time of {@link FFTFreqGen#computeFrequency()} with and without a window is
+	 * reported for real samples and for a List, where the weights are applied in the pass
+	 * that copies the input.</p>
+	 */
+	static void testWindows() {
+		final int sampleRate = 44100;
+		final int size = 4096;
+		final double binWidth = (double) sampleRate / size;
+
+		System.out.println("Testing the windows of FFTFreqGen.\n");
+		System.out.format("%-16s %16s %18s\n", "Window", "Weak tone found", "Amplitude error");
+
+		double[] pair = new double[size], between = new double[size];
+		for (int i = 0; i < size; i++) {
+			pair[i] = Math.sin(2 * Math.PI * 1000.3 * i / sampleRate)
+					+ 0.001 * Math.sin(2 * Math.PI * 1100.7 * i / sampleRate);
+			between[i] = Math.sin(2 * Math.PI * 100.5 * binWidth * i / sampleRate);
+		}
+
+		for (WindowFunction window : WindowFunction.values()) {
+			FFTFreqGen freqGen = new FFTFreqGen(sampleRate);
+			freqGen.setWindow(window);
+
+			freqGen.setSamples(pair);
+			boolean found = false;
+			for (SpectralPeak peak : freqGen.computePeaks(2)) {
+				found |= Math.abs(peak.getFrequency() - 1100.7) < binWidth;
+			}
+
+			freqGen.setSamples(between);
+			double amplitude = freqGen.computePeaks(1).get(0).getMagnitude()
+					/ (size / 2 * window.getCoherentGain());
+
+			System.out.format("%-16s %16s %15.2f dB\n", window, found ? "yes" : "no",
+					20 * Math.log10(amplitude));
+		}
+
+		System.out.format("\n%8s %14s %14s %14s %14s\n", "Size", "Samples", "Samples Hann", "List",
+				"List Hann");
+		Random random = new Random(1);
+		for (int length = 4096; length <= 262144; length *= 8) {
+			double[] samples = new double[length];
+			List<ComplexNumber> list = new ArrayList<>(length);
+			for (int i = 0; i < length; i++) {
+				samples[i] = random.nextGaussian();
+				list.add(new ComplexNumber(samples[i], 0.0));
+			}
+
+			FFTFreqGen[] freqGens = new FFTFreqGen[4];
+			for (int g = 0; g < freqGens.length; g++) {
+				freqGens[g] = new FFTFreqGen(sampleRate);
+				if (g < 2) {
+					freqGens[g].setSamples(samples);
+				}
+				else {
+					freqGens[g].setList(list);
+				}
+				freqGens[g].setWindow(g % 2 == 0 ? WindowFunction.NONE : WindowFunction.HANN);
+			}
+
+			long[] times = {Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE};
+			// Enough passes are run for the JIT compiler to finish, keeping the best time
+			for (int pass = 0; pass < Math.max(10, 4194304 / length); pass++) {
+				for (int g = 0; g < freqGens.length; g++) {
+					long startTime = System.nanoTime();
+					freqGens[g].computeFrequency();
+					times[g] = Math.min(times[g], System.nanoTime() - startTime);
+				}
+			}
+
+			System.out.format("%8d %11d us %11d us %11d us %11d us\n", length, times[0] / 1000,
+					times[1] / 1000, times[2] / 1000, times[3] / 1000);
+		}
+
+		System.out.println();
+	}
+
+	/**
+	 * Tests decimating the input of FFTFreqGen ahead of the FFT
+	 *
+	 * <p>First the gain of a {@link PolyphaseDecimator} is measured for tones at several
+	 * fractions of the new Nyquist frequency, where tones above it should be removed
+	 * instead of folded down. Then the 440 Hz and guitar recordings are computed with and
+	 * without decimation, reporting the frequency and the best time of several passes, and
+	 * a 440 Hz tone is computed under a 10 times stronger 10 kHz tone, which would be
+	 * folded down to 1025 Hz without the filter. Last, a 440 Hz tone is computed under a
+	 * 100 times stronger tone just above the new Nyquist frequency, which has to be
+	 * removed by the filter rather than be reported as its alias.</p>
+	 */
+	static void testDecimation() {
+		final int factor = 8;
+		final int length = 65536;
+
+		System.out.println("Testing the decimation of FFTFreqGen.\n");
+
+		PolyphaseDecimator decimator = new PolyphaseDecimator(factor);
+		double[] tone = new double[length];
+		double[] lowered = new double[decimator.outputLength(length)];
+		System.out.format("Gain of a %d times decimator, by fraction of the new Nyquist frequency\n", factor);
+		for (double fraction : new double[] {0.1, 0.5, 0.6, 0.7, 0.8, 0.9, 1.05, 1.1, 1.2, 1.5, 1.9, 2.9}) {
+			for (int i = 0; i < length; i++) {
+				tone[i] = Math.sin(Math.PI * fraction * i / factor);
+			}
+			decimator.decimate(tone, length, lowered);
+
+			// The ends are left out, where the filter runs past the block
+			double power = 0.0;
+			int from = lowered.length / 8, to = lowered.length - from;
+			for (int m = from; m < to; m++) {
+				power += lowered[m] * lowered[m];
+			}
+			System.out.format("  %4.2f %10.2f dB\n", fraction, 10 * Math.log10(2 * power / (to - from)));
+		}
+
+		System.out.format("\n%-24s %8s %14s %12s %14s %12s\n", "File", "Factor", "Full", "Full", "Decimated",
+				"Decimated");
+		final String[] files = {"res/440sr44100.wav", "res/Guitarsr16000.wav"};
+		final int[] factors = {8, 4};
+		for (int f = 0; f < files.length; f++) {
+			try
+			{
+				WavFile wavFile = WavFile.openWavFile(new File(files[f]));
+				int sampleRate = (int) wavFile.getSampleRate();
+				int numFrames = Math.min((int) wavFile.getNumFrames(), 131072);
+				double[] samples = readChannel(wavFile, Integer.highestOneBit(numFrames));
+				wavFile.close();
+
+				FFTFreqGen full = new FFTFreqGen(sampleRate);
+				full.setSamples(samples);
+				FFTFreqGen decimated = new FFTFreqGen(sampleRate);
+				decimated.setSamples(samples);
+				decimated.setDecimation(factors[f]);
+
+				long fullTime = Long.MAX_VALUE, decimatedTime = Long.MAX_VALUE;
+				// Enough passes are run for the JIT compiler to finish, keeping the best time
+				for (int pass = 0; pass < 50; pass++) {
+					long startTime = System.nanoTime();
+					full.computeFrequency();
+					fullTime = Math.min(fullTime, System.nanoTime() - startTime);
+
+					startTime = System.nanoTime();
+					decimated.computeFrequency();
+					decimatedTime = Math.min(decimatedTime, System.nanoTime() - startTime);
+				}
+
+				System.out.format("%-24s %8d %11.4f Hz %9d us %11.4f Hz %9d us\n", files[f], factors[f],
+						full.getFrequency(), fullTime / 1000, decimated.getFrequency(), decimatedTime / 1000);
+			}
+			catch (Exception e)
+			{
+				System.err.println(e);
+			}
+		}
+
+		double[] mixed = new double[131072];
+		for (int i = 0; i < mixed.length; i++) {
+			mixed[i] = 0.1 * Math.sin(2 * Math.PI * 440.0 * i / 44100) + Math.sin(2 * Math.PI * 10000.0 * i / 44100);
+		}
+		FFTFreqGen freqGen = new FFTFreqGen(44100);
+		freqGen.setSamples(mixed);
+		double fullFrequency = freqGen.computeFrequency();
+		freqGen.setDecimation(factor);
+		System.out.format("\n440 Hz under 10 kHz, Full: %.4f Hz  Decimated by %d: %.4f Hz\n", fullFrequency,
+				factor, freqGen.computeFrequency());
+
+		// Just above the new Nyquist frequency, where the transition band of a filter cut
+		// off at the new Nyquist frequency would let the tone fold back into the top bins
+		double outside = 1.05 * 44100 / (2 * factor);
+		double[] edge = new double[8192];
+		for (int i = 0; i < edge.length; i++) {
+			edge[i] = 0.01 * Math.sin(2 * Math.PI * 440.0 * i / 44100) + Math.sin(2 * Math.PI * outside * i / 44100);
+		}
+		freqGen = new FFTFreqGen(44100);
+		freqGen.setSamples(edge);
+		fullFrequency = freqGen.computeFrequency();
+		freqGen.setDecimation(factor);
+		System.out.format("440 Hz under %.0f Hz, 40 dB stronger, Full: %.4f Hz  Decimated by %d: %.4f Hz\n\n",
+				outside, fullFrequency, factor, freqGen.computeFrequency());
+	}
+
+	/**
+	 * Tests StreamingFreqGen against copying every window into a new List
+	 *
+	 * <p>The guitar recording is pushed in blocks of 256 samples, as a live pipeline would
+	 * receive it, into generators with hops of several sizes. Every frequency sent to the
+	 * observer is compared with {@link FFTFreqGen} on a copy of the same window. The best
+	 * time per hop and the bytes allocated per hop by the calling thread are reported,
+	 * next to copying each window into a new ArrayList of ComplexNumbers and computing it
+	 * with {@link FFTFreqGen#setList(List)}.</p>
+	 */
+	static void testStreaming() {
+		final int windowSize = 4096;
+		final int blockSize = 256;
+
+		System.out.println("Testing StreamingFreqGen on res/Guitarsr16000.wav.\n");
+
+		try
+		{
+			WavFile wavFile = WavFile.openWavFile(new File("res/Guitarsr16000.wav"));
+			int sampleRate = (int) wavFile.getSampleRate();
+			int numFrames = (int) wavFile.getNumFrames();
+			double[] channel = readChannel(wavFile, numFrames);
+			wavFile.close();
+
+			com.sun.management.ThreadMXBean threads =
+					(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+			long threadId = Thread.currentThread().getId();
+
+			System.out.format("%8s %8s %8s %14s %14s %14s %14s\n", "Hop", "Hops", "Match", "Stream",
+					"Stream bytes", "List", "List bytes");
+
+			for (int hopSize = 128; hopSize <= 2048; hopSize *= 4) {
+				int hops = (numFrames - windowSize) / hopSize + 1;
+				double[] streamed = new double[hops];
+				int[] received = new int[1];
+
+				StreamingFreqGen stream = new StreamingFreqGen(windowSize, hopSize, sampleRate);
+				stream.addObserver(newFreq -> streamed[received[0]++] = newFreq);
+				FFTFreqGen listGen = new FFTFreqGen(sampleRate);
+
+				long streamTime = Long.MAX_VALUE, listTime = Long.MAX_VALUE;
+				long streamBytes = 0, listBytes = 0;
+
+				// Enough passes are run for the JIT compiler to finish, keeping the best time
+				// and the bytes of the last pass
+				for (int pass = 0; pass < Math.max(20, 8192 / hops); pass++) {
+					stream.reset();
+					received[0] = 0;
+
+					long startBytes = threads.getThreadAllocatedBytes(threadId);
+					long startTime = System.nanoTime();
+					for (int offset = 0; offset + blockSize <= numFrames; offset += blockSize) {
+						stream.push(channel, offset, blockSize);
+					}
+					streamTime = Math.min(streamTime, System.nanoTime() - startTime);
+					streamBytes = threads.getThreadAllocatedBytes(threadId) - startBytes;
+
+					startBytes = threads.getThreadAllocatedBytes(threadId);
+					startTime = System.nanoTime();
+					for (int h = 0; h < received[0]; h++) {
+						List<ComplexNumber> window = new ArrayList<>(windowSize);
+						for (int i = 0; i < windowSize; i++) {
+							window.add(new ComplexNumber(channel[h * hopSize + i], 0.0));
+						}
+						listGen.setList(window);
+						listGen.computeFrequency();
+					}
+					listTime = Math.min(listTime, System.nanoTime() - startTime);
+					listBytes = threads.getThreadAllocatedBytes(threadId) - startBytes;
+				}
+
+				FFTFreqGen reference = new FFTFreqGen(sampleRate);
+				int match = 0;
+				for (int h = 0; h < received[0]; h++) {
+					reference.setSamples(Arrays.copyOfRange(channel, h * hopSize, h * hopSize + windowSize));
+					if (reference.computeFrequency() == streamed[h]) {
+						match++;
+					}
+				}
+
+				int count = received[0];
+				System.out.format("%8d %8d %8d %11d us %14d %11d us %14d\n", hopSize, count, match,
+						streamTime / count / 1000, streamBytes / count, listTime / count / 1000, listBytes / count);
+			}
+		}
+		catch (Exception e)
+		{
+			System.err.println(e);
+		}
+
+		System.out.println();
+	}
+
+	/**
+	 * Tests the off-heap FFT path against the heap based path
+	 *
+	 * <p>The first channel of each bundled WAV file is decoded straight into a
+	 * {@link ComplexBuffer} and its frequency is computed by {@link OffHeapFreqGen}, which
+	 * should match {@link FFTFreqGen}. Then a 2^22 point signal is computed both from a
+	 * List of ComplexNumbers and from an off-heap buffer, reporting the time, the growth of
+	 * the used heap and the number of garbage collections of each.</p>
+	 */
+	static void testOffHeapFFT() {
+		final int binSize = 32768;
+		final String[] files = {"res/440sr44100.wav", "res/1ksr44100.wav", "res/10ksr44100.wav",
+				"res/Guitarsr16000.wav"};
+
+		System.out.println("Testing OffHeapFreqGen against FFTFreqGen.\n");
+
+		for (String file : files) {
+			try (ComplexBuffer buffer = new ComplexBuffer(binSize))
+			{
+				WavFile wavFile = WavFile.openWavFile(new File(file));
+				int sampleRate = (int) wavFile.getSampleRate();
+				DoubleBuffer[] channels = new DoubleBuffer[wavFile.getNumChannels()];
+				channels[0] = buffer.real();
+				wavFile.readFrames(channels, binSize);
+				wavFile.close();
+
+				wavFile = WavFile.openWavFile(new File(file));
+				double[] samples = readChannel(wavFile, binSize);
+				wavFile.close();
+
+				OffHeapFreqGen offHeapGen = new OffHeapFreqGen(sampleRate);
+				offHeapGen.setBuffer(buffer);
+				FFTFreqGen heapGen = new FFTFreqGen(sampleRate);
+				heapGen.setSamples(samples);
+
+				System.out.format("%-24s Heap: %12.4f Hz  Off-heap: %12.4f Hz\n", file,
+						heapGen.computeFrequency(), offHeapGen.computeFrequency());
+			}
+			catch (Exception e)
+			{
+				System.err.println(e);
+			}
+		}
+
+		final int size = 4194304;
+		Runtime runtime = Runtime.getRuntime();
+
+		System.gc();
+		long gcCount = gcCount(), heapUsed = runtime.totalMemory() - runtime.freeMemory();
+		long startTime = System.nanoTime();
+		List<ComplexNumber> list = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			list.add(new ComplexNumber(Math.sin(2 * Math.PI * 1000 * i / 44100.0), 0.0));
+		}
+		FFTFreqGen heapGen = new FFTFreqGen(list, 44100);
+		double heapFrequency = heapGen.computeFrequency();
+		long heapTime = System.nanoTime() - startTime;
+		long heapGrowth = runtime.totalMemory() - runtime.freeMemory() - heapUsed;
+		long heapCollections = gcCount() - gcCount;
+		list = null;
+		heapGen = null;
+
+		System.gc();
+		gcCount = gcCount();
+		heapUsed = runtime.totalMemory() - runtime.freeMemory();
+		startTime = System.nanoTime();
+		double offHeapFrequency;
+		try (ComplexBuffer buffer = new ComplexBuffer(size))
+		{
+			DoubleBuffer re = buffer.real();
+			for (int i = 0; i < size; i++) {
+				re.put(i, Math.sin(2 * Math.PI * 1000 * i / 44100.0));
+			}
+			OffHeapFreqGen offHeapGen = new OffHeapFreqGen(44100);
+			offHeapGen.setBuffer(buffer);
+			offHeapFrequency = offHeapGen.computeFrequency();
+		}
+		long offHeapTime = System.nanoTime() - startTime;
+		long offHeapGrowth = runtime.totalMemory() - runtime.freeMemory() - heapUsed;
+		long offHeapCollections = gcCount() - gcCount;
+
+		System.out.println("\nSize: " + size);
+		System.out.format("List:     %10.4f Hz  %6d ms  Heap growth: %6d MB  Collections: %d\n", heapFrequency,
+				heapTime / 1000000, heapGrowth >> 20, heapCollections);
+		System.out.format("Off-heap: %10.4f Hz  %6d ms  Heap growth: %6d MB  Collections: %d\n", offHeapFrequency,
+				offHeapTime / 1000000, offHeapGrowth >> 20, offHeapCollections);
+	}
+
+	/**
+	 * Tests the out-of-core FFT against the in-memory FFT
+	 *
+	 * <p>Each bundled WAV file is streamed into an {@link ExternalFFT} in small chunks with
+	 * a memory budget of 64 KB, which forces many passes over the scratch file, and the
+	 * dominant frequency of the whole file is compared with {@link FFTFreqGen}. Then a
+	 * 2^25 point sine wave, which needs 512 MB of scratch space, is computed with a 16 MB
+	 * budget and the time is reported.</p>
+	 */
+	static void testExternalFFT() {
+		final String[] files = {"res/440sr44100.wav", "res/1ksr44100.wav", "res/10ksr44100.wav",
+				"res/Guitarsr16000.wav"};
+		final int chunkSize = 4096;
+
+		System.out.println("Testing ExternalFFT against FFTFreqGen.\n");
+
+		for (String file : files) {
+			try
+			{
+				WavFile wavFile = WavFile.openWavFile(new File(file));
+				int sampleRate = (int) wavFile.getSampleRate();
+				long numFrames = wavFile.getNumFrames();
+				long size = ExternalFFT.paddedSize(numFrames);
+				int numChannels = wavFile.getNumChannels();
+				double[] buffer = new double[chunkSize * numChannels];
+				double[] chunk = new double[chunkSize];
+				double[] samples = new double[(int) size];
+
+				try (ExternalFFT external = new ExternalFFT(size, null, 65536))
+				{
+					long index = 0;
+					int read;
+					while ((read = wavFile.readFrames(buffer, chunkSize)) > 0) {
+						for (int i = 0; i < read; i++) {
+							chunk[i] = buffer[i * numChannels];
+						}
+						external.write(index, chunk, 0, read);
+						System.arraycopy(chunk, 0, samples, (int) index, read);
+						index += read;
+					}
+					wavFile.close();
+
+					FFTFreqGen heapGen = new FFTFreqGen(sampleRate);
+					heapGen.setSamples(samples);
+
+					System.out.format("%-24s Size: %8d  In memory: %12.4f Hz  External: %12.4f Hz\n", file,
+							size, heapGen.computeFrequency(), external.computeFrequency(sampleRate));
+				}
+			}
+			catch (Exception e)
+			{
+				System.err.println(e);
+			}
+		}
+
+		final long size = 33554432;
+		final int sampleRate = 44100;
+		long startTime = System.nanoTime();
+		try (ExternalFFT external = new ExternalFFT(size, null, 16L << 20))
+		{
+			double[] chunk = new double[chunkSize];
+			for (long index = 0; index < size; index += chunkSize) {
+				for (int i = 0; i < chunkSize; i++) {
+					chunk[i] = Math.sin(2 * Math.PI * 1000 * (index + i) / sampleRate);
+				}
+				external.write(index, chunk, 0, chunkSize);
+			}
+
+			double frequency = external.computeFrequency(sampleRate);
+			System.out.format("\nSize: %d  Frequency: %.4f Hz  Time: %d ms\n", size, frequency,
+					(System.nanoTime() - startTime) / 1000000);
+		}
+		catch (Exception e)
+		{
+			System.err.println(e);
+		}
+	}
+
+	/**
+	 * Tests the speed of the band limited search against the full spectrum
+	 *
+	 * <p>A 440 Hz tone in noise is searched over the whole spectrum with
+	 * {@link FFTFreqGen#computeFrequencyReal()} and over 50 Hz to 2 kHz with
+	 * {@link FFTFreqGen#computeFrequencyBand()}, which prunes the FFT to the bins of the
+	 * band. Both frequencies and the best time of several rounds are reported.</p>
+	 */
+	static void testSpeedBand() {
+		System.out.println("Testing Speed of the 50 Hz - 2 kHz band against the full spectrum.\n");
+
+		Random rand = new Random();
+		for (int size : new int[] {16384, 44100, 65536, 262144, 1048576}) {
+			double[] samples = new double[size];
+			for (int i = 0; i < size; i++) {
+				samples[i] = Math.sin(2 * Math.PI * 440 * i / 44100) + rand.nextGaussian() * 0.5;
+			}
+
+			FFTFreqGen full = new FFTFreqGen(44100);
+			FFTFreqGen band = new FFTFreqGen(44100);
+			full.setSamples(samples);
+			band.setSamples(samples);
+			band.setBand(50, 2000);
+
+			int reps = Math.max(4, 4194304 / size);
+			long fullTime = Long.MAX_VALUE, bandTime = Long.MAX_VALUE;
+
+			for (int round = 0; round < 5; round++) {
+				long startTime = System.nanoTime();
+				for (int i = 0; i < reps; i++) {
+					full.computeFrequencyReal();
+				}
+				fullTime = Math.min(fullTime, (System.nanoTime() - startTime) / reps);
+
+				startTime = System.nanoTime();
+				for (int i = 0; i < reps; i++) {
+					band.computeFrequencyBand();
+				}
+				bandTime = Math.min(bandTime, (System.nanoTime() - startTime) / reps);
+			}
+
+			System.out.format("Size: %7d  Full: %8d us (%.2f Hz)  Band: %8d us (%.2f Hz)  Speedup: %.2fx\n",
+					size, fullTime / 1000, full.getFrequency(), bandTime / 1000, band.getFrequency(),
+					(double) fullTime / bandTime);
+		}
+	}
+
+	/**
+	 * Returns the total number of garbage collections so far
+	 *
+	 * @return The sum of the collection counts of every collector
+	 */
+	private static long gcCount() {
+		long count = 0;
+		for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+			count += Math.max(bean.getCollectionCount(), 0);
+		}
+
+		return count;
+	}
+
+	/**
+	 * Reads the first channel of a WAV file into an array
+	 *
+	 * @param wavFile The open WAV file to read from
+	 * @param count The number of frames to read
+	 * @return The samples of the first channel, padded with zeros if the file is shorter
+	 * @throws Exception Thrown when the file can't be read
+	 */
+	private static double[] readChannel(WavFile wavFile, int count) throws Exception {
+		int numChannels = wavFile.getNumChannels();
+		double[] buffer = new double[count * numChannels];
+		wavFile.readFrames(buffer, count);
+
+		double[] samples = new double[count];
+		for (int i = 0; i < count; i++) {
+			samples[i] = buffer[i * numChannels];
+		}
+
+		return samples;
 	}
 }
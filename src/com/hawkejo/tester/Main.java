@@ -12,6 +12,17 @@ public class Main {
 		System.out.println("Testing accuracy of various classes.");
 
 		FFTTester.testAccuracyFFT();
+		FFTTester.testAccuracyFloat();
+		FFTTester.testGoertzel();
+		FFTTester.testSlidingDFT();
+		FFTTester.testInterpolation();
+		FFTTester.testHPS();
+		FFTTester.testYin();
+		FFTTester.testCepstrum();
+		FFTTester.testPeaks();
+		FFTTester.testWindows();
+		FFTTester.testDecimation();
+		FFTTester.testStreaming();
 	}
 
 	/**
@@ -37,6 +48,22 @@ public class Main {
 		System.out.println("Testing speed of various classes.\nBuffer size: " + binSize);
 
 		FFTTester.testSpeedFFT(binSize);
+		System.out.println("\n");
+		FFTTester.testSpeedSimd();
+		System.out.println("\n");
+		FFTTester.testSpeedIfft();
+		System.out.println("\n");
+		FFTTester.testSpeedBatch(binSize);
+		System.out.println("\n");
+		FFTTester.testSpeedSixStep();
+		System.out.println("\n");
+		FFTTester.testSpeedSizes();
+		System.out.println("\n");
+		FFTTester.testSpeedBand();
+		System.out.println("\n");
+		FFTTester.testOffHeapFFT();
+		System.out.println("\n");
+		FFTTester.testExternalFFT();
 	}
 
     /**
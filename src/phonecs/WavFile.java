@@ -11,6 +11,7 @@ package phonecs;
 // Version 1.0
 
 import java.io.*;
+import java.nio.DoubleBuffer;
 
 import javax.sound.sampled.AudioFileFormat;
 import javax.sound.sampled.AudioFormat;
@@ -672,6 +673,61 @@ public class WavFile
 	}
 
 
+	// DoubleBuffer
+	// ------------
+	// Decodes straight into (possibly direct) buffers using absolute puts, so the buffer position is left unchanged.
+	// A null entry in the per channel version skips that channel.
+	public int readFrames(DoubleBuffer sampleBuffer, int numFramesToRead) throws IOException, WavFileException
+	{
+		return readFrames(sampleBuffer, 0, numFramesToRead);
+	}
+
+	public int readFrames(DoubleBuffer sampleBuffer, int offset, int numFramesToRead) throws IOException, WavFileException
+	{
+		if (ioState != IOState.READING) throw new IOException("Cannot read from WavFile instance");
+
+		for (int f=0 ; f<numFramesToRead ; f++)
+		{
+			if (frameCounter == numFrames) return f;
+
+			for (int c=0 ; c<numChannels ; c++)
+			{
+				sampleBuffer.put(offset, floatOffset + (double) readSample() / floatScale);
+				offset ++;
+			}
+
+			frameCounter ++;
+		}
+
+		return numFramesToRead;
+	}
+
+	public int readFrames(DoubleBuffer[] sampleBuffer, int numFramesToRead) throws IOException, WavFileException
+	{
+		return readFrames(sampleBuffer, 0, numFramesToRead);
+	}
+
+	public int readFrames(DoubleBuffer[] sampleBuffer, int offset, int numFramesToRead) throws IOException, WavFileException
+	{
+		if (ioState != IOState.READING) throw new IOException("Cannot read from WavFile instance");
+
+		for (int f=0 ; f<numFramesToRead ; f++)
+		{
+			if (frameCounter == numFrames) return f;
+
+			for (int c=0 ; c<numChannels ; c++)
+			{
+				double sample = floatOffset + (double) readSample() / floatScale;
+				if (sampleBuffer[c] != null) sampleBuffer[c].put(offset, sample);
+			}
+
+			offset ++;
+			frameCounter ++;
+		}
+
+		return numFramesToRead;
+	}
+
 	public void close() throws IOException
 	{
 		// Close the input stream and set to null